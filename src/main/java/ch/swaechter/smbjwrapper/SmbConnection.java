@@ -4,12 +4,20 @@ import com.hierynomus.smbj.SMBClient;
 import com.hierynomus.smbj.SmbConfig;
 import com.hierynomus.smbj.auth.AuthenticationContext;
 import com.hierynomus.smbj.connection.Connection;
+import com.hierynomus.smbj.connection.NegotiatedProtocol;
 import com.hierynomus.smbj.share.DiskShare;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class is responsible for managing the SMB connection and session.
+ * <p>
+ * The connection is thread safe and can be shared by several threads. The internal state is replaced atomically: Calls on an alive connection
+ * don't take any lock, while a dropped connection is reconnected by exactly one thread and all other threads wait for its first attempt.
  *
  * @author Simon Wächter
  */
@@ -36,19 +44,37 @@ public class SmbConnection implements AutoCloseable {
     private final String shareName;
 
     /**
-     * New or reused connection.
+     * Optional registry to share the connection and session with other SMB connections.
      */
-    private Connection connection;
+    private final SmbSessionRegistry sessionRegistry;
 
     /**
-     * Disk share for the SMB access.
+     * Current state with the connection, session and disk share.
      */
-    private DiskShare diskShare;
+    private final AtomicReference<ConnectionState> connectionState = new AtomicReference<>(ConnectionState.DISCONNECTED);
+
+    /**
+     * Reconnect that is currently performed by one thread or null.
+     */
+    private final AtomicReference<CompletableFuture<ConnectionState>> pendingReconnect = new AtomicReference<>();
+
+    /**
+     * Reconnect policy with the backoff and circuit breaker configuration.
+     */
+    private volatile SmbReconnectPolicy reconnectPolicy = new SmbReconnectPolicy();
+
+    /**
+     * Number of failed reconnects in a row and the time until the circuit is open, replaced together as one snapshot.
+     */
+    private final AtomicReference<CircuitState> circuitState = new AtomicReference<>(CircuitState.CLOSED);
+
+    /**
+     * Optional metadata cache or null, if all attributes are queried from the server.
+     */
+    private volatile SmbMetadataCache metadataCache;
 
     /**
      * Create a new SMB connection to the server with the server name, share name and the authentication context.
-     * <p>
-     * Note: The connection itself is not thread safe. Create a connection for each thread communicating with the SMB server.
      *
      * @param serverName            Server name of the server
      * @param shareName             Share name of the server
@@ -61,8 +87,6 @@ public class SmbConnection implements AutoCloseable {
 
     /**
      * Create a new SMB connection like normal, but with the ability to pass a custom smbj SMB configuration.
-     * <p>
-     * Note: The connection itself is not thread safe. Create a connection for each thread communicating with the SMB server.
      *
      * @param serverName            Server name of the server
      * @param shareName             Share name of the server
@@ -80,8 +104,6 @@ public class SmbConnection implements AutoCloseable {
      * connection. Delaying the connection creation until the first real connection call can be useful if you create many connections at once or
      * in parallel (The internal creation is a resource and time consuming operation). Please not that an invalid connection can only be detected on
      * the first call if the delayed creation is used.
-     * <p>
-     * Note: The connection itself is not thread safe. Create a connection for each thread communicating with the SMB server.
      *
      * @param serverName            Server name of the server
      * @param shareName             Share name of the server
@@ -91,33 +113,69 @@ public class SmbConnection implements AutoCloseable {
      * @throws IOException Exception in case of a problem
      */
     public SmbConnection(String serverName, String shareName, AuthenticationContext authenticationContext, SmbConfig smbConfig, boolean delayedInitialization) throws IOException {
+        this(serverName, shareName, authenticationContext, smbConfig, null, delayedInitialization);
+    }
+
+    /**
+     * Create a new SMB connection that shares the client, the connection to the server and the session of the credentials with all other SMB
+     * connections of the same session registry, so accessing several shares of the same server does not require additional sockets or
+     * authentications. SMB connections to the same share also share the disk share. The SMB configuration of the session registry is used.
+     *
+     * @param serverName            Server name of the server
+     * @param shareName             Share name of the server
+     * @param authenticationContext Authentication used to authenticate against
+     * @param sessionRegistry       Session registry that provides the shared connection and session
+     * @param delayedInitialization Delay the initialization of the connection until the first access
+     * @throws IOException Exception in case of a problem
+     */
+    public SmbConnection(String serverName, String shareName, AuthenticationContext authenticationContext, SmbSessionRegistry sessionRegistry, boolean delayedInitialization) throws IOException {
+        this(serverName, shareName, authenticationContext, sessionRegistry.getSmbConfig(), sessionRegistry, delayedInitialization);
+    }
+
+    /**
+     * Create a new SMB connection with an optional session registry.
+     *
+     * @param serverName            Server name of the server
+     * @param shareName             Share name of the server
+     * @param authenticationContext Authentication used to authenticate against
+     * @param smbConfig             Custom SMB/smbj configuration
+     * @param sessionRegistry       Optional session registry that provides the shared connection and session or null
+     * @param delayedInitialization Delay the initialization of the connection until the first access
+     * @throws IOException Exception in case of a problem
+     */
+    private SmbConnection(String serverName, String shareName, AuthenticationContext authenticationContext, SmbConfig smbConfig, SmbSessionRegistry sessionRegistry, boolean delayedInitialization) throws IOException {
         this.authenticationContext = authenticationContext;
         this.smbConfig = smbConfig;
         this.serverName = serverName;
         this.shareName = shareName;
+        this.sessionRegistry = sessionRegistry;
 
         // Connect directly or not (Delay)
         if (!delayedInitialization) {
-            connectToServer();
+            reconnect();
         }
     }
 
     /**
-     * Get the disk share to access the server. If the connection initialization is delayed, this call will initialize the internal connection.
+     * Get the disk share to access the server. If the connection initialization is delayed or the connection was dropped, this call will
+     * (re)initialize the internal connection.
      *
      * @return Disk share to access the server
      * @throws RuntimeException Exception in case of a delayed initialization problem
      */
     public DiskShare getDiskShare() {
-        if (!isConnectionAlive()) {
-            try {
-                ensureConnectionIsAlive();
-            } catch (IOException exception) {
-                throw new RuntimeException("Unable to initialize the delayed connection: " + exception.getMessage(), exception);
-            }
-        }
+        return getAliveState().diskShare;
+    }
 
-        return diskShare;
+    /**
+     * Get the negotiated protocol of the connection, so transfers can be sized to the maximum read and write sizes of the server. If the
+     * connection initialization is delayed or the connection was dropped, this call will (re)initialize the internal connection.
+     *
+     * @return Negotiated protocol of the connection
+     * @throws RuntimeException Exception in case of a delayed initialization problem
+     */
+    NegotiatedProtocol getNegotiatedProtocol() {
+        return getAliveState().connection.getNegotiatedProtocol();
     }
 
     /**
@@ -138,17 +196,99 @@ public class SmbConnection implements AutoCloseable {
         return shareName;
     }
 
+    /**
+     * Get the authentication context of the connection, so additional connections to the same share can be established.
+     *
+     * @return Authentication context
+     */
+    AuthenticationContext getAuthenticationContext() {
+        return authenticationContext;
+    }
+
+    /**
+     * Get the SMB configuration of the connection, so transfers can be sized to the configured buffer sizes.
+     *
+     * @return SMB configuration
+     */
+    SmbConfig getSmbConfig() {
+        return smbConfig;
+    }
+
+    /**
+     * Get the reconnect policy of the connection.
+     *
+     * @return Reconnect policy
+     */
+    public SmbReconnectPolicy getReconnectPolicy() {
+        return reconnectPolicy;
+    }
+
+    /**
+     * Set the reconnect policy of the connection. By default, a dropped connection is reconnected once per call without any backoff or circuit
+     * breaker. A custom policy is useful to prevent threads from piling up in connect timeouts while the server is unavailable.
+     *
+     * @param reconnectPolicy New reconnect policy
+     */
+    public void setReconnectPolicy(SmbReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+    }
+
+    /**
+     * Get the metadata cache of the connection.
+     *
+     * @return Metadata cache or null, if no cache is used
+     */
+    public SmbMetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Set the metadata cache of the connection. By default, no cache is used and each existence check or attribute lookup queries the server.
+     * A cache is useful for workloads that check the same paths repeatedly and can tolerate stale metadata caused by other clients.
+     *
+     * @param metadataCache New metadata cache or null to disable caching
+     */
+    public void setMetadataCache(SmbMetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Get the alive connection state. If the connection initialization is delayed or the connection was dropped, the internal connection is
+     * (re)initialized.
+     *
+     * @return Alive connection state
+     * @throws RuntimeException Exception in case of a delayed initialization problem
+     */
+    private ConnectionState getAliveState() {
+        // Fast path without any locking
+        ConnectionState currentState = connectionState.get();
+        if (currentState.isAlive()) {
+            return currentState;
+        }
+
+        try {
+            return reconnect();
+        } catch (IOException exception) {
+            throw new RuntimeException("Unable to initialize the delayed connection: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Check if the circuit of the connection is open, so all reconnects fail fast until the open duration elapsed.
+     *
+     * @return Status of the check
+     */
+    public boolean isCircuitOpen() {
+        return System.currentTimeMillis() < circuitState.get().openUntilMillis;
+    }
+
     /**
      * Check if the connection to the SMB server is alive.
      *
      * @return Status of the check
      */
     public boolean isConnectionAlive() {
-        if (connection == null || diskShare == null) {
-            return false;
-        }
-
-        return connection.isConnected() && diskShare.isConnected();
+        return connectionState.get().isAlive();
     }
 
     /**
@@ -160,31 +300,294 @@ public class SmbConnection implements AutoCloseable {
      */
     public void ensureConnectionIsAlive() throws IOException {
         if (!isConnectionAlive()) {
-            close();
-            connectToServer();
+            reconnect();
         }
     }
 
     /**
-     * Close the connection.
+     * Close the connection. A later access will reconnect the connection again.
      *
      * @throws IOException Exception in case of a problem
      */
     @Override
     public void close() throws IOException {
-        if (connection != null && connection.isConnected()) {
-            connection.close(true);
+        closeState(connectionState.getAndSet(ConnectionState.DISCONNECTED));
+    }
+
+    /**
+     * Reconnect to the SMB server if the current state is not alive. Only one thread performs the reconnect, all other threads calling this
+     * method at the same time wait for the result of its first attempt. If the first attempt fails, they fail fast instead of waiting for the
+     * retries and their backoff. While the circuit is open or probed, calls fail fast as well.
+     *
+     * @return Alive connection state
+     * @throws IOException Exception in case of a problem or an open circuit
+     */
+    private ConnectionState reconnect() throws IOException {
+        while (true) {
+            ConnectionState currentState = connectionState.get();
+            if (currentState.isAlive()) {
+                return currentState;
+            }
+
+            // Fail fast while the circuit is open
+            CircuitState currentCircuit = circuitState.get();
+            long remainingOpenMillis = currentCircuit.openUntilMillis - System.currentTimeMillis();
+            if (remainingOpenMillis > 0) {
+                throw new IOException("The circuit to " + serverName + "/" + shareName + " is open for another " + remainingOpenMillis + " ms");
+            }
+
+            // Try to become the reconnecting thread
+            CompletableFuture<ConnectionState> ownReconnect = new CompletableFuture<>();
+            if (pendingReconnect.compareAndSet(null, ownReconnect)) {
+                try {
+                    ConnectionState newState = reconnectState(ownReconnect);
+                    ownReconnect.complete(newState);
+                    return newState;
+                } catch (IOException | RuntimeException exception) {
+                    ownReconnect.completeExceptionally(exception);
+                    throw exception;
+                } finally {
+                    pendingReconnect.set(null);
+                }
+            }
+
+            // Wait for the reconnecting thread, unless it's probing a previously open circuit. If it already finished, the state is checked again
+            CompletableFuture<ConnectionState> otherReconnect = pendingReconnect.get();
+            if (otherReconnect != null) {
+                if (currentCircuit.consecutiveFailures >= reconnectPolicy.getFailureThreshold()) {
+                    throw new IOException("The circuit to " + serverName + "/" + shareName + " is half open and currently probed");
+                }
+                return awaitReconnect(otherReconnect);
+            }
+        }
+    }
+
+    /**
+     * Replace a dead state with a new one. The dead state is claimed before it's closed, so it's released exactly once, even if a concurrent
+     * close or a later reconnect sees it as well. A close that happens during the reconnect wins and the new state is closed again. Only called
+     * by the reconnecting thread.
+     *
+     * @param ownReconnect Reconnect the other threads are waiting for
+     * @return Alive connection state
+     * @throws IOException Exception in case of a problem or a concurrent close
+     */
+    private ConnectionState reconnectState(CompletableFuture<ConnectionState> ownReconnect) throws IOException {
+        // Claim the dead state or return the state that became alive in the meantime
+        ConnectionState deadState = connectionState.get();
+        while (!deadState.isAlive() && !connectionState.compareAndSet(deadState, ConnectionState.RECONNECTING)) {
+            deadState = connectionState.get();
+        }
+        if (deadState.isAlive()) {
+            return deadState;
+        }
+
+        ConnectionState newState;
+        try {
+            closeState(deadState);
+            newState = connectWithRetries(ownReconnect);
+        } catch (IOException | RuntimeException exception) {
+            connectionState.compareAndSet(ConnectionState.RECONNECTING, ConnectionState.DISCONNECTED);
+            throw exception;
+        }
+
+        // Install the new state unless the connection was closed during the reconnect
+        if (!connectionState.compareAndSet(ConnectionState.RECONNECTING, newState)) {
+            closeState(newState);
+            throw new IOException("The connection to " + serverName + "/" + shareName + " was closed during the reconnect");
+        }
+        return newState;
+    }
+
+    /**
+     * Connect to the SMB server and retry failed attempts with the backoff of the reconnect policy. The probe of a previously open circuit is
+     * not retried. The waiting threads get the error of the first failed attempt, so they don't wait for the retries. Only called by the
+     * reconnecting thread.
+     *
+     * @param ownReconnect Reconnect the other threads are waiting for
+     * @return New connection state
+     * @throws IOException Exception in case all attempts failed
+     */
+    private ConnectionState connectWithRetries(CompletableFuture<ConnectionState> ownReconnect) throws IOException {
+        SmbReconnectPolicy currentPolicy = reconnectPolicy;
+        boolean probe = circuitState.get().consecutiveFailures >= currentPolicy.getFailureThreshold();
+        for (int retry = 0; ; retry++) {
+            try {
+                ConnectionState newState = connectToServer();
+                circuitState.set(CircuitState.CLOSED);
+                return newState;
+            } catch (IOException | RuntimeException exception) {
+                if (probe || retry >= currentPolicy.getMaxRetries()) {
+                    // Open the circuit as soon too many reconnects failed in a row
+                    circuitState.updateAndGet(currentCircuit -> currentCircuit.recordFailure(currentPolicy));
+                    throw exception;
+                }
+                ownReconnect.completeExceptionally(exception);
+            }
+
+            try {
+                Thread.sleep(currentPolicy.computeBackoffMillis(retry));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the reconnect to " + serverName + "/" + shareName);
+            }
         }
     }
 
     /**
-     * Connect to the SMB server and set up the internal connection.
+     * Wait for the reconnect of another thread and pass on its result.
      *
+     * @param otherReconnect Reconnect of the other thread
+     * @return Alive connection state
+     * @throws IOException Exception in case the reconnect failed
+     */
+    private ConnectionState awaitReconnect(CompletableFuture<ConnectionState> otherReconnect) throws IOException {
+        try {
+            return otherReconnect.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the reconnect to " + serverName + "/" + shareName);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException("Unable to reconnect to " + serverName + "/" + shareName, cause);
+            }
+        }
+    }
+
+    /**
+     * Close a connection state and release its resources.
+     *
+     * @param closedState Connection state to close
+     * @throws IOException Exception in case of a problem
+     */
+    private void closeState(ConnectionState closedState) throws IOException {
+        if (closedState.shared) {
+            // Only release the shared disk share, it's closed by the registry as soon it's no longer used
+            sessionRegistry.releaseShare(serverName, closedState.diskShare);
+        } else if (closedState.connection != null && closedState.connection.isConnected()) {
+            closedState.connection.close(true);
+        }
+    }
+
+    /**
+     * Connect to the SMB server and set up a new internal connection state.
+     *
+     * @return New connection state
      * @throws IOException Exception in case of a problem
      */
-    private void connectToServer() throws IOException {
-        SMBClient smbClient = new SMBClient(smbConfig);
-        this.connection = smbClient.connect(serverName);
-        this.diskShare = (DiskShare) connection.authenticate(authenticationContext).connectShare(shareName);
+    private ConnectionState connectToServer() throws IOException {
+        if (sessionRegistry != null) {
+            // Reuse the shared connection, session and disk share
+            DiskShare diskShare = sessionRegistry.acquireShare(serverName, authenticationContext, shareName);
+            return new ConnectionState(diskShare.getTreeConnect().getSession().getConnection(), true, diskShare);
+        } else {
+            SMBClient smbClient = new SMBClient(smbConfig);
+            Connection connection = smbClient.connect(serverName);
+            DiskShare diskShare = (DiskShare) connection.authenticate(authenticationContext).connectShare(shareName);
+            return new ConnectionState(connection, false, diskShare);
+        }
+    }
+
+    /**
+     * This class represents an immutable state of the circuit breaker.
+     */
+    private static final class CircuitState {
+
+        /**
+         * State of a closed circuit without any failed reconnects.
+         */
+        private static final CircuitState CLOSED = new CircuitState(0, 0);
+
+        /**
+         * Number of failed reconnects in a row.
+         */
+        private final int consecutiveFailures;
+
+        /**
+         * Time in milliseconds until the circuit is open.
+         */
+        private final long openUntilMillis;
+
+        /**
+         * Create a new circuit state.
+         *
+         * @param consecutiveFailures Number of failed reconnects in a row
+         * @param openUntilMillis     Time in milliseconds until the circuit is open
+         */
+        private CircuitState(int consecutiveFailures, long openUntilMillis) {
+            this.consecutiveFailures = consecutiveFailures;
+            this.openUntilMillis = openUntilMillis;
+        }
+
+        /**
+         * Create the state after another failed reconnect. The circuit opens as soon the failure threshold of the policy is reached.
+         *
+         * @param reconnectPolicy Reconnect policy with the circuit breaker configuration
+         * @return New circuit state
+         */
+        private CircuitState recordFailure(SmbReconnectPolicy reconnectPolicy) {
+            int failures = consecutiveFailures + 1;
+            if (failures >= reconnectPolicy.getFailureThreshold()) {
+                return new CircuitState(failures, System.currentTimeMillis() + reconnectPolicy.getOpenDurationMillis());
+            }
+            return new CircuitState(failures, openUntilMillis);
+        }
+    }
+
+    /**
+     * This class represents an immutable state of the connection and the disk share.
+     */
+    private static final class ConnectionState {
+
+        /**
+         * State of a connection that was not yet initialized or that was closed.
+         */
+        private static final ConnectionState DISCONNECTED = new ConnectionState(null, false, null);
+
+        /**
+         * State of a connection whose dead state was claimed by the reconnecting thread. A close replaces it, so the reconnect can detect it.
+         */
+        private static final ConnectionState RECONNECTING = new ConnectionState(null, false, null);
+
+        /**
+         * New or reused connection.
+         */
+        private final Connection connection;
+
+        /**
+         * Flag whether the disk share was acquired from the session registry.
+         */
+        private final boolean shared;
+
+        /**
+         * Disk share for the SMB access.
+         */
+        private final DiskShare diskShare;
+
+        /**
+         * Create a new connection state.
+         *
+         * @param connection New or reused connection
+         * @param shared     Flag whether the disk share was acquired from the session registry
+         * @param diskShare  Disk share for the SMB access
+         */
+        private ConnectionState(Connection connection, boolean shared, DiskShare diskShare) {
+            this.connection = connection;
+            this.shared = shared;
+            this.diskShare = diskShare;
+        }
+
+        /**
+         * Check if the connection and the disk share of the state are alive.
+         *
+         * @return Status of the check
+         */
+        private boolean isAlive() {
+            return connection != null && diskShare != null && connection.isConnected() && diskShare.isConnected();
+        }
     }
 }
@@ -0,0 +1,80 @@
+package ch.swaechter.smbjwrapper;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class represents a connection that was leased from a SMB connection pool. Closing the lease returns the connection to the pool, the
+ * connection itself must not be closed by the caller.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbConnectionLease implements AutoCloseable {
+
+    /**
+     * Pool the connection was leased from.
+     */
+    private final SmbConnectionPool smbConnectionPool;
+
+    /**
+     * Share pool the connection belongs to.
+     */
+    private final SmbConnectionPool.SharePool sharePool;
+
+    /**
+     * Leased connection.
+     */
+    private final SmbConnection smbConnection;
+
+    /**
+     * Flag whether the lease was already returned.
+     */
+    private final AtomicBoolean returned = new AtomicBoolean(false);
+
+    /**
+     * Flag whether the connection should be discarded instead of reused.
+     */
+    private volatile boolean invalidated;
+
+    /**
+     * Create a new lease for a pooled connection.
+     *
+     * @param smbConnectionPool Pool the connection was leased from
+     * @param sharePool         Share pool the connection belongs to
+     * @param smbConnection     Leased connection
+     */
+    SmbConnectionLease(SmbConnectionPool smbConnectionPool, SmbConnectionPool.SharePool sharePool, SmbConnection smbConnection) {
+        this.smbConnectionPool = smbConnectionPool;
+        this.sharePool = sharePool;
+        this.smbConnection = smbConnection;
+    }
+
+    /**
+     * Get the leased connection.
+     *
+     * @return Leased connection
+     * @throws IllegalStateException Exception in case the lease was already returned
+     */
+    public SmbConnection getSmbConnection() {
+        if (returned.get()) {
+            throw new IllegalStateException("The lease was already returned to the pool");
+        }
+        return smbConnection;
+    }
+
+    /**
+     * Mark the connection as broken, so it's closed instead of reused when the lease is returned.
+     */
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    /**
+     * Return the connection to the pool. Calling this method multiple times has no effect.
+     */
+    @Override
+    public void close() {
+        if (returned.compareAndSet(false, true)) {
+            smbConnectionPool.release(sharePool, smbConnection, !invalidated);
+        }
+    }
+}
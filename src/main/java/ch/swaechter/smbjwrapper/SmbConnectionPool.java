@@ -0,0 +1,396 @@
+package ch.swaechter.smbjwrapper;
+
+import com.hierynomus.smbj.SmbConfig;
+import com.hierynomus.smbj.auth.AuthenticationContext;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is responsible for pooling authenticated SMB connections. For each server, share and credentials combination, a bounded set of
+ * connections is kept and handed out via leases. Returned connections are kept idle for reuse and evicted as soon they were idle for too long.
+ * <p>
+ * Note: The pool itself is thread safe. A leased connection belongs to the lease holder until the lease is closed.
+ *
+ * @author Simon Wächter
+ */
+public class SmbConnectionPool implements AutoCloseable {
+
+    /**
+     * Default idle time in milliseconds after which an unused connection gets evicted.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300_000;
+
+    /**
+     * Default time in milliseconds a lease request waits for a free connection.
+     */
+    public static final long DEFAULT_LEASE_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * SMB configuration used for all new connections.
+     */
+    private final SmbConfig smbConfig;
+
+    /**
+     * Maximum number of connections per server, share and credentials combination.
+     */
+    private final int maxConnectionsPerShare;
+
+    /**
+     * Idle time in milliseconds after which an unused connection gets evicted.
+     */
+    private final long idleTimeoutMillis;
+
+    /**
+     * Time in milliseconds a lease request waits for a free connection.
+     */
+    private final long leaseTimeoutMillis;
+
+    /**
+     * All share pools, grouped by server, share and credentials.
+     */
+    private final Map<PoolKey, SharePool> sharePools = new ConcurrentHashMap<>();
+
+    /**
+     * Executor that periodically evicts idle connections.
+     */
+    private final ScheduledExecutorService evictionExecutor;
+
+    /**
+     * Flag whether the pool was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create a new SMB connection pool with the default SMB configuration, idle timeout and lease timeout.
+     *
+     * @param maxConnectionsPerShare Maximum number of connections per server, share and credentials combination
+     */
+    public SmbConnectionPool(int maxConnectionsPerShare) {
+        this(SmbConfig.builder().build(), maxConnectionsPerShare, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_LEASE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Create a new SMB connection pool with a custom smbj SMB configuration, idle timeout and lease timeout.
+     *
+     * @param smbConfig              Custom SMB/smbj configuration used for all new connections
+     * @param maxConnectionsPerShare Maximum number of connections per server, share and credentials combination
+     * @param idleTimeoutMillis      Idle time in milliseconds after which an unused connection gets evicted
+     * @param leaseTimeoutMillis     Time in milliseconds a lease request waits for a free connection
+     */
+    public SmbConnectionPool(SmbConfig smbConfig, int maxConnectionsPerShare, long idleTimeoutMillis, long leaseTimeoutMillis) {
+        if (maxConnectionsPerShare < 1) {
+            throw new IllegalArgumentException("The pool requires at least one connection per share");
+        }
+        this.smbConfig = smbConfig;
+        this.maxConnectionsPerShare = maxConnectionsPerShare;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+
+        // Evict idle connections in the background
+        long evictionIntervalMillis = Math.max(1000, idleTimeoutMillis / 2);
+        this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smbjwrapper-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.evictionExecutor.scheduleWithFixedDelay(this::evictIdleConnections, evictionIntervalMillis, evictionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lease a connection for the server, share and credentials. An idle connection is reused if it's still alive, otherwise a new connection is
+     * created. If all connections of the share are leased, the call waits until one is returned or the lease timeout is reached.
+     *
+     * @param serverName            Server name of the server
+     * @param shareName             Share name of the server
+     * @param authenticationContext Authentication used to authenticate against
+     * @return Lease that has to be closed to return the connection to the pool
+     * @throws IOException Exception in case of a problem or a lease timeout
+     */
+    public SmbConnectionLease lease(String serverName, String shareName, AuthenticationContext authenticationContext) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The connection pool is already closed");
+        }
+
+        // Wait for a free slot of the share
+        PoolKey poolKey = new PoolKey(serverName, shareName, authenticationContext);
+        SharePool sharePool = sharePools.computeIfAbsent(poolKey, key -> new SharePool(maxConnectionsPerShare));
+        try {
+            if (!sharePool.permits.tryAcquire(leaseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Unable to lease a connection to " + serverName + "/" + shareName + " within " + leaseTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + serverName + "/" + shareName);
+        }
+
+        // Reuse an alive idle connection or create a new one
+        try {
+            SmbConnection smbConnection;
+            while ((smbConnection = sharePool.pollIdleConnection()) != null) {
+                if (smbConnection.isConnectionAlive()) {
+                    return new SmbConnectionLease(this, sharePool, smbConnection);
+                }
+                closeQuietly(smbConnection);
+            }
+            smbConnection = new SmbConnection(serverName, shareName, authenticationContext, smbConfig, false);
+            return new SmbConnectionLease(this, sharePool, smbConnection);
+        } catch (IOException | RuntimeException exception) {
+            sharePool.permits.release();
+            throw exception;
+        }
+    }
+
+    /**
+     * Evict all idle connections that were not used within the idle timeout or that are no longer alive.
+     *
+     * @return Number of evicted connections
+     */
+    public int evictIdleConnections() {
+        long evictionTime = System.currentTimeMillis() - idleTimeoutMillis;
+        int evictedConnections = 0;
+        for (SharePool sharePool : sharePools.values()) {
+            for (SmbConnection smbConnection : sharePool.removeIdleConnections(evictionTime)) {
+                closeQuietly(smbConnection);
+                evictedConnections++;
+            }
+        }
+        return evictedConnections;
+    }
+
+    /**
+     * Get the number of idle connections over all shares.
+     *
+     * @return Number of idle connections
+     */
+    public int getIdleConnectionCount() {
+        int idleConnections = 0;
+        for (SharePool sharePool : sharePools.values()) {
+            idleConnections += sharePool.getIdleConnectionCount();
+        }
+        return idleConnections;
+    }
+
+    /**
+     * Get the number of currently leased connections over all shares.
+     *
+     * @return Number of leased connections
+     */
+    public int getLeasedConnectionCount() {
+        int leasedConnections = 0;
+        for (SharePool sharePool : sharePools.values()) {
+            leasedConnections += maxConnectionsPerShare - sharePool.permits.availablePermits();
+        }
+        return leasedConnections;
+    }
+
+    /**
+     * Close the pool and all idle connections. Connections that are still leased are closed as soon they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictionExecutor.shutdownNow();
+        for (SharePool sharePool : sharePools.values()) {
+            for (SmbConnection smbConnection : sharePool.removeIdleConnections(Long.MAX_VALUE)) {
+                closeQuietly(smbConnection);
+            }
+        }
+    }
+
+    /**
+     * Return a leased connection to the pool. Broken connections or connections returned after closing the pool are closed instead of reused.
+     *
+     * @param sharePool     Share pool the connection belongs to
+     * @param smbConnection Leased connection
+     * @param reusable      Flag whether the connection can be reused
+     */
+    void release(SharePool sharePool, SmbConnection smbConnection, boolean reusable) {
+        try {
+            if (!closed && reusable && smbConnection.isConnectionAlive()) {
+                sharePool.offerIdleConnection(smbConnection);
+            } else {
+                closeQuietly(smbConnection);
+            }
+        } finally {
+            sharePool.permits.release();
+        }
+    }
+
+    /**
+     * Close a connection and ignore any problem, because the connection is discarded anyway.
+     *
+     * @param smbConnection Connection to close
+     */
+    private static void closeQuietly(SmbConnection smbConnection) {
+        try {
+            smbConnection.close();
+        } catch (IOException | RuntimeException exception) {
+            // The connection is discarded, so there is nothing left to do
+        }
+    }
+
+    /**
+     * This class represents the bounded set of connections for one server, share and credentials combination.
+     */
+    static final class SharePool {
+
+        /**
+         * Permits for all connections of the share, leased and idle ones.
+         */
+        private final Semaphore permits;
+
+        /**
+         * Idle connections, the most recently returned one first.
+         */
+        private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+
+        /**
+         * Create a new share pool.
+         *
+         * @param maxConnections Maximum number of connections
+         */
+        private SharePool(int maxConnections) {
+            this.permits = new Semaphore(maxConnections, true);
+        }
+
+        /**
+         * Poll the most recently returned idle connection.
+         *
+         * @return Idle connection or null
+         */
+        private synchronized SmbConnection pollIdleConnection() {
+            IdleConnection idleConnection = idleConnections.pollFirst();
+            return idleConnection != null ? idleConnection.smbConnection : null;
+        }
+
+        /**
+         * Offer a returned connection for reuse.
+         *
+         * @param smbConnection Returned connection
+         */
+        private synchronized void offerIdleConnection(SmbConnection smbConnection) {
+            idleConnections.offerFirst(new IdleConnection(smbConnection, System.currentTimeMillis()));
+        }
+
+        /**
+         * Remove all idle connections that were returned before the eviction time or that are no longer alive.
+         *
+         * @param evictionTime Eviction time in milliseconds
+         * @return Removed connections
+         */
+        private synchronized Deque<SmbConnection> removeIdleConnections(long evictionTime) {
+            Deque<SmbConnection> removedConnections = new ArrayDeque<>();
+            Iterator<IdleConnection> iterator = idleConnections.iterator();
+            while (iterator.hasNext()) {
+                IdleConnection idleConnection = iterator.next();
+                if (idleConnection.returnTime <= evictionTime || !idleConnection.smbConnection.isConnectionAlive()) {
+                    iterator.remove();
+                    removedConnections.add(idleConnection.smbConnection);
+                }
+            }
+            return removedConnections;
+        }
+
+        /**
+         * Get the number of idle connections.
+         *
+         * @return Number of idle connections
+         */
+        private synchronized int getIdleConnectionCount() {
+            return idleConnections.size();
+        }
+    }
+
+    /**
+     * This class represents an idle connection and the time it was returned.
+     */
+    private static final class IdleConnection {
+
+        /**
+         * Idle connection.
+         */
+        private final SmbConnection smbConnection;
+
+        /**
+         * Time in milliseconds the connection was returned.
+         */
+        private final long returnTime;
+
+        /**
+         * Create a new idle connection.
+         *
+         * @param smbConnection Idle connection
+         * @param returnTime    Time in milliseconds the connection was returned
+         */
+        private IdleConnection(SmbConnection smbConnection, long returnTime) {
+            this.smbConnection = smbConnection;
+            this.returnTime = returnTime;
+        }
+    }
+
+    /**
+     * This class represents the key of a share pool, consisting of the server, share and credentials.
+     */
+    private static final class PoolKey {
+
+        /**
+         * Server name of the server.
+         */
+        private final String serverName;
+
+        /**
+         * Share name of the server.
+         */
+        private final String shareName;
+
+        /**
+         * Credentials used to authenticate against.
+         */
+        private final SmbCredentials smbCredentials;
+
+        /**
+         * Create a new pool key.
+         *
+         * @param serverName            Server name of the server
+         * @param shareName             Share name of the server
+         * @param authenticationContext Authentication used to authenticate against
+         */
+        private PoolKey(String serverName, String shareName, AuthenticationContext authenticationContext) {
+            this.serverName = serverName;
+            this.shareName = shareName;
+            this.smbCredentials = new SmbCredentials(authenticationContext);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object object) {
+            if (object instanceof PoolKey) {
+                PoolKey poolKey = (PoolKey) object;
+                return serverName.equals(poolKey.serverName) && shareName.equals(poolKey.shareName) && smbCredentials.equals(poolKey.smbCredentials);
+            } else {
+                return false;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(serverName, shareName, smbCredentials);
+        }
+    }
+}
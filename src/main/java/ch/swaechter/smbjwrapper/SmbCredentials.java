@@ -0,0 +1,65 @@
+package ch.swaechter.smbjwrapper;
+
+import com.hierynomus.smbj.auth.AuthenticationContext;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class represents the comparable credentials of an authentication context, so they can be used as key for pooled resources.
+ *
+ * @author Simon Wächter
+ */
+final class SmbCredentials {
+
+    /**
+     * User name of the credentials.
+     */
+    private final String userName;
+
+    /**
+     * Domain of the credentials.
+     */
+    private final String domain;
+
+    /**
+     * Password of the credentials.
+     */
+    private final char[] password;
+
+    /**
+     * Create new comparable credentials based on the authentication context.
+     *
+     * @param authenticationContext Authentication context with the potential credentials
+     */
+    SmbCredentials(AuthenticationContext authenticationContext) {
+        this.userName = authenticationContext.getUsername();
+        this.domain = authenticationContext.getDomain();
+        this.password = authenticationContext.getPassword() != null ? authenticationContext.getPassword().clone() : null;
+    }
+
+    /**
+     * Check if the current and the given objects are equals.
+     *
+     * @param object Given object to compare against
+     * @return Status of the check
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (object instanceof SmbCredentials) {
+            SmbCredentials smbCredentials = (SmbCredentials) object;
+            return Objects.equals(userName, smbCredentials.userName) && Objects.equals(domain, smbCredentials.domain)
+                && Arrays.equals(password, smbCredentials.password);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(userName, domain);
+    }
+}
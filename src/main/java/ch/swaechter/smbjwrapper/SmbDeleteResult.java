@@ -0,0 +1,77 @@
+package ch.swaechter.smbjwrapper;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class represents the summary of a parallel recursive delete. Failed items don't abort the delete, they are collected instead.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbDeleteResult {
+
+    /**
+     * Number of deleted files.
+     */
+    private final long deletedFileCount;
+
+    /**
+     * Number of deleted directories.
+     */
+    private final long deletedDirectoryCount;
+
+    /**
+     * Failures per path, sorted by path.
+     */
+    private final Map<String, Exception> failures;
+
+    /**
+     * Create a new delete result.
+     *
+     * @param deletedFileCount      Number of deleted files
+     * @param deletedDirectoryCount Number of deleted directories
+     * @param failures              Failures per path
+     */
+    SmbDeleteResult(long deletedFileCount, long deletedDirectoryCount, Map<String, Exception> failures) {
+        this.deletedFileCount = deletedFileCount;
+        this.deletedDirectoryCount = deletedDirectoryCount;
+        this.failures = Collections.unmodifiableMap(new TreeMap<>(failures));
+    }
+
+    /**
+     * Get the number of deleted files.
+     *
+     * @return Number of deleted files
+     */
+    public long getDeletedFileCount() {
+        return deletedFileCount;
+    }
+
+    /**
+     * Get the number of deleted directories, including the deleted root directory.
+     *
+     * @return Number of deleted directories
+     */
+    public long getDeletedDirectoryCount() {
+        return deletedDirectoryCount;
+    }
+
+    /**
+     * Get all paths that could not be enumerated or deleted. Directories that were not empty because of a failed child are not listed.
+     *
+     * @return Unmodifiable map with the exceptions per path, sorted by path
+     */
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Check if the delete was completed without any failure.
+     *
+     * @return Status of the check
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
@@ -2,19 +2,24 @@ package ch.swaechter.smbjwrapper;
 
 import ch.swaechter.smbjwrapper.utils.SmbUtils;
 import com.hierynomus.msdtyp.AccessMask;
-import com.hierynomus.msfscc.fileinformation.FileAllInformation;
+import com.hierynomus.mserref.NtStatus;
 import com.hierynomus.msfscc.fileinformation.FileIdBothDirectoryInformation;
 import com.hierynomus.mssmb2.SMB2CreateDisposition;
 import com.hierynomus.mssmb2.SMB2ShareAccess;
+import com.hierynomus.mssmb2.SMBApiException;
 import com.hierynomus.smbj.share.Directory;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.EnumSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class represents a SMB directory.
@@ -42,14 +47,33 @@ public final class SmbDirectory extends SmbItem {
         super(smbConnection, ROOT_PATH);
     }
 
+    /**
+     * Create a new SMB directory based on the SMB connection, the path name and an already known attribute snapshot.
+     *
+     * @param smbConnection SMB connection
+     * @param pathName      Path name
+     * @param attributes    Attribute snapshot that is attached to the directory
+     */
+    SmbDirectory(SmbConnection smbConnection, String pathName, SmbItemAttributes attributes) {
+        super(smbConnection, pathName, attributes);
+    }
+
     /**
      * Ensure that the given directory path does exist - if not, the path is created. In case the path already exists, but is not a directory,
      * an exception will be thrown to ensure application integrity.
      */
     public void ensureExists() {
-        if (!isExisting()) {
-            createDirectory();
-        } else if (!isDirectory()) {
+        SmbItemType smbItemType = stat();
+        if (smbItemType == SmbItemType.NOT_FOUND) {
+            try {
+                createDirectory();
+            } catch (SMBApiException exception) {
+                // Another client might have created the path in the meantime
+                if (exception.getStatus() != NtStatus.STATUS_OBJECT_NAME_COLLISION || stat() != SmbItemType.DIRECTORY) {
+                    throw exception;
+                }
+            }
+        } else if (smbItemType != SmbItemType.DIRECTORY) {
             throw new IllegalStateException("The given path does already exist, but not as directory");
         }
     }
@@ -84,14 +108,38 @@ public final class SmbDirectory extends SmbItem {
      * Create the current directory.
      */
     public void createDirectory() {
-        getDiskShare().mkdir(getPath());
+        try {
+            getDiskShare().mkdir(getPath());
+        } finally {
+            invalidateMetadata();
+        }
     }
 
     /**
      * Delete the current directory with all its subdirectories and subfiles.
      */
     public void deleteDirectoryRecursively() {
-        getDiskShare().rmdir(getPath(), true);
+        try {
+            getDiskShare().rmdir(getPath(), true);
+        } finally {
+            invalidateMetadataTree();
+        }
+    }
+
+    /**
+     * Delete the current directory with all its subdirectories and subfiles in parallel. The files are removed concurrently, each directory is
+     * removed as soon as it's empty. Failures don't abort the delete, they are collected and returned instead, so the remaining tree can be
+     * inspected or deleted again.
+     *
+     * @param parallelOptions Options with the parallelism and the connections to use
+     * @return Summary with the number of deleted items and all failures
+     */
+    public SmbDeleteResult deleteDirectoryRecursively(SmbParallelOptions parallelOptions) {
+        try {
+            return new SmbParallelWalker(getSmbConnection(), parallelOptions).deleteTree(getPath());
+        } finally {
+            invalidateMetadataTree();
+        }
     }
 
     /**
@@ -100,8 +148,9 @@ public final class SmbDirectory extends SmbItem {
      * @return List with all directories
      */
     public List<SmbDirectory> getDirectories() {
-        List<SmbItem> smbItems = sortItems(internallyListItems(SmbItem::isDirectory, false));
-        return smbItems.stream().map(item -> (SmbDirectory) item).collect(Collectors.toList());
+        try (Stream<SmbItem> smbItems = streamItems(smbItem -> smbItem instanceof SmbDirectory, false)) {
+            return smbItems.map(SmbDirectory.class::cast).sorted(Comparator.comparing(SmbItem::getPath)).collect(Collectors.toList());
+        }
     }
 
     /**
@@ -110,8 +159,179 @@ public final class SmbDirectory extends SmbItem {
      * @return List with all files
      */
     public List<SmbFile> getFiles() {
-        List<SmbItem> smbItems = sortItems(internallyListItems(SmbItem::isFile, false));
-        return smbItems.stream().map(item -> (SmbFile) item).collect(Collectors.toList());
+        try (Stream<SmbItem> smbItems = streamItems(smbItem -> smbItem instanceof SmbFile, false)) {
+            return smbItems.map(SmbFile.class::cast).sorted(Comparator.comparing(SmbItem::getPath)).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * List all files and directories whose name matches the wildcard pattern. The pattern is sent to the server, so only matching entries are
+     * transferred. No recursive search is performed.
+     *
+     * @param wildcardPattern Wildcard pattern with * and ? like *.csv
+     * @return Flat list with all matching files and directories
+     */
+    public List<SmbItem> listItemsByWildcard(String wildcardPattern) {
+        return listItemsByWildcard(wildcardPattern, smbItem -> true, false);
+    }
+
+    /**
+     * List all files and directories whose name matches the wildcard pattern and that match the refine predicate, for example a regex. For a
+     * flat listing, the pattern is sent to the server, so only matching entries are transferred. For a recursive listing, the server has to
+     * return all subdirectories to descend into them, so the pattern is matched on the client side.
+     *
+     * @param wildcardPattern Wildcard pattern with * and ? like *.csv
+     * @param refinePredicate Predicate that is checked on the client side for all items that match the wildcard pattern
+     * @param searchRecursive Flag to search recursive
+     * @return Flat list with all matching files and directories
+     */
+    public List<SmbItem> listItemsByWildcard(String wildcardPattern, Predicate<SmbItem> refinePredicate, boolean searchRecursive) {
+        SmbItemIterator smbItemIterator;
+        if (searchRecursive) {
+            Predicate<SmbItem> wildcardPredicate = smbItem -> SmbUtils.matchesWildcard(smbItem.getName(), wildcardPattern);
+            smbItemIterator = new SmbItemIterator(this, null, wildcardPredicate.and(refinePredicate), true);
+        } else {
+            smbItemIterator = new SmbItemIterator(this, wildcardPattern, refinePredicate, false);
+        }
+
+        List<SmbItem> smbItems = new ArrayList<>();
+        try {
+            smbItemIterator.forEachRemaining(smbItems::add);
+        } finally {
+            smbItemIterator.close();
+        }
+        return sortItems(smbItems);
+    }
+
+    /**
+     * List all files and directories of the whole tree that match the search predicate. The subdirectories are enumerated in parallel, so
+     * several requests are outstanding at the same time. The result is the same as the one of a recursive {@link #listItems(Predicate, boolean)}.
+     *
+     * @param searchPredicate Thread safe search predicate that is used for testing
+     * @param sortItems       Flag to sort the items by path like the serial listing or return them in enumeration order
+     * @param parallelOptions Options with the parallelism and the connections to use
+     * @return Flat list with all matching files and directories
+     */
+    public List<SmbItem> listItemsInParallel(Predicate<SmbItem> searchPredicate, boolean sortItems, SmbParallelOptions parallelOptions) {
+        List<SmbItem> smbItems = new SmbParallelWalker(getSmbConnection(), parallelOptions).listItems(getPath(), searchPredicate);
+        return sortItems ? sortItems(smbItems) : smbItems;
+    }
+
+    /**
+     * Compute the usage of the whole tree with the child usages of all subdirectories.
+     *
+     * @param parallelOptions Options with the parallelism and the connections to use
+     * @return Usage of the whole tree
+     * @see #computeUsage(SmbParallelOptions, int)
+     */
+    public SmbDirectoryUsage computeUsage(SmbParallelOptions parallelOptions) {
+        return computeUsage(parallelOptions, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Compute the file count, the sizes and the newest last write time of the whole tree. The values are aggregated from the enumeration data
+     * of the subdirectories, which are enumerated in parallel, so no file is queried on its own. The totals always cover the whole tree, but the
+     * child usages are only returned up to the given depth.
+     *
+     * @param parallelOptions Options with the parallelism and the connections to use
+     * @param maxDepth        Maximum depth of the returned child usages, 0 returns the totals of the current directory only
+     * @return Usage of the whole tree
+     * @throws IllegalArgumentException Exception in case the maximum depth is negative
+     */
+    public SmbDirectoryUsage computeUsage(SmbParallelOptions parallelOptions, int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("The maximum depth can't be negative");
+        }
+        return new SmbParallelWalker(getSmbConnection(), parallelOptions).computeUsage(getPath(), maxDepth);
+    }
+
+    /**
+     * Walk the whole tree of the current directory depth first and pass all items to the visitor.
+     *
+     * @param smbItemVisitor Visitor that controls the walk
+     * @see #walk(SmbItemVisitor, int)
+     */
+    public void walk(SmbItemVisitor smbItemVisitor) {
+        walk(smbItemVisitor, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Walk the tree of the current directory depth first and pass all items to the visitor. The current directory has the depth 0 and its
+     * entries the depth 1. Directories at the max depth are pre- and post-visited, but not enumerated. Directories skipped by the visitor are
+     * never enumerated and the walk stops as soon the visitor terminates it. Each directory is enumerated lazily, so the memory usage only
+     * depends on the depth of the tree.
+     *
+     * @param smbItemVisitor Visitor that controls the walk
+     * @param maxDepth       Max depth of the walked directories
+     */
+    public void walk(SmbItemVisitor smbItemVisitor, int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("The max depth can't be negative");
+        }
+        walkDirectory(this, smbItemVisitor, 0, maxDepth);
+    }
+
+    /**
+     * Iterate lazily over all files and directories that match the search predicate. The directory entries are fetched page by page while
+     * iterating, so the memory usage only depends on the depth of a recursive iteration and not on the number of items. The items are returned
+     * unsorted in the enumeration order of the server.
+     *
+     * @param searchPredicate Search predicate that is used for testing
+     * @param searchRecursive Flag to search recursive
+     * @return Lazy iterator that has to be closed in case it's not iterated until the end
+     */
+    public SmbItemIterator iterateItems(Predicate<SmbItem> searchPredicate, boolean searchRecursive) {
+        return new SmbItemIterator(this, null, searchPredicate, searchRecursive);
+    }
+
+    /**
+     * Open a paged listing of the current directory that starts at the beginning.
+     *
+     * @param pageSize Maximum number of items per page
+     * @return Pager that has to be closed in case it's not iterated until the end
+     * @see #openPager(String, int)
+     */
+    public SmbItemPager openPager(int pageSize) {
+        return openPager(null, pageSize);
+    }
+
+    /**
+     * Open a paged listing of the current directory that continues after the page of a cursor. The items of a page are unsorted in the
+     * enumeration order of the server and only the current page is held in memory. The cursor of a page can be persisted, so the listing can be
+     * resumed after a reconnect or a restart. No recursive search or filtering is performed.
+     *
+     * @param cursor   Opaque cursor of a previous page or null to start at the beginning
+     * @param pageSize Maximum number of items per page
+     * @return Pager that has to be closed in case it's not iterated until the end
+     * @throws IllegalArgumentException Exception in case the page size is invalid or the cursor belongs to another directory
+     */
+    public SmbItemPager openPager(String cursor, int pageSize) {
+        return new SmbItemPager(this, cursor, pageSize);
+    }
+
+    /**
+     * Stream lazily over all files and directories of the current directory. No recursive search or filtering is performed.
+     *
+     * @return Lazy stream that has to be closed in case it's not consumed until the end
+     * @see #streamItems(Predicate, boolean)
+     */
+    public Stream<SmbItem> streamItems() {
+        return streamItems(smbItem -> true, false);
+    }
+
+    /**
+     * Stream lazily over all files and directories that match the search predicate. The directory entries are fetched page by page while
+     * consuming the stream. The items are unsorted, use {@code sorted(Comparator.comparing(SmbItem::getPath))} in case a sorted result is
+     * required. Closing the stream releases all open directories.
+     *
+     * @param searchPredicate Search predicate that is used for testing
+     * @param searchRecursive Flag to search recursive
+     * @return Lazy stream that has to be closed in case it's not consumed until the end
+     */
+    public Stream<SmbItem> streamItems(Predicate<SmbItem> searchPredicate, boolean searchRecursive) {
+        SmbItemIterator smbItemIterator = iterateItems(searchPredicate, searchRecursive);
+        Spliterator<SmbItem> spliterator = Spliterators.spliteratorUnknownSize(smbItemIterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(smbItemIterator::close);
     }
 
     /**
@@ -135,6 +355,23 @@ public final class SmbDirectory extends SmbItem {
         return sortItems(internallyListItems(searchPredicate, searchRecursive));
     }
 
+    /**
+     * List all files and directories that match the search predicate into a compact columnar listing. The items are stored in enumeration
+     * order and only built on access, so huge directories can be listed with a fraction of the memory of {@link #listItems(Predicate, boolean)}.
+     *
+     * @param searchPredicate Search predicate that is used for testing
+     * @param searchRecursive Flag to search recursive
+     * @return Compact listing with all matching files and directories
+     */
+    public SmbListing listItemsCompact(Predicate<SmbItem> searchPredicate, boolean searchRecursive) {
+        SmbListing smbListing = new SmbListing(getSmbConnection());
+        try (SmbItemIterator smbItemIterator = iterateItems(searchPredicate, searchRecursive)) {
+            smbItemIterator.forEachRemaining(smbListing::add);
+        }
+        smbListing.trimToSize();
+        return smbListing;
+    }
+
     /**
      * List all files and directories that match the search pattern. A recursive search is possible and will result
      * in a flat list with all matching elements.
@@ -156,6 +393,8 @@ public final class SmbDirectory extends SmbItem {
         try (Directory directory = getDiskShare().openDirectory(getPath(), EnumSet.of(AccessMask.GENERIC_ALL), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OPEN, null)) {
             String newDirectoryPath = buildProperItemPath(getParentPath().getPath(), newDirectoryName);
             directory.rename(newDirectoryPath, replaceIfExist);
+            invalidateMetadataTree();
+            invalidateMetadataTree(getSmbConnection(), newDirectoryPath);
             return new SmbDirectory(getSmbConnection(), newDirectoryPath);
         }
     }
@@ -177,45 +416,87 @@ public final class SmbDirectory extends SmbItem {
     }
 
     /**
-     * List all files and directories based on the predicate and return them as flat list.
+     * List all files and directories based on the predicate and return them as flat list. The items are built from the directory enumeration
+     * alone and carry an attached attribute snapshot, so no additional round trip per item is required.
      *
      * @param searchPredicate Search predicate each file object is checked against
      * @param searchRecursive Flag to search recursive
      * @return Flat list with all matching share items
      */
     private List<SmbItem> internallyListItems(Predicate<SmbItem> searchPredicate, boolean searchRecursive) {
-        String smbDirectoryPath = getPath();
-        List<SmbItem> smbItems = new LinkedList<>();
-        for (FileIdBothDirectoryInformation fileIdBothDirectoryInformation : getDiskShare().list(smbDirectoryPath)) {
-            String fileName = fileIdBothDirectoryInformation.getFileName();
-            String filePath = (smbDirectoryPath.isEmpty()) ? fileName : smbDirectoryPath + PATH_SEPARATOR + fileName;
-            if (SmbUtils.isValidSmbItemName(fileName)) {
-                FileAllInformation fileAllInformation = getDiskShare().getFileInformation(filePath);
-                if (fileAllInformation.getStandardInformation().isDirectory()) {
-                    SmbDirectory smbDirectory = new SmbDirectory(getSmbConnection(), filePath);
-                    filterItem(smbItems, smbDirectory, searchPredicate);
-                    if (searchRecursive) {
-                        smbItems.addAll(smbDirectory.listItems(searchPredicate, true));
+        List<SmbItem> smbItems = new ArrayList<>();
+        try (SmbItemIterator smbItemIterator = iterateItems(searchPredicate, searchRecursive)) {
+            smbItemIterator.forEachRemaining(smbItems::add);
+        }
+        return smbItems;
+    }
+
+    /**
+     * Walk a single directory and all its subdirectories until the max depth.
+     *
+     * @param smbDirectory   Walked directory
+     * @param smbItemVisitor Visitor that controls the walk
+     * @param depth          Depth of the walked directory
+     * @param maxDepth       Max depth of the walked directories
+     * @return Result that controls the walk of the parent directory
+     */
+    private static SmbVisitResult walkDirectory(SmbDirectory smbDirectory, SmbItemVisitor smbItemVisitor, int depth, int maxDepth) {
+        SmbVisitResult preVisitResult = smbItemVisitor.preVisitDirectory(smbDirectory);
+        if (preVisitResult != SmbVisitResult.CONTINUE) {
+            return preVisitResult;
+        }
+
+        // Enumerate the directory lazily, so pruned or terminated enumerations don't fetch any further pages
+        if (depth < maxDepth) {
+            try (SmbItemIterator smbItemIterator = new SmbItemIterator(smbDirectory, null, smbItem -> true, false)) {
+                while (true) {
+                    SmbItem smbItem;
+                    try {
+                        if (!smbItemIterator.hasNext()) {
+                            break;
+                        }
+                        smbItem = smbItemIterator.next();
+                    } catch (SMBApiException exception) {
+                        return smbItemVisitor.visitDirectoryFailed(smbDirectory, exception);
+                    }
+
+                    SmbVisitResult visitResult;
+                    if (smbItem instanceof SmbDirectory) {
+                        visitResult = walkDirectory((SmbDirectory) smbItem, smbItemVisitor, depth + 1, maxDepth);
+                    } else {
+                        visitResult = smbItemVisitor.visitFile((SmbFile) smbItem);
+                    }
+                    if (visitResult == SmbVisitResult.TERMINATE) {
+                        return SmbVisitResult.TERMINATE;
+                    } else if (visitResult == SmbVisitResult.SKIP_SIBLINGS) {
+                        break;
                     }
-                } else {
-                    SmbFile smbFile = new SmbFile(getSmbConnection(), filePath);
-                    filterItem(smbItems, smbFile, searchPredicate);
                 }
             }
         }
-        return smbItems;
+        return smbItemVisitor.postVisitDirectory(smbDirectory);
     }
 
     /**
-     * Filter a SMB item against the valid item names and a test predicate, used for filtering.
+     * Create a SMB file or directory with an attached attribute snapshot based on a directory enumeration entry. The snapshot is also put into
+     * the metadata cache of the connection, if there is one.
      *
-     * @param smbItems        List with all succeeded SMB items
-     * @param smbItem         Current SMB item to check
-     * @param searchPredicate Test predicate for the check
+     * @param smbConnection                  SMB connection
+     * @param smbDirectoryPath               Path of the enumerated directory
+     * @param fileIdBothDirectoryInformation Directory enumeration entry
+     * @return SMB file or directory
      */
-    private void filterItem(List<SmbItem> smbItems, SmbItem smbItem, Predicate<SmbItem> searchPredicate) {
-        if (searchPredicate.test(smbItem)) {
-            smbItems.add(smbItem);
+    static SmbItem createListedItem(SmbConnection smbConnection, String smbDirectoryPath, FileIdBothDirectoryInformation fileIdBothDirectoryInformation) {
+        String filePath = buildProperItemPath(smbDirectoryPath, fileIdBothDirectoryInformation.getFileName());
+        SmbItemAttributes attributes = SmbItemAttributes.fromDirectoryInformation(fileIdBothDirectoryInformation);
+        SmbMetadataCache metadataCache = smbConnection.getMetadataCache();
+        if (metadataCache != null) {
+            metadataCache.put(filePath, attributes);
+        }
+        if (attributes.isDirectory()) {
+            return new SmbDirectory(smbConnection, filePath, attributes);
+        } else {
+            return new SmbFile(smbConnection, filePath, attributes);
         }
     }
 
@@ -0,0 +1,144 @@
+package ch.swaechter.smbjwrapper;
+
+import com.hierynomus.msdtyp.FileTime;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class represents the aggregated usage of a directory tree. The totals always cover the whole subtree, while the child usages are only
+ * available up to the requested depth. All values are taken from the enumeration data, so no file has to be queried on its own.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbDirectoryUsage {
+
+    /**
+     * Path of the directory.
+     */
+    private final String path;
+
+    /**
+     * Number of files in the whole subtree.
+     */
+    private final long fileCount;
+
+    /**
+     * Number of directories in the whole subtree, without the directory itself.
+     */
+    private final long directoryCount;
+
+    /**
+     * Sum of all file sizes in the whole subtree in bytes.
+     */
+    private final long totalSize;
+
+    /**
+     * Sum of all allocation sizes in the whole subtree in bytes.
+     */
+    private final long totalAllocationSize;
+
+    /**
+     * Newest last write time of all items in the whole subtree or null.
+     */
+    private final FileTime newestLastWriteTime;
+
+    /**
+     * Usages of the direct subdirectories, sorted by path.
+     */
+    private final List<SmbDirectoryUsage> children;
+
+    /**
+     * Create a new directory usage.
+     *
+     * @param path                Path of the directory
+     * @param fileCount           Number of files in the whole subtree
+     * @param directoryCount      Number of directories in the whole subtree
+     * @param totalSize           Sum of all file sizes in bytes
+     * @param totalAllocationSize Sum of all allocation sizes in bytes
+     * @param newestLastWriteTime Newest last write time or null
+     * @param children            Usages of the direct subdirectories
+     */
+    SmbDirectoryUsage(String path, long fileCount, long directoryCount, long totalSize, long totalAllocationSize, FileTime newestLastWriteTime, List<SmbDirectoryUsage> children) {
+        this.path = path;
+        this.fileCount = fileCount;
+        this.directoryCount = directoryCount;
+        this.totalSize = totalSize;
+        this.totalAllocationSize = totalAllocationSize;
+        this.newestLastWriteTime = newestLastWriteTime;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Get the path of the directory.
+     *
+     * @return Path of the directory
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the number of files in the whole subtree.
+     *
+     * @return Number of files
+     */
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Get the number of directories in the whole subtree, without the directory itself.
+     *
+     * @return Number of directories
+     */
+    public long getDirectoryCount() {
+        return directoryCount;
+    }
+
+    /**
+     * Get the sum of all file sizes in the whole subtree.
+     *
+     * @return Total size in bytes
+     */
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Get the sum of all allocation sizes in the whole subtree. This is the space the files actually occupy on the server.
+     *
+     * @return Total allocation size in bytes
+     */
+    public long getTotalAllocationSize() {
+        return totalAllocationSize;
+    }
+
+    /**
+     * Get the newest last write time of all files and directories in the whole subtree. The directory itself is not considered.
+     *
+     * @return Newest last write time or null, if the subtree is empty
+     */
+    public FileTime getNewestLastWriteTime() {
+        return newestLastWriteTime;
+    }
+
+    /**
+     * Get the usages of the direct subdirectories. The list is empty for an empty directory or in case the depth limit was reached.
+     *
+     * @return Unmodifiable list with the usages, sorted by path
+     */
+    public List<SmbDirectoryUsage> getChildren() {
+        return children;
+    }
+
+    /**
+     * Get a string with the path and the totals.
+     *
+     * @return String with the path and the totals
+     */
+    @Override
+    public String toString() {
+        return path + ": " + fileCount + " files, " + directoryCount + " directories, " + totalSize + " bytes";
+    }
+}
@@ -1,19 +1,26 @@
 package ch.swaechter.smbjwrapper;
 
+import ch.swaechter.smbjwrapper.streams.SmbFileChannel;
 import ch.swaechter.smbjwrapper.streams.SmbInputStream;
 import ch.swaechter.smbjwrapper.streams.SmbOutputStream;
 import com.hierynomus.msdtyp.AccessMask;
-import com.hierynomus.msfscc.fileinformation.FileStandardInformation;
 import com.hierynomus.mssmb2.SMB2CreateDisposition;
+import com.hierynomus.mssmb2.SMB2CreateOptions;
 import com.hierynomus.mssmb2.SMB2ShareAccess;
 import com.hierynomus.protocol.commons.buffer.Buffer;
 import com.hierynomus.protocol.commons.buffer.Buffer.BufferException;
 import com.hierynomus.protocol.transport.TransportException;
 import com.hierynomus.smbj.share.File;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * This class represents a SMB file.
@@ -32,19 +39,38 @@ public final class SmbFile extends SmbItem {
         super(smbConnection, pathName);
     }
 
+    /**
+     * Create a new SMB file based on the SMB connection, the path name and an already known attribute snapshot.
+     *
+     * @param smbConnection SMB connection
+     * @param pathName      Path name
+     * @param attributes    Attribute snapshot that is attached to the file
+     */
+    SmbFile(SmbConnection smbConnection, String pathName, SmbItemAttributes attributes) {
+        super(smbConnection, pathName, attributes);
+    }
+
     /**
      * Create a new file.
      */
     public void createFile() {
-        File file = getDiskShare().openFile(getPath(), EnumSet.of(AccessMask.GENERIC_ALL), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OVERWRITE_IF, null);
-        file.close();
+        try {
+            File file = getDiskShare().openFile(getPath(), EnumSet.of(AccessMask.GENERIC_ALL), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OVERWRITE_IF, null);
+            file.close();
+        } finally {
+            invalidateMetadata();
+        }
     }
 
     /**
      * Delete the current file.
      */
     public void deleteFile() {
-        getDiskShare().rm(getPath());
+        try {
+            getDiskShare().rm(getPath());
+        } finally {
+            invalidateMetadata();
+        }
     }
 
     /**
@@ -62,6 +88,8 @@ public final class SmbFile extends SmbItem {
             File destinationFile = getDiskShare().openFile(destinationSmbFile.getPath(), EnumSet.of(AccessMask.GENERIC_ALL), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OVERWRITE_IF, null);
         ) {
             sourceFile.remoteCopyTo(destinationFile);
+        } finally {
+            destinationSmbFile.invalidateMetadata();
         }
     }
 
@@ -75,6 +103,29 @@ public final class SmbFile extends SmbItem {
         return new SmbInputStream(file);
     }
 
+    /**
+     * Get an input stream of the file that reads ahead with several concurrent requests. Each request reads a chunk of the maximum read size
+     * that was negotiated with the server, limited to the configured read buffer size, so sequential downloads over high latency links are not
+     * stalled by every round trip.
+     *
+     * @param readAheadDepth Maximum number of outstanding read requests
+     * @return Input stream of the SMB file
+     * @throws IllegalArgumentException Exception in case the read-ahead depth is smaller than 1
+     */
+    public InputStream getInputStream(int readAheadDepth) {
+        if (readAheadDepth < 1) {
+            throw new IllegalArgumentException("The read-ahead depth has to be at least 1");
+        }
+        int chunkSize = Math.min(getSmbConnection().getNegotiatedProtocol().getMaxReadSize(), getSmbConnection().getSmbConfig().getReadBufferSize());
+        File file = getDiskShare().openFile(getPath(), EnumSet.of(AccessMask.GENERIC_READ), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OPEN, null);
+        try {
+            return new SmbInputStream(file, chunkSize, readAheadDepth);
+        } catch (RuntimeException exception) {
+            file.closeSilently();
+            throw exception;
+        }
+    }
+
     /**
      * Get the output stream of the file that can be used to upload content to this file.
      *
@@ -93,19 +144,133 @@ public final class SmbFile extends SmbItem {
      */
 
     public OutputStream getOutputStream(boolean appendContent) {
+        invalidateMetadata();
         SMB2CreateDisposition mode = !appendContent ? SMB2CreateDisposition.FILE_OVERWRITE_IF : SMB2CreateDisposition.FILE_OPEN_IF;
         File file = getDiskShare().openFile(getPath(), EnumSet.of(AccessMask.GENERIC_ALL), null, SMB2ShareAccess.ALL, mode, null);
-        return new SmbOutputStream(file, appendContent);
+        try {
+            return new SmbOutputStream(file, appendContent, this::invalidateMetadata);
+        } catch (RuntimeException exception) {
+            file.closeSilently();
+            throw exception;
+        }
+    }
+
+    /**
+     * Get an output stream of the file that writes behind with several concurrent requests. The content is collected in chunks of the maximum
+     * write size that was negotiated with the server. Errors of the background writes are reported by the next write, flush or close and a
+     * flush waits until all outstanding writes were acknowledged.
+     *
+     * @param appendContent    Append content or overwrite it
+     * @param maxPendingWrites Maximum number of outstanding write requests
+     * @return Output stream of the SMB file
+     * @throws IllegalArgumentException Exception in case the number of outstanding write requests is smaller than 1
+     */
+    public OutputStream getOutputStream(boolean appendContent, int maxPendingWrites) {
+        if (maxPendingWrites < 1) {
+            throw new IllegalArgumentException("The number of outstanding writes has to be at least 1");
+        }
+        invalidateMetadata();
+        int chunkSize = getSmbConnection().getNegotiatedProtocol().getMaxWriteSize();
+        SMB2CreateDisposition mode = !appendContent ? SMB2CreateDisposition.FILE_OVERWRITE_IF : SMB2CreateDisposition.FILE_OPEN_IF;
+        File file = getDiskShare().openFile(getPath(), EnumSet.of(AccessMask.GENERIC_ALL), null, SMB2ShareAccess.ALL, mode, null);
+        try {
+            return new SmbOutputStream(file, appendContent, this::invalidateMetadata, chunkSize, maxPendingWrites);
+        } catch (RuntimeException exception) {
+            // Reading the end of file in append mode might fail after the file was opened
+            file.closeSilently();
+            throw exception;
+        }
+    }
+
+    /**
+     * Open a seekable byte channel of the file that reads and writes at explicit file offsets. The options are interpreted like the ones of
+     * {@link java.nio.file.Files#newByteChannel(java.nio.file.Path, Set, java.nio.file.attribute.FileAttribute[])}: Without options, the
+     * file is opened for reading. The options SPARSE and NOFOLLOW_LINKS are ignored and SYNC/DSYNC request a write through.
+     *
+     * @param openOptions Options that define how the file is opened
+     * @return Seekable byte channel of the SMB file
+     * @throws IllegalArgumentException      Exception in case the options are an invalid combination
+     * @throws UnsupportedOperationException Exception in case an option is not supported
+     */
+    public SmbFileChannel openChannel(Set<? extends OpenOption> openOptions) {
+        for (OpenOption openOption : openOptions) {
+            if (!(openOption instanceof StandardOpenOption) && openOption != LinkOption.NOFOLLOW_LINKS) {
+                throw new UnsupportedOperationException("The open option " + openOption + " is not supported");
+            }
+        }
+
+        // Determine the access, which is reading by default
+        boolean appendContent = openOptions.contains(StandardOpenOption.APPEND);
+        boolean writable = appendContent || openOptions.contains(StandardOpenOption.WRITE);
+        boolean readable = openOptions.contains(StandardOpenOption.READ) || !writable;
+        if (appendContent && (readable || openOptions.contains(StandardOpenOption.TRUNCATE_EXISTING))) {
+            throw new IllegalArgumentException("The option APPEND can't be combined with READ or TRUNCATE_EXISTING");
+        }
+
+        // Determine the disposition, the creation and truncation options are only considered when writing
+        SMB2CreateDisposition mode = SMB2CreateDisposition.FILE_OPEN;
+        if (writable) {
+            boolean truncateExisting = openOptions.contains(StandardOpenOption.TRUNCATE_EXISTING);
+            if (openOptions.contains(StandardOpenOption.CREATE_NEW)) {
+                mode = SMB2CreateDisposition.FILE_CREATE;
+            } else if (openOptions.contains(StandardOpenOption.CREATE)) {
+                mode = truncateExisting ? SMB2CreateDisposition.FILE_OVERWRITE_IF : SMB2CreateDisposition.FILE_OPEN_IF;
+            } else if (truncateExisting) {
+                mode = SMB2CreateDisposition.FILE_OVERWRITE;
+            }
+        }
+        boolean deleteOnClose = openOptions.contains(StandardOpenOption.DELETE_ON_CLOSE);
+        EnumSet<SMB2CreateOptions> createOptions = EnumSet.of(SMB2CreateOptions.FILE_NON_DIRECTORY_FILE, SMB2CreateOptions.FILE_RANDOM_ACCESS);
+        if (deleteOnClose) {
+            createOptions.add(SMB2CreateOptions.FILE_DELETE_ON_CLOSE);
+        }
+        if (writable && (openOptions.contains(StandardOpenOption.SYNC) || openOptions.contains(StandardOpenOption.DSYNC))) {
+            createOptions.add(SMB2CreateOptions.FILE_WRITE_THROUGH);
+        }
+
+        if (writable || deleteOnClose) {
+            invalidateMetadata();
+        }
+        EnumSet<AccessMask> accessMask = writable || deleteOnClose ? EnumSet.of(AccessMask.GENERIC_ALL) : EnumSet.of(AccessMask.GENERIC_READ);
+        File file = getDiskShare().openFile(getPath(), accessMask, null, SMB2ShareAccess.ALL, mode, createOptions);
+        return new SmbFileChannel(file, readable, writable, appendContent, this::invalidateMetadata);
+    }
+
+    /**
+     * Download the file into a local file with several concurrent requests. The file is split into ranges that are read at the same time and
+     * written directly at their offsets into the preallocated local file. With a connection pool in the options, each range is read via its
+     * own leased connection, otherwise all requests are multiplexed over the connection of this file.
+     *
+     * @param localPath       Path of the local file that is created or overwritten
+     * @param parallelOptions Options that define the number of concurrent ranges and the connection pool
+     * @return Final progress of the download with the aggregated throughput
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    public SmbTransferProgress downloadTo(Path localPath, SmbParallelOptions parallelOptions) throws IOException {
+        return downloadTo(localPath, parallelOptions, null);
+    }
+
+    /**
+     * Download the file into a local file with several concurrent requests and report the progress to a listener. If the download fails, the
+     * incomplete local file is deleted.
+     *
+     * @param localPath        Path of the local file that is created or overwritten
+     * @param parallelOptions  Options that define the number of concurrent ranges and the connection pool
+     * @param transferListener Listener that receives the progress or null
+     * @return Final progress of the download with the aggregated throughput
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    public SmbTransferProgress downloadTo(Path localPath, SmbParallelOptions parallelOptions, SmbTransferListener transferListener) throws IOException {
+        return new SmbParallelDownloader(getSmbConnection(), parallelOptions).downloadFile(getPath(), localPath, transferListener);
     }
 
     /**
-     * Get the file size of the SMB item.
+     * Get the file size of the SMB item. If an attribute snapshot is attached, its value is returned.
      *
      * @return File size of the SMB items in bytes
      */
     public long getFileSize() {
-        FileStandardInformation fileStandardInformation = getDiskShare().getFileInformation(getPath()).getStandardInformation();
-        return fileStandardInformation.getEndOfFile();
+        return getCurrentAttributes().getFileSize();
     }
 
     /**
@@ -115,6 +280,8 @@ public final class SmbFile extends SmbItem {
         try (File file = getDiskShare().openFile(getPath(), EnumSet.of(AccessMask.GENERIC_ALL), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OPEN, null)) {
             String newFilePath = buildProperItemPath(getParentPath().getPath(), newFileName);
             file.rename(newFilePath, replaceIfExist);
+            invalidateMetadata();
+            invalidateMetadata(getSmbConnection(), newFilePath);
             return new SmbFile(getSmbConnection(), newFilePath);
         }
     }
@@ -2,11 +2,14 @@ package ch.swaechter.smbjwrapper;
 
 import ch.swaechter.smbjwrapper.utils.SmbUtils;
 import com.hierynomus.msdtyp.FileTime;
-import com.hierynomus.msfscc.FileAttributes;
-import com.hierynomus.msfscc.fileinformation.FileBasicInformation;
+import com.hierynomus.mserref.NtStatus;
+import com.hierynomus.mssmb2.SMB2MessageCommandCode;
+import com.hierynomus.mssmb2.SMBApiException;
 import com.hierynomus.smbj.common.SmbPath;
 import com.hierynomus.smbj.share.DiskShare;
 
+import java.util.Optional;
+
 /**
  * This class provides a common abstracted class that represents a SMB directory/file like node.
  *
@@ -34,6 +37,11 @@ public abstract class SmbItem {
      */
     private final String pathName;
 
+    /**
+     * Attached attribute snapshot or null, if the attributes are queried from the server on each access.
+     */
+    private volatile SmbItemAttributes attributes;
+
     /**
      * Create a new abstract SMB item based on the SMB connection and the path name.
      *
@@ -42,12 +50,58 @@ public abstract class SmbItem {
      * @throws RuntimeException Exception in case of an invalid path name
      */
     public SmbItem(SmbConnection smbConnection, String pathName) {
+        this(smbConnection, pathName, null);
+    }
+
+    /**
+     * Create a new abstract SMB item based on the SMB connection, the path name and an already known attribute snapshot.
+     *
+     * @param smbConnection SMB connection
+     * @param pathName      Path name
+     * @param attributes    Attribute snapshot that is attached to the item or null
+     * @throws RuntimeException Exception in case of an invalid path name
+     */
+    SmbItem(SmbConnection smbConnection, String pathName, SmbItemAttributes attributes) {
         this.smbConnection = smbConnection;
         if (SmbUtils.isValidSmbItemName(pathName)) {
             this.pathName = pathName;
         } else {
             throw new RuntimeException("The given path name is not a valid SMB path");
         }
+        this.attributes = attributes;
+    }
+
+    /**
+     * Resolve the path to a SMB file or directory, depending on the type of the path on the server. The type and the attributes are queried with
+     * a single server round trip and the attribute snapshot is attached to the resolved item.
+     *
+     * @param smbConnection SMB connection
+     * @param pathName      Path name
+     * @return Resolved SMB file or directory or an empty optional if the path does not exist
+     */
+    public static Optional<SmbItem> resolve(SmbConnection smbConnection, String pathName) {
+        SmbItemAttributes attributes = queryAttributes(smbConnection, pathName);
+        if (attributes == null) {
+            return Optional.empty();
+        } else if (attributes.isDirectory()) {
+            return Optional.of(new SmbDirectory(smbConnection, pathName, attributes));
+        } else {
+            return Optional.of(new SmbFile(smbConnection, pathName, attributes));
+        }
+    }
+
+    /**
+     * Query the type of the SMB item path on the server with a single round trip.
+     *
+     * @return Type of the SMB item path
+     */
+    public SmbItemType stat() {
+        SmbItemAttributes queriedAttributes = queryAttributes(smbConnection, pathName);
+        if (queriedAttributes == null) {
+            return SmbItemType.NOT_FOUND;
+        } else {
+            return queriedAttributes.isDirectory() ? SmbItemType.DIRECTORY : SmbItemType.FILE;
+        }
     }
 
     /**
@@ -56,7 +110,7 @@ public abstract class SmbItem {
      * @return Status of the check
      */
     public boolean isExisting() {
-        return isDirectory() || isFile();
+        return stat() != SmbItemType.NOT_FOUND;
     }
 
     /**
@@ -65,7 +119,7 @@ public abstract class SmbItem {
      * @return Status of the check
      */
     public boolean isDirectory() {
-        return smbConnection.getDiskShare().folderExists(pathName);
+        return stat() == SmbItemType.DIRECTORY;
     }
 
     /**
@@ -74,19 +128,48 @@ public abstract class SmbItem {
      * @return Status of the check
      */
     public boolean isFile() {
-        return smbConnection.getDiskShare().fileExists(pathName);
+        return stat() == SmbItemType.FILE;
     }
 
     /**
      * Check if the SMB item is hidden on an SMB level. Depending on the server configuration, dotted
-     * UNIX files can also be interpreted as hidden files ("hide dot files = yes").
+     * UNIX files can also be interpreted as hidden files ("hide dot files = yes"). If an attribute snapshot is attached, its value is returned.
      *
      * @return Status of the check (Depending on the server configuration)
      * @see <a href="https://www.samba.org/samba/docs/current/man-html/smb.conf.5.html">Hide dot files option</a>
      */
     public boolean isHidden() {
-        long attributeMask = getDiskShare().getFileInformation(pathName).getBasicInformation().getFileAttributes();
-        return FileAttributes.EnumUtils.isSet(attributeMask, FileAttributes.FILE_ATTRIBUTE_HIDDEN);
+        return getCurrentAttributes().isHidden();
+    }
+
+    /**
+     * Read all attributes of the SMB item with a single server round trip and attach the snapshot to the item. Afterwards, all attribute
+     * getters like {@link #getLastWriteTime()} are answered from the attached snapshot instead of querying the server again. The metadata cache
+     * of the connection is bypassed, but updated with the read snapshot.
+     *
+     * @return Freshly read attribute snapshot
+     */
+    public SmbItemAttributes readAttributes() {
+        SmbItemAttributes readAttributes = fetchAttributes(smbConnection, pathName);
+        this.attributes = readAttributes;
+        return readAttributes;
+    }
+
+    /**
+     * Get the attached attribute snapshot. If there is no attached snapshot yet, it's read from the server and attached.
+     *
+     * @return Attached attribute snapshot
+     */
+    public SmbItemAttributes getAttributes() {
+        SmbItemAttributes attachedAttributes = attributes;
+        return attachedAttributes != null ? attachedAttributes : readAttributes();
+    }
+
+    /**
+     * Discard the attached attribute snapshot, so all attribute getters query the server again.
+     */
+    public void discardAttributes() {
+        this.attributes = null;
     }
 
     /**
@@ -174,43 +257,39 @@ public abstract class SmbItem {
     }
 
     /**
-     * Get the creation time of the SMB item.
+     * Get the creation time of the SMB item. If an attribute snapshot is attached, its value is returned.
      *
      * @return Creation time of the SMB item
      */
     public FileTime getCreationTime() {
-        FileBasicInformation fileBasicInformation = getDiskShare().getFileInformation(pathName).getBasicInformation();
-        return fileBasicInformation.getCreationTime();
+        return getCurrentAttributes().getCreationTime();
     }
 
     /**
-     * Get the last access time of the SMB item.
+     * Get the last access time of the SMB item. If an attribute snapshot is attached, its value is returned.
      *
      * @return Last access time of the SMB item
      */
     public FileTime getLastAccessTime() {
-        FileBasicInformation fileBasicInformation = getDiskShare().getFileInformation(pathName).getBasicInformation();
-        return fileBasicInformation.getLastAccessTime();
+        return getCurrentAttributes().getLastAccessTime();
     }
 
     /**
-     * Get the last write time of the SMB item.
+     * Get the last write time of the SMB item. If an attribute snapshot is attached, its value is returned.
      *
      * @return Last write time of the SMB item
      */
     public FileTime getLastWriteTime() {
-        FileBasicInformation fileBasicInformation = getDiskShare().getFileInformation(pathName).getBasicInformation();
-        return fileBasicInformation.getLastWriteTime();
+        return getCurrentAttributes().getLastWriteTime();
     }
 
     /**
-     * Get the change time of the SMB item.
+     * Get the change time of the SMB item. If an attribute snapshot is attached, its value is returned.
      *
      * @return Change time of the SMB item
      */
     public FileTime getChangeTime() {
-        FileBasicInformation fileBasicInformation = getDiskShare().getFileInformation(pathName).getBasicInformation();
-        return fileBasicInformation.getChangeTime();
+        return getCurrentAttributes().getChangeTime();
     }
 
     /**
@@ -263,6 +342,139 @@ public abstract class SmbItem {
         return smbConnection;
     }
 
+    /**
+     * Query the attributes of a path from the server.
+     *
+     * @param smbConnection SMB connection
+     * @param pathName      Path name
+     * @return Queried attributes or null if the path does not exist
+     */
+    static SmbItemAttributes queryAttributes(SmbConnection smbConnection, String pathName) {
+        // Answer the query from the metadata cache, including negative entries
+        SmbMetadataCache metadataCache = smbConnection.getMetadataCache();
+        if (metadataCache != null) {
+            SmbMetadataCache.CacheEntry cacheEntry = metadataCache.get(pathName);
+            if (cacheEntry != null) {
+                return cacheEntry.getAttributes();
+            }
+        }
+
+        // Query the server and remember the result
+        try {
+            return fetchAttributes(smbConnection, pathName);
+        } catch (SMBApiException exception) {
+            if (SmbUtils.isNotFound(exception)) {
+                if (metadataCache != null) {
+                    metadataCache.put(pathName, null);
+                }
+                return null;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Query the attributes of a path from the server without consulting the metadata cache. The result is put into the cache, if there is one.
+     *
+     * @param smbConnection SMB connection
+     * @param pathName      Path name
+     * @return Queried attributes
+     * @throws SMBApiException Exception in case the path does not exist or can't be queried
+     */
+    private static SmbItemAttributes fetchAttributes(SmbConnection smbConnection, String pathName) {
+        SmbItemAttributes fetchedAttributes = SmbItemAttributes.fromFileAllInformation(smbConnection.getDiskShare().getFileInformation(pathName));
+        SmbMetadataCache metadataCache = smbConnection.getMetadataCache();
+        if (metadataCache != null) {
+            metadataCache.put(pathName, fetchedAttributes);
+        }
+        return fetchedAttributes;
+    }
+
+    /**
+     * Invalidate the metadata of a single path in the metadata cache of the connection. The parent path is invalidated too, because its write
+     * and change times are affected by the modification.
+     *
+     * @param smbConnection SMB connection
+     * @param pathName      Path name
+     */
+    static void invalidateMetadata(SmbConnection smbConnection, String pathName) {
+        SmbMetadataCache metadataCache = smbConnection.getMetadataCache();
+        if (metadataCache != null) {
+            metadataCache.invalidate(pathName);
+            metadataCache.invalidate(getParentPathName(pathName));
+        }
+    }
+
+    /**
+     * Invalidate the metadata of a path, of all paths below it and of its parent path in the metadata cache of the connection. This sweeps the
+     * whole cache and is only required if a directory is deleted or renamed.
+     *
+     * @param smbConnection SMB connection
+     * @param pathName      Path name
+     */
+    static void invalidateMetadataTree(SmbConnection smbConnection, String pathName) {
+        SmbMetadataCache metadataCache = smbConnection.getMetadataCache();
+        if (metadataCache != null) {
+            metadataCache.invalidateTree(pathName);
+            metadataCache.invalidate(getParentPathName(pathName));
+        }
+    }
+
+    /**
+     * Discard the attached attribute snapshot and invalidate the cached metadata of the SMB item before or after it's modified.
+     */
+    protected void invalidateMetadata() {
+        discardAttributes();
+        invalidateMetadata(smbConnection, pathName);
+    }
+
+    /**
+     * Discard the attached attribute snapshot and invalidate the cached metadata of the SMB item and all items below it before or after it's
+     * deleted or renamed.
+     */
+    protected void invalidateMetadataTree() {
+        discardAttributes();
+        invalidateMetadataTree(smbConnection, pathName);
+    }
+
+    /**
+     * Get the parent path name of a path.
+     *
+     * @param pathName Path name
+     * @return Parent path name or the root path
+     */
+    private static String getParentPathName(String pathName) {
+        int lastIndex = pathName.lastIndexOf(PATH_SEPARATOR);
+        return lastIndex != -1 ? pathName.substring(0, lastIndex) : ROOT_PATH;
+    }
+
+    /**
+     * Get the current attributes of the SMB item. If a snapshot is attached, it's used, otherwise the attributes are taken from the metadata
+     * cache or queried from the server without attaching them.
+     *
+     * @return Current attributes
+     * @throws SMBApiException Exception in case the path does not exist, also if this is answered by a negative entry of the metadata cache
+     */
+    protected SmbItemAttributes getCurrentAttributes() {
+        SmbItemAttributes attachedAttributes = attributes;
+        if (attachedAttributes != null) {
+            return attachedAttributes;
+        }
+
+        // Answer the lookup from the metadata cache, a negative entry is reported like a failed query without a server round trip
+        SmbMetadataCache metadataCache = smbConnection.getMetadataCache();
+        if (metadataCache != null) {
+            SmbMetadataCache.CacheEntry cacheEntry = metadataCache.get(pathName);
+            if (cacheEntry != null) {
+                if (cacheEntry.getAttributes() == null) {
+                    throw new SMBApiException(NtStatus.STATUS_OBJECT_NAME_NOT_FOUND.getValue(), SMB2MessageCommandCode.SMB2_QUERY_INFO, "The path " + pathName + " does not exist", null);
+                }
+                return cacheEntry.getAttributes();
+            }
+        }
+        return fetchAttributes(smbConnection, pathName);
+    }
+
     /**
      * Get the disk share of the SMB connection.
      *
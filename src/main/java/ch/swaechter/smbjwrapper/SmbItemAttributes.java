@@ -0,0 +1,220 @@
+package ch.swaechter.smbjwrapper;
+
+import com.hierynomus.msdtyp.FileTime;
+import com.hierynomus.msfscc.FileAttributes;
+import com.hierynomus.msfscc.fileinformation.FileAllInformation;
+import com.hierynomus.msfscc.fileinformation.FileBasicInformation;
+import com.hierynomus.msfscc.fileinformation.FileIdBothDirectoryInformation;
+import com.hierynomus.msfscc.fileinformation.FileStandardInformation;
+
+/**
+ * This class represents an immutable snapshot of the attributes of a SMB item. All values of a snapshot are queried from the server at the
+ * same time, so reading several attributes only requires a single round trip.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbItemAttributes {
+
+    /**
+     * Creation time of the SMB item.
+     */
+    private final FileTime creationTime;
+
+    /**
+     * Last access time of the SMB item.
+     */
+    private final FileTime lastAccessTime;
+
+    /**
+     * Last write time of the SMB item.
+     */
+    private final FileTime lastWriteTime;
+
+    /**
+     * Change time of the SMB item.
+     */
+    private final FileTime changeTime;
+
+    /**
+     * Attribute mask of the SMB item.
+     */
+    private final long fileAttributes;
+
+    /**
+     * File size of the SMB item in bytes.
+     */
+    private final long fileSize;
+
+    /**
+     * Allocation size of the SMB item in bytes.
+     */
+    private final long allocationSize;
+
+    /**
+     * Flag whether the SMB item is a directory.
+     */
+    private final boolean directory;
+
+    /**
+     * Server side file ID of the SMB item.
+     */
+    private final long fileId;
+
+    /**
+     * Create a new attribute snapshot.
+     *
+     * @param creationTime   Creation time of the SMB item
+     * @param lastAccessTime Last access time of the SMB item
+     * @param lastWriteTime  Last write time of the SMB item
+     * @param changeTime     Change time of the SMB item
+     * @param fileAttributes Attribute mask of the SMB item
+     * @param fileSize       File size of the SMB item in bytes
+     * @param allocationSize Allocation size of the SMB item in bytes
+     * @param directory      Flag whether the SMB item is a directory
+     * @param fileId         Server side file ID of the SMB item
+     */
+    public SmbItemAttributes(FileTime creationTime, FileTime lastAccessTime, FileTime lastWriteTime, FileTime changeTime, long fileAttributes, long fileSize, long allocationSize, boolean directory, long fileId) {
+        this.creationTime = creationTime;
+        this.lastAccessTime = lastAccessTime;
+        this.lastWriteTime = lastWriteTime;
+        this.changeTime = changeTime;
+        this.fileAttributes = fileAttributes;
+        this.fileSize = fileSize;
+        this.allocationSize = allocationSize;
+        this.directory = directory;
+        this.fileId = fileId;
+    }
+
+    /**
+     * Create a new attribute snapshot based on the queried file information.
+     *
+     * @param fileAllInformation Queried file information
+     * @return Attribute snapshot
+     */
+    static SmbItemAttributes fromFileAllInformation(FileAllInformation fileAllInformation) {
+        FileBasicInformation fileBasicInformation = fileAllInformation.getBasicInformation();
+        FileStandardInformation fileStandardInformation = fileAllInformation.getStandardInformation();
+        return new SmbItemAttributes(
+            fileBasicInformation.getCreationTime(),
+            fileBasicInformation.getLastAccessTime(),
+            fileBasicInformation.getLastWriteTime(),
+            fileBasicInformation.getChangeTime(),
+            fileBasicInformation.getFileAttributes(),
+            fileStandardInformation.getEndOfFile(),
+            fileStandardInformation.getAllocationSize(),
+            fileStandardInformation.isDirectory(),
+            fileAllInformation.getInternalInformation().getIndexNumber()
+        );
+    }
+
+    /**
+     * Create a new attribute snapshot based on the information of a directory enumeration entry.
+     *
+     * @param fileIdBothDirectoryInformation Directory enumeration entry
+     * @return Attribute snapshot
+     */
+    static SmbItemAttributes fromDirectoryInformation(FileIdBothDirectoryInformation fileIdBothDirectoryInformation) {
+        long fileAttributes = fileIdBothDirectoryInformation.getFileAttributes();
+        return new SmbItemAttributes(
+            fileIdBothDirectoryInformation.getCreationTime(),
+            fileIdBothDirectoryInformation.getLastAccessTime(),
+            fileIdBothDirectoryInformation.getLastWriteTime(),
+            fileIdBothDirectoryInformation.getChangeTime(),
+            fileAttributes,
+            fileIdBothDirectoryInformation.getEndOfFile(),
+            fileIdBothDirectoryInformation.getAllocationSize(),
+            FileAttributes.EnumUtils.isSet(fileAttributes, FileAttributes.FILE_ATTRIBUTE_DIRECTORY),
+            fileIdBothDirectoryInformation.getFileId()
+        );
+    }
+
+    /**
+     * Get the creation time of the SMB item.
+     *
+     * @return Creation time of the SMB item
+     */
+    public FileTime getCreationTime() {
+        return creationTime;
+    }
+
+    /**
+     * Get the last access time of the SMB item.
+     *
+     * @return Last access time of the SMB item
+     */
+    public FileTime getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * Get the last write time of the SMB item.
+     *
+     * @return Last write time of the SMB item
+     */
+    public FileTime getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    /**
+     * Get the change time of the SMB item.
+     *
+     * @return Change time of the SMB item
+     */
+    public FileTime getChangeTime() {
+        return changeTime;
+    }
+
+    /**
+     * Get the attribute mask of the SMB item. Use {@link FileAttributes.EnumUtils#isSet(long, Enum)} to check single attributes.
+     *
+     * @return Attribute mask of the SMB item
+     */
+    public long getFileAttributes() {
+        return fileAttributes;
+    }
+
+    /**
+     * Get the file size of the SMB item. For directories, the value depends on the server.
+     *
+     * @return File size of the SMB item in bytes
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Get the allocation size of the SMB item.
+     *
+     * @return Allocation size of the SMB item in bytes
+     */
+    public long getAllocationSize() {
+        return allocationSize;
+    }
+
+    /**
+     * Check if the SMB item is a directory.
+     *
+     * @return Status of the check
+     */
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    /**
+     * Check if the SMB item is hidden on an SMB level.
+     *
+     * @return Status of the check
+     */
+    public boolean isHidden() {
+        return FileAttributes.EnumUtils.isSet(fileAttributes, FileAttributes.FILE_ATTRIBUTE_HIDDEN);
+    }
+
+    /**
+     * Get the server side file ID of the SMB item. Depending on the server, the ID is stable across renames.
+     *
+     * @return Server side file ID of the SMB item
+     */
+    public long getFileId() {
+        return fileId;
+    }
+}
@@ -0,0 +1,234 @@
+package ch.swaechter.smbjwrapper;
+
+import ch.swaechter.smbjwrapper.utils.SmbUtils;
+import com.hierynomus.msdtyp.AccessMask;
+import com.hierynomus.mserref.NtStatus;
+import com.hierynomus.msfscc.fileinformation.FileIdBothDirectoryInformation;
+import com.hierynomus.mssmb2.SMB2CreateDisposition;
+import com.hierynomus.mssmb2.SMB2ShareAccess;
+import com.hierynomus.mssmb2.SMBApiException;
+import com.hierynomus.smbj.share.Directory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * This class represents a lazy iterator over the files and directories of a SMB directory. The directory entries are fetched page by page
+ * while iterating and a recursive iteration descends depth first, so only one open directory with its current page is held per tree level.
+ * The items are returned in the enumeration order of the server and carry an attached attribute snapshot.
+ * <p>
+ * Note: The iterator has to be closed in case it's not iterated until the end, otherwise the open directories are not released.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbItemIterator implements Iterator<SmbItem>, AutoCloseable {
+
+    /**
+     * SMB connection to access the server.
+     */
+    private final SmbConnection smbConnection;
+
+    /**
+     * Server side search pattern each directory enumeration is filtered with or null.
+     */
+    private final String searchPattern;
+
+    /**
+     * Search predicate each item is checked against.
+     */
+    private final Predicate<SmbItem> searchPredicate;
+
+    /**
+     * Flag to iterate recursive.
+     */
+    private final boolean searchRecursive;
+
+    /**
+     * Open directories of the current path, the deepest directory is on top.
+     */
+    private final Deque<DirectoryLevel> directoryLevels = new ArrayDeque<>();
+
+    /**
+     * Directory that is entered before the next entry is fetched or null.
+     */
+    private SmbDirectory pendingDirectory;
+
+    /**
+     * Next matching item or null, if it was not fetched yet.
+     */
+    private SmbItem nextItem;
+
+    /**
+     * Create a new lazy iterator over a SMB directory. A server side search pattern is applied to each enumerated directory and would also hide
+     * all subdirectories that don't match it, so it's only used for flat iterations. A recursive wildcard listing passes no search pattern and
+     * matches the item names on the client side via the search predicate instead.
+     *
+     * @param smbDirectory    SMB directory to iterate
+     * @param searchPattern   Server side wildcard search pattern or null to enumerate all entries, should be null for a recursive iteration
+     * @param searchPredicate Search predicate each item is checked against
+     * @param searchRecursive Flag to iterate recursive
+     */
+    SmbItemIterator(SmbDirectory smbDirectory, String searchPattern, Predicate<SmbItem> searchPredicate, boolean searchRecursive) {
+        this.smbConnection = smbDirectory.getSmbConnection();
+        this.searchPattern = searchPattern;
+        this.searchPredicate = searchPredicate;
+        this.searchRecursive = searchRecursive;
+        this.pendingDirectory = smbDirectory;
+    }
+
+    /**
+     * Check if there is another matching item. The directory pages are fetched on demand.
+     *
+     * @return Status of the check
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextItem == null) {
+            nextItem = fetchNextItem();
+        }
+        return nextItem != null;
+    }
+
+    /**
+     * Get the next matching item.
+     *
+     * @return Next matching item
+     * @throws NoSuchElementException Exception in case there are no more items
+     */
+    @Override
+    public SmbItem next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("There are no more SMB items");
+        }
+        SmbItem smbItem = nextItem;
+        nextItem = null;
+        return smbItem;
+    }
+
+    /**
+     * Close all open directories. Closing the iterator multiple times has no effect.
+     */
+    @Override
+    public void close() {
+        pendingDirectory = null;
+        nextItem = null;
+        while (!directoryLevels.isEmpty()) {
+            directoryLevels.pop().directory.closeSilently();
+        }
+    }
+
+    /**
+     * Fetch the next matching item by walking the open directories depth first.
+     *
+     * @return Next matching item or null, if the iteration is finished
+     */
+    private SmbItem fetchNextItem() {
+        while (true) {
+            // Enter the directory of the previous item, so its entries are returned before the ones of its siblings
+            if (pendingDirectory != null) {
+                String smbDirectoryPath = pendingDirectory.getPath();
+                pendingDirectory = null;
+                openDirectoryLevel(smbDirectoryPath);
+            }
+
+            // Leave finished directories until there are entries left
+            DirectoryLevel directoryLevel = directoryLevels.peek();
+            if (directoryLevel == null) {
+                return null;
+            }
+            if (!hasNextEntry(directoryLevel)) {
+                directoryLevels.pop().directory.close();
+                continue;
+            }
+
+            // Build and check the item
+            FileIdBothDirectoryInformation fileIdBothDirectoryInformation = directoryLevel.entries.next();
+            if (SmbUtils.isValidSmbItemName(fileIdBothDirectoryInformation.getFileName())) {
+                SmbItem smbItem = SmbDirectory.createListedItem(smbConnection, directoryLevel.path, fileIdBothDirectoryInformation);
+                if (searchRecursive && smbItem instanceof SmbDirectory) {
+                    pendingDirectory = (SmbDirectory) smbItem;
+                }
+                if (searchPredicate.test(smbItem)) {
+                    return smbItem;
+                }
+            }
+        }
+    }
+
+    /**
+     * Open a directory and push it as deepest level.
+     *
+     * @param smbDirectoryPath Path of the directory
+     */
+    private void openDirectoryLevel(String smbDirectoryPath) {
+        EnumSet<AccessMask> accessMasks = EnumSet.of(AccessMask.FILE_LIST_DIRECTORY, AccessMask.FILE_READ_ATTRIBUTES);
+        Directory directory = smbConnection.getDiskShare().openDirectory(smbDirectoryPath, accessMasks, null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OPEN, null);
+        try {
+            directoryLevels.push(new DirectoryLevel(smbDirectoryPath, directory, directory.iterator(FileIdBothDirectoryInformation.class, searchPattern)));
+        } catch (SMBApiException exception) {
+            // A search pattern without any matches is reported as missing file by some servers
+            directory.closeSilently();
+            if (exception.getStatus() != NtStatus.STATUS_NO_SUCH_FILE) {
+                throw exception;
+            }
+        } catch (RuntimeException exception) {
+            directory.closeSilently();
+            throw exception;
+        }
+    }
+
+    /**
+     * Check if the directory level has another entry. The next page is fetched on demand.
+     *
+     * @param directoryLevel Directory level to check
+     * @return Status of the check
+     */
+    private boolean hasNextEntry(DirectoryLevel directoryLevel) {
+        try {
+            return directoryLevel.entries.hasNext();
+        } catch (SMBApiException exception) {
+            if (exception.getStatus() == NtStatus.STATUS_NO_SUCH_FILE) {
+                return false;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * This class represents an open directory with the lazy iterator over its entries.
+     */
+    private static final class DirectoryLevel {
+
+        /**
+         * Path of the directory.
+         */
+        private final String path;
+
+        /**
+         * Open directory.
+         */
+        private final Directory directory;
+
+        /**
+         * Lazy iterator over the entries that fetches one page at a time.
+         */
+        private final Iterator<FileIdBothDirectoryInformation> entries;
+
+        /**
+         * Create a new directory level.
+         *
+         * @param path      Path of the directory
+         * @param directory Open directory
+         * @param entries   Lazy iterator over the entries
+         */
+        private DirectoryLevel(String path, Directory directory, Iterator<FileIdBothDirectoryInformation> entries) {
+            this.path = path;
+            this.directory = directory;
+            this.entries = entries;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ch.swaechter.smbjwrapper;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class represents a bounded page of a paged directory listing together with the cursor to continue after it.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbItemPage {
+
+    /**
+     * Items of the page in enumeration order.
+     */
+    private final List<SmbItem> items;
+
+    /**
+     * Opaque cursor to continue after the page.
+     */
+    private final String cursor;
+
+    /**
+     * Flag whether the page is the last one.
+     */
+    private final boolean lastPage;
+
+    /**
+     * Create a new page.
+     *
+     * @param items    Items of the page in enumeration order
+     * @param cursor   Opaque cursor to continue after the page
+     * @param lastPage Flag whether the page is the last one
+     */
+    SmbItemPage(List<SmbItem> items, String cursor, boolean lastPage) {
+        this.items = Collections.unmodifiableList(items);
+        this.cursor = cursor;
+        this.lastPage = lastPage;
+    }
+
+    /**
+     * Get the items of the page.
+     *
+     * @return Unmodifiable list with the items in enumeration order
+     */
+    public List<SmbItem> getItems() {
+        return items;
+    }
+
+    /**
+     * Get the opaque cursor to continue after the page. The cursor can be persisted and passed to {@link SmbDirectory#openPager(String, int)}
+     * later on, even via another connection.
+     *
+     * @return Opaque cursor
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Check if the page is the last one of the listing.
+     *
+     * @return Status of the check
+     */
+    public boolean isLastPage() {
+        return lastPage;
+    }
+}
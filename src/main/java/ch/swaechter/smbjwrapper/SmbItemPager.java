@@ -0,0 +1,204 @@
+package ch.swaechter.smbjwrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents a paged listing of a single directory. The pager keeps one directory handle open and fetches the entries on demand, so
+ * only the current page is held in memory. Each page carries an opaque cursor with the position and the name of its last item. A listing that
+ * is resumed from a cursor enumerates the directory again until the last item is found, because SMB2 can't seek an enumeration on a new handle.
+ * If the last item was deleted in the meantime, the listing continues after the same number of items instead.
+ * <p>
+ * Note: The pager has to be closed in case it's not iterated until the end, otherwise the directory handle is not released.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbItemPager implements AutoCloseable {
+
+    /**
+     * Version of the cursor format.
+     */
+    private static final int CURSOR_VERSION = 1;
+
+    /**
+     * SMB directory that is listed.
+     */
+    private final SmbDirectory smbDirectory;
+
+    /**
+     * Maximum number of items per page.
+     */
+    private final int pageSize;
+
+    /**
+     * Lazy iterator over the entries or null, if it was not opened yet.
+     */
+    private SmbItemIterator smbItemIterator;
+
+    /**
+     * Number of items that were returned so far, including the ones before the resumed cursor.
+     */
+    private long position;
+
+    /**
+     * Name of the last returned item or null.
+     */
+    private String lastItemName;
+
+    /**
+     * Flag whether the iterator still has to be moved to the position of the resumed cursor.
+     */
+    private boolean resumePending;
+
+    /**
+     * Flag whether the last page was returned.
+     */
+    private boolean finished;
+
+    /**
+     * Create a new pager that starts at the beginning or at a cursor.
+     *
+     * @param smbDirectory SMB directory that is listed
+     * @param cursor       Opaque cursor of a previous page or null to start at the beginning
+     * @param pageSize     Maximum number of items per page
+     * @throws IllegalArgumentException Exception in case the page size is invalid or the cursor belongs to another directory
+     */
+    SmbItemPager(SmbDirectory smbDirectory, String cursor, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("The page size has to be at least 1");
+        }
+        this.smbDirectory = smbDirectory;
+        this.pageSize = pageSize;
+        if (cursor != null) {
+            decodeCursor(cursor);
+            this.resumePending = position > 0;
+        }
+    }
+
+    /**
+     * Check if there might be another page. A listing that ends exactly at a page boundary is detected when the next page is fetched.
+     *
+     * @return Status of the check
+     */
+    public boolean hasNextPage() {
+        return !finished;
+    }
+
+    /**
+     * Fetch the next page. The cursor of the pager only advances after the page was fetched completely, so a failed page can be fetched again
+     * with the cursor of the previous one.
+     *
+     * @return Next page with at most page size items
+     * @throws NoSuchElementException Exception in case the last page was already returned
+     */
+    public SmbItemPage nextPage() {
+        if (finished) {
+            throw new NoSuchElementException("The last page was already returned");
+        }
+        if (smbItemIterator == null) {
+            smbItemIterator = new SmbItemIterator(smbDirectory, null, smbItem -> true, false);
+        }
+        if (resumePending) {
+            resume();
+            resumePending = false;
+        }
+
+        // Fetch the page and only advance the cursor once it's complete
+        List<SmbItem> smbItems = new ArrayList<>(pageSize);
+        while (smbItems.size() < pageSize && smbItemIterator.hasNext()) {
+            smbItems.add(smbItemIterator.next());
+        }
+        position += smbItems.size();
+        if (!smbItems.isEmpty()) {
+            lastItemName = smbItems.get(smbItems.size() - 1).getName();
+        }
+        finished = !smbItemIterator.hasNext();
+        if (finished) {
+            close();
+        }
+        return new SmbItemPage(smbItems, getCursor(), finished);
+    }
+
+    /**
+     * Get the opaque cursor after the last returned page.
+     *
+     * @return Opaque cursor
+     */
+    public String getCursor() {
+        try {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+            dataOutputStream.writeByte(CURSOR_VERSION);
+            dataOutputStream.writeUTF(smbDirectory.getPath());
+            dataOutputStream.writeLong(position);
+            dataOutputStream.writeBoolean(lastItemName != null);
+            if (lastItemName != null) {
+                dataOutputStream.writeUTF(lastItemName);
+            }
+            dataOutputStream.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(byteArrayOutputStream.toByteArray());
+        } catch (IOException exception) {
+            throw new RuntimeException("Unable to encode the cursor: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Close the directory handle. Closing the pager multiple times has no effect.
+     */
+    @Override
+    public void close() {
+        if (smbItemIterator != null) {
+            smbItemIterator.close();
+        }
+    }
+
+    /**
+     * Move the iterator behind the last item of the resumed cursor. The directory is searched for the last item first, if it can't be found,
+     * the same number of items is skipped instead.
+     */
+    private void resume() {
+        long skippedItems = 0;
+        while (smbItemIterator.hasNext()) {
+            skippedItems++;
+            if (smbItemIterator.next().getName().equals(lastItemName)) {
+                return;
+            }
+        }
+
+        // The last item was deleted, so skip the same number of items on a new handle
+        smbItemIterator.close();
+        smbItemIterator = new SmbItemIterator(smbDirectory, null, smbItem -> true, false);
+        for (skippedItems = 0; skippedItems < position && smbItemIterator.hasNext(); skippedItems++) {
+            smbItemIterator.next();
+        }
+    }
+
+    /**
+     * Decode a cursor and restore the position.
+     *
+     * @param cursor Opaque cursor
+     * @throws IllegalArgumentException Exception in case the cursor is invalid or belongs to another directory
+     */
+    private void decodeCursor(String cursor) {
+        try {
+            DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+            if (dataInputStream.readByte() != CURSOR_VERSION) {
+                throw new IllegalArgumentException("The cursor has an unsupported version");
+            }
+            if (!dataInputStream.readUTF().equals(smbDirectory.getPath())) {
+                throw new IllegalArgumentException("The cursor belongs to another directory");
+            }
+            position = dataInputStream.readLong();
+            lastItemName = dataInputStream.readBoolean() ? dataInputStream.readUTF() : null;
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("The cursor is invalid: " + exception.getMessage(), exception);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ch.swaechter.smbjwrapper;
+
+/**
+ * This enum represents the type of a SMB item path on the server.
+ *
+ * @author Simon Wächter
+ */
+public enum SmbItemType {
+
+    /**
+     * The path does not exist.
+     */
+    NOT_FOUND,
+
+    /**
+     * The path exists as file.
+     */
+    FILE,
+
+    /**
+     * The path exists as directory.
+     */
+    DIRECTORY
+}
@@ -0,0 +1,54 @@
+package ch.swaechter.smbjwrapper;
+
+import com.hierynomus.mssmb2.SMBApiException;
+
+/**
+ * This interface represents a visitor of a SMB tree walk, modeled after {@link java.nio.file.FileVisitor}. All methods continue the walk by
+ * default, so only the required methods have to be implemented.
+ *
+ * @author Simon Wächter
+ */
+public interface SmbItemVisitor {
+
+    /**
+     * Visit a directory before its entries are enumerated. Returning {@link SmbVisitResult#SKIP_SUBTREE} prevents the enumeration.
+     *
+     * @param smbDirectory Visited directory with an attached attribute snapshot (Except for the start directory)
+     * @return Result that controls the walk
+     */
+    default SmbVisitResult preVisitDirectory(SmbDirectory smbDirectory) {
+        return SmbVisitResult.CONTINUE;
+    }
+
+    /**
+     * Visit a file.
+     *
+     * @param smbFile Visited file with an attached attribute snapshot
+     * @return Result that controls the walk
+     */
+    default SmbVisitResult visitFile(SmbFile smbFile) {
+        return SmbVisitResult.CONTINUE;
+    }
+
+    /**
+     * Visit a directory after all its entries were visited or the enumeration was stopped by {@link SmbVisitResult#SKIP_SIBLINGS}.
+     *
+     * @param smbDirectory Visited directory
+     * @return Result that controls the walk
+     */
+    default SmbVisitResult postVisitDirectory(SmbDirectory smbDirectory) {
+        return SmbVisitResult.CONTINUE;
+    }
+
+    /**
+     * Handle a directory that could not be enumerated, for example because of missing permissions. The directory is not post-visited.
+     *
+     * @param smbDirectory Directory that could not be enumerated
+     * @param exception    Exception of the enumeration
+     * @return Result that controls the walk
+     * @throws SMBApiException Exception that is rethrown by default
+     */
+    default SmbVisitResult visitDirectoryFailed(SmbDirectory smbDirectory, SMBApiException exception) {
+        throw exception;
+    }
+}
@@ -0,0 +1,346 @@
+package ch.swaechter.smbjwrapper;
+
+import com.hierynomus.msdtyp.FileTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents a compact columnar listing of files and directories. Instead of one object graph per item, all names share a single
+ * character buffer, each parent directory path is stored once and the attributes are kept in primitive arrays. The SMB items are only built
+ * on access, so huge listings require several times less memory than a list of SMB items.
+ * <p>
+ * Note: The listing is not modified anymore once it was returned.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbListing implements Iterable<SmbItem> {
+
+    /**
+     * Initial capacity of the columns.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * SMB connection the built items are bound to.
+     */
+    private final SmbConnection smbConnection;
+
+    /**
+     * Paths of all parent directories, each one stored once.
+     */
+    private final List<String> parentPaths = new ArrayList<>();
+
+    /**
+     * Indexes of the parent directory paths during the listing.
+     */
+    private Map<String, Integer> parentPathIndexes = new HashMap<>();
+
+    /**
+     * Shared buffer with the characters of all names.
+     */
+    private char[] nameCharacters = new char[INITIAL_CAPACITY * 16];
+
+    /**
+     * Offsets of the names in the shared buffer. The name of an item ends at the offset of the next item.
+     */
+    private int[] nameOffsets = new int[INITIAL_CAPACITY + 1];
+
+    /**
+     * Indexes of the parent directory paths.
+     */
+    private int[] parentIndexes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Creation times as Windows timestamps.
+     */
+    private long[] creationTimes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Last access times as Windows timestamps.
+     */
+    private long[] lastAccessTimes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Last write times as Windows timestamps.
+     */
+    private long[] lastWriteTimes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Change times as Windows timestamps.
+     */
+    private long[] changeTimes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Attribute masks.
+     */
+    private long[] fileAttributes = new long[INITIAL_CAPACITY];
+
+    /**
+     * File sizes in bytes.
+     */
+    private long[] fileSizes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Allocation sizes in bytes.
+     */
+    private long[] allocationSizes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Server side file IDs.
+     */
+    private long[] fileIds = new long[INITIAL_CAPACITY];
+
+    /**
+     * Flags whether the items are directories.
+     */
+    private final BitSet directories = new BitSet();
+
+    /**
+     * Number of items.
+     */
+    private int size;
+
+    /**
+     * Create a new empty listing.
+     *
+     * @param smbConnection SMB connection the built items are bound to
+     */
+    SmbListing(SmbConnection smbConnection) {
+        this.smbConnection = smbConnection;
+    }
+
+    /**
+     * Get the number of items.
+     *
+     * @return Number of items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the listing is empty.
+     *
+     * @return Status of the check
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the name of an item.
+     *
+     * @param index Index of the item
+     * @return Name of the item
+     */
+    public String getName(int index) {
+        checkIndex(index);
+        return new String(nameCharacters, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index]);
+    }
+
+    /**
+     * Get the path of an item.
+     *
+     * @param index Index of the item
+     * @return Path of the item
+     */
+    public String getPath(int index) {
+        checkIndex(index);
+        return SmbItem.buildProperItemPath(parentPaths.get(parentIndexes[index]), getName(index));
+    }
+
+    /**
+     * Check if an item is a directory.
+     *
+     * @param index Index of the item
+     * @return Status of the check
+     */
+    public boolean isDirectory(int index) {
+        checkIndex(index);
+        return directories.get(index);
+    }
+
+    /**
+     * Get the file size of an item.
+     *
+     * @param index Index of the item
+     * @return File size in bytes
+     */
+    public long getFileSize(int index) {
+        checkIndex(index);
+        return fileSizes[index];
+    }
+
+    /**
+     * Get the last write time of an item.
+     *
+     * @param index Index of the item
+     * @return Last write time
+     */
+    public FileTime getLastWriteTime(int index) {
+        checkIndex(index);
+        return new FileTime(lastWriteTimes[index]);
+    }
+
+    /**
+     * Get the attribute snapshot of an item.
+     *
+     * @param index Index of the item
+     * @return Attribute snapshot of the item
+     */
+    public SmbItemAttributes getAttributes(int index) {
+        checkIndex(index);
+        return new SmbItemAttributes(
+            new FileTime(creationTimes[index]),
+            new FileTime(lastAccessTimes[index]),
+            new FileTime(lastWriteTimes[index]),
+            new FileTime(changeTimes[index]),
+            fileAttributes[index],
+            fileSizes[index],
+            allocationSizes[index],
+            directories.get(index),
+            fileIds[index]
+        );
+    }
+
+    /**
+     * Build the SMB item of an entry. The item carries the attribute snapshot of the listing.
+     *
+     * @param index Index of the item
+     * @return SMB file or directory
+     */
+    public SmbItem getItem(int index) {
+        SmbItemAttributes attributes = getAttributes(index);
+        String path = getPath(index);
+        return attributes.isDirectory() ? new SmbDirectory(smbConnection, path, attributes) : new SmbFile(smbConnection, path, attributes);
+    }
+
+    /**
+     * Get an iterator that builds the SMB items one after another.
+     *
+     * @return Iterator over all items in listing order
+     */
+    @Override
+    public Iterator<SmbItem> iterator() {
+        return new Iterator<SmbItem>() {
+
+            /**
+             * Index of the next item.
+             */
+            private int nextIndex;
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < size;
+            }
+
+            @Override
+            public SmbItem next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("There are no more SMB items");
+                }
+                return getItem(nextIndex++);
+            }
+        };
+    }
+
+    /**
+     * Append an item to the columns.
+     *
+     * @param smbItem SMB item with an attached attribute snapshot
+     */
+    void add(SmbItem smbItem) {
+        ensureCapacity(size + 1);
+
+        // Intern the parent path and append the name to the shared buffer
+        String path = smbItem.getPath();
+        int lastIndex = path.lastIndexOf(SmbItem.PATH_SEPARATOR);
+        String parentPath = lastIndex != -1 ? path.substring(0, lastIndex) : SmbItem.ROOT_PATH;
+        String name = path.substring(lastIndex + 1);
+        Integer parentIndex = parentPathIndexes.get(parentPath);
+        if (parentIndex == null) {
+            parentIndex = parentPaths.size();
+            parentPaths.add(parentPath);
+            parentPathIndexes.put(parentPath, parentIndex);
+        }
+        int nameOffset = nameOffsets[size];
+        if (nameOffset + name.length() > nameCharacters.length) {
+            nameCharacters = Arrays.copyOf(nameCharacters, Math.max(nameOffset + name.length(), nameCharacters.length + (nameCharacters.length >> 1)));
+        }
+        name.getChars(0, name.length(), nameCharacters, nameOffset);
+        nameOffsets[size + 1] = nameOffset + name.length();
+        parentIndexes[size] = parentIndex;
+
+        // Store the attributes
+        SmbItemAttributes attributes = smbItem.getAttributes();
+        creationTimes[size] = attributes.getCreationTime().getWindowsTimeStamp();
+        lastAccessTimes[size] = attributes.getLastAccessTime().getWindowsTimeStamp();
+        lastWriteTimes[size] = attributes.getLastWriteTime().getWindowsTimeStamp();
+        changeTimes[size] = attributes.getChangeTime().getWindowsTimeStamp();
+        fileAttributes[size] = attributes.getFileAttributes();
+        fileSizes[size] = attributes.getFileSize();
+        allocationSizes[size] = attributes.getAllocationSize();
+        fileIds[size] = attributes.getFileId();
+        directories.set(size, attributes.isDirectory());
+        size++;
+    }
+
+    /**
+     * Release the unused capacity of the columns and the data that is only required during the listing.
+     */
+    void trimToSize() {
+        parentPathIndexes = null;
+        nameCharacters = Arrays.copyOf(nameCharacters, nameOffsets[size]);
+        nameOffsets = Arrays.copyOf(nameOffsets, size + 1);
+        parentIndexes = Arrays.copyOf(parentIndexes, size);
+        creationTimes = Arrays.copyOf(creationTimes, size);
+        lastAccessTimes = Arrays.copyOf(lastAccessTimes, size);
+        lastWriteTimes = Arrays.copyOf(lastWriteTimes, size);
+        changeTimes = Arrays.copyOf(changeTimes, size);
+        fileAttributes = Arrays.copyOf(fileAttributes, size);
+        fileSizes = Arrays.copyOf(fileSizes, size);
+        allocationSizes = Arrays.copyOf(allocationSizes, size);
+        fileIds = Arrays.copyOf(fileIds, size);
+    }
+
+    /**
+     * Grow the columns, so they can hold the given number of items.
+     *
+     * @param capacity Required number of items
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= parentIndexes.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, parentIndexes.length + (parentIndexes.length >> 1));
+        nameOffsets = Arrays.copyOf(nameOffsets, newCapacity + 1);
+        parentIndexes = Arrays.copyOf(parentIndexes, newCapacity);
+        creationTimes = Arrays.copyOf(creationTimes, newCapacity);
+        lastAccessTimes = Arrays.copyOf(lastAccessTimes, newCapacity);
+        lastWriteTimes = Arrays.copyOf(lastWriteTimes, newCapacity);
+        changeTimes = Arrays.copyOf(changeTimes, newCapacity);
+        fileAttributes = Arrays.copyOf(fileAttributes, newCapacity);
+        fileSizes = Arrays.copyOf(fileSizes, newCapacity);
+        allocationSizes = Arrays.copyOf(allocationSizes, newCapacity);
+        fileIds = Arrays.copyOf(fileIds, newCapacity);
+    }
+
+    /**
+     * Check that an index is within the listing.
+     *
+     * @param index Index of the item
+     * @throws IndexOutOfBoundsException Exception in case the index is outside of the listing
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
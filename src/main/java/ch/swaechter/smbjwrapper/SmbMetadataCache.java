@@ -0,0 +1,212 @@
+package ch.swaechter.smbjwrapper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class represents a bounded metadata cache of a SMB connection. It keeps the attribute snapshots of paths for a limited time, including
+ * negative entries for paths that do not exist. The least recently used entries are evicted as soon the cache is full. Changes made via the SMB
+ * items of the connection invalidate the affected entries, changes made by other clients are only noticed after the entries expired.
+ * <p>
+ * Note: The cache is thread safe.
+ *
+ * @author Simon Wächter
+ */
+public class SmbMetadataCache {
+
+    /**
+     * Time in milliseconds an entry stays valid.
+     */
+    private final long timeToLiveMillis;
+
+    /**
+     * Maximum number of entries.
+     */
+    private final int maxEntries;
+
+    /**
+     * All entries in least recently used order.
+     */
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    /**
+     * Number of lookups that were answered by the cache.
+     */
+    private long hitCount;
+
+    /**
+     * Number of lookups that were not answered by the cache.
+     */
+    private long missCount;
+
+    /**
+     * Number of entries that were evicted because the cache was full.
+     */
+    private long evictionCount;
+
+    /**
+     * Create a new metadata cache.
+     *
+     * @param timeToLiveMillis Time in milliseconds an entry stays valid, 0 keeps no entry valid
+     * @param maxEntries       Maximum number of entries
+     */
+    public SmbMetadataCache(long timeToLiveMillis, int maxEntries) {
+        if (timeToLiveMillis < 0 || maxEntries < 1) {
+            throw new IllegalArgumentException("The cache requires a non-negative time to live and at least one entry");
+        }
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldestEntry) {
+                if (size() > SmbMetadataCache.this.maxEntries) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the number of lookups that were answered by the cache.
+     *
+     * @return Number of cache hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of lookups that were not answered by the cache.
+     *
+     * @return Number of cache misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of entries that were evicted because the cache was full.
+     *
+     * @return Number of evicted entries
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the number of entries, including expired ones that were not yet removed.
+     *
+     * @return Number of entries
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all entries. The hit, miss and eviction counters are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the valid entry of a path.
+     *
+     * @param pathName Path name
+     * @return Valid entry or null if the path is not cached
+     */
+    synchronized CacheEntry get(String pathName) {
+        CacheEntry cacheEntry = entries.get(pathName);
+        if (cacheEntry != null && cacheEntry.expirationTime > System.currentTimeMillis()) {
+            hitCount++;
+            return cacheEntry;
+        }
+        if (cacheEntry != null) {
+            entries.remove(pathName);
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Put the attributes of a path into the cache.
+     *
+     * @param pathName   Path name
+     * @param attributes Attributes of the path or null if the path does not exist
+     */
+    synchronized void put(String pathName, SmbItemAttributes attributes) {
+        entries.put(pathName, new CacheEntry(attributes, System.currentTimeMillis() + timeToLiveMillis));
+    }
+
+    /**
+     * Invalidate the entry of a path and the entries of all paths below it. This sweeps all entries, so it's only used for directories.
+     *
+     * @param pathName Path name
+     */
+    synchronized void invalidateTree(String pathName) {
+        if (pathName.isEmpty()) {
+            entries.clear();
+            return;
+        }
+        String pathPrefix = pathName + SmbItem.PATH_SEPARATOR;
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            String cachedPathName = iterator.next();
+            if (cachedPathName.equals(pathName) || cachedPathName.startsWith(pathPrefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Invalidate the entry of a single path.
+     *
+     * @param pathName Path name
+     */
+    synchronized void invalidate(String pathName) {
+        entries.remove(pathName);
+    }
+
+    /**
+     * This class represents a cached positive or negative entry.
+     */
+    static final class CacheEntry {
+
+        /**
+         * Attributes of the path or null if the path does not exist.
+         */
+        private final SmbItemAttributes attributes;
+
+        /**
+         * Time in milliseconds the entry expires.
+         */
+        private final long expirationTime;
+
+        /**
+         * Create a new cache entry.
+         *
+         * @param attributes     Attributes of the path or null if the path does not exist
+         * @param expirationTime Time in milliseconds the entry expires
+         */
+        private CacheEntry(SmbItemAttributes attributes, long expirationTime) {
+            this.attributes = attributes;
+            this.expirationTime = expirationTime;
+        }
+
+        /**
+         * Get the attributes of the path.
+         *
+         * @return Attributes of the path or null if the path does not exist
+         */
+        SmbItemAttributes getAttributes() {
+            return attributes;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package ch.swaechter.smbjwrapper;
+
+import com.hierynomus.msdtyp.AccessMask;
+import com.hierynomus.msfscc.fileinformation.FileStandardInformation;
+import com.hierynomus.mssmb2.SMB2CreateDisposition;
+import com.hierynomus.mssmb2.SMB2ShareAccess;
+import com.hierynomus.smbj.share.File;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents a parallel downloader that splits a large file into byte ranges and downloads them with one task per range on a
+ * work stealing fork join pool. The connections are leased and the tasks are invoked like in a parallel walk.
+ *
+ * @author Simon Wächter
+ */
+final class SmbParallelDownloader {
+
+    /**
+     * Minimum size of a range that is downloaded by a single task.
+     */
+    private static final long MIN_RANGE_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Number of ranges per thread, so fast connections take over the ranges of slow ones.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Options of the parallel download.
+     */
+    private final SmbParallelOptions parallelOptions;
+
+    /**
+     * Parallel walker that provides the connections and the fork join pool.
+     */
+    private final SmbParallelWalker parallelWalker;
+
+    /**
+     * Create a new parallel downloader.
+     *
+     * @param smbConnection   Connection of the downloaded file
+     * @param parallelOptions Options of the parallel download
+     */
+    SmbParallelDownloader(SmbConnection smbConnection, SmbParallelOptions parallelOptions) {
+        this.parallelOptions = parallelOptions;
+        this.parallelWalker = new SmbParallelWalker(smbConnection, parallelOptions);
+    }
+
+    /**
+     * Download a file into a local file. The file is split into ranges that are read by their own tasks, each one with its own handle, and
+     * written directly at their offsets into the preallocated local file. If the download fails, the incomplete local file is deleted.
+     *
+     * @param smbFilePath      Path of the downloaded file
+     * @param localPath        Path of the local file that is created or overwritten
+     * @param transferListener Listener that receives the progress or null
+     * @return Final progress of the download
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    SmbTransferProgress downloadFile(String smbFilePath, Path localPath, SmbTransferListener transferListener) throws IOException {
+        long startNanos = System.nanoTime();
+        long fileSize = parallelWalker.withConnection(connection -> {
+            try (File file = openFileForReading(connection, smbFilePath)) {
+                return file.getFileInformation(FileStandardInformation.class).getEndOfFile();
+            }
+        });
+        DownloadState downloadState = new DownloadState(fileSize, startNanos, transferListener);
+
+        boolean downloaded = false;
+        try (FileChannel fileChannel = FileChannel.open(localPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Preallocate the local file, so the ranges can be written in any order
+            if (fileSize > 0) {
+                fileChannel.write(ByteBuffer.wrap(new byte[1]), fileSize - 1);
+                long rangeCount = (long) parallelOptions.getParallelism() * RANGES_PER_THREAD;
+                long rangeSize = Math.max(MIN_RANGE_SIZE, (fileSize + rangeCount - 1) / rangeCount);
+                List<DownloadRangeTask> rangeTasks = new ArrayList<>();
+                for (long rangeOffset = 0; rangeOffset < fileSize; rangeOffset += rangeSize) {
+                    rangeTasks.add(new DownloadRangeTask(smbFilePath, fileChannel, rangeOffset, Math.min(rangeSize, fileSize - rangeOffset), downloadState));
+                }
+                parallelWalker.invoke(new DownloadFileTask(rangeTasks));
+            }
+            downloaded = true;
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        } finally {
+            if (!downloaded) {
+                Files.deleteIfExists(localPath);
+            }
+        }
+        return downloadState.createProgress();
+    }
+
+    /**
+     * Open a file for reading.
+     *
+     * @param connection  Connection the file is opened with
+     * @param smbFilePath Path of the file
+     * @return Opened file that has to be closed
+     */
+    private File openFileForReading(SmbConnection connection, String smbFilePath) {
+        return connection.getDiskShare().openFile(smbFilePath, EnumSet.of(AccessMask.GENERIC_READ), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OPEN, null);
+    }
+
+    /**
+     * This class represents the shared state of a parallel download.
+     */
+    private static final class DownloadState {
+
+        /**
+         * Number of downloaded bytes.
+         */
+        private final AtomicLong transferredBytes = new AtomicLong();
+
+        /**
+         * Size of the downloaded file.
+         */
+        private final long totalBytes;
+
+        /**
+         * Start time of the download in nanoseconds.
+         */
+        private final long startNanos;
+
+        /**
+         * Listener that receives the progress or null.
+         */
+        private final SmbTransferListener transferListener;
+
+        /**
+         * Flag whether a range failed, so the other ranges stop after their current chunk.
+         */
+        private volatile boolean failed;
+
+        /**
+         * Create a new download state.
+         *
+         * @param totalBytes       Size of the downloaded file
+         * @param startNanos       Start time of the download in nanoseconds
+         * @param transferListener Listener that receives the progress or null
+         */
+        private DownloadState(long totalBytes, long startNanos, SmbTransferListener transferListener) {
+            this.totalBytes = totalBytes;
+            this.startNanos = startNanos;
+            this.transferListener = transferListener;
+        }
+
+        /**
+         * Add downloaded bytes and report the progress to the listener.
+         *
+         * @param byteCount Number of downloaded bytes
+         */
+        private void addTransferredBytes(long byteCount) {
+            transferredBytes.addAndGet(byteCount);
+            if (transferListener != null) {
+                synchronized (this) {
+                    transferListener.onProgress(createProgress());
+                }
+            }
+        }
+
+        /**
+         * Create a snapshot of the current progress.
+         *
+         * @return Current progress
+         */
+        private SmbTransferProgress createProgress() {
+            return new SmbTransferProgress(transferredBytes.get(), totalBytes, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * This class represents the task that downloads all ranges of a file in parallel. All ranges are joined, even if one of them failed, so
+     * the local file is not closed or deleted while a range is still written.
+     */
+    private static final class DownloadFileTask extends RecursiveTask<Void> {
+
+        /**
+         * Tasks of all ranges.
+         */
+        private final List<DownloadRangeTask> rangeTasks;
+
+        /**
+         * Create a new download task.
+         *
+         * @param rangeTasks Tasks of all ranges
+         */
+        private DownloadFileTask(List<DownloadRangeTask> rangeTasks) {
+            this.rangeTasks = rangeTasks;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected Void compute() {
+            for (DownloadRangeTask rangeTask : rangeTasks) {
+                rangeTask.fork();
+            }
+            RuntimeException failure = null;
+            for (DownloadRangeTask rangeTask : rangeTasks) {
+                try {
+                    rangeTask.join();
+                } catch (RuntimeException exception) {
+                    if (failure == null) {
+                        failure = exception;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * This class represents the task that downloads a range of a file with its own handle and writes it into the local file.
+     */
+    private final class DownloadRangeTask extends RecursiveTask<Void> {
+
+        /**
+         * Path of the downloaded file.
+         */
+        private final String smbFilePath;
+
+        /**
+         * Channel of the local file.
+         */
+        private final FileChannel fileChannel;
+
+        /**
+         * Offset of the range.
+         */
+        private final long rangeOffset;
+
+        /**
+         * Length of the range.
+         */
+        private final long rangeLength;
+
+        /**
+         * Shared state of the download.
+         */
+        private final DownloadState downloadState;
+
+        /**
+         * Create a new download task for a range.
+         *
+         * @param smbFilePath   Path of the downloaded file
+         * @param fileChannel   Channel of the local file
+         * @param rangeOffset   Offset of the range
+         * @param rangeLength   Length of the range
+         * @param downloadState Shared state of the download
+         */
+        private DownloadRangeTask(String smbFilePath, FileChannel fileChannel, long rangeOffset, long rangeLength, DownloadState downloadState) {
+            this.smbFilePath = smbFilePath;
+            this.fileChannel = fileChannel;
+            this.rangeOffset = rangeOffset;
+            this.rangeLength = rangeLength;
+            this.downloadState = downloadState;
+        }
+
+        /**
+         * Read the range in chunks of the negotiated maximum read size and write each chunk at its offset into the local file. The range stops
+         * early as soon another range failed.
+         *
+         * @return Nothing
+         */
+        @Override
+        protected Void compute() {
+            if (downloadState.failed) {
+                return null;
+            }
+            try {
+                return downloadRange();
+            } catch (RuntimeException exception) {
+                downloadState.failed = true;
+                throw exception;
+            }
+        }
+
+        /**
+         * Download the range with a leased connection.
+         *
+         * @return Nothing
+         */
+        private Void downloadRange() {
+            return parallelWalker.withConnection(connection -> {
+                byte[] buffer = new byte[(int) Math.min(rangeLength, connection.getNegotiatedProtocol().getMaxReadSize())];
+                try (File file = openFileForReading(connection, smbFilePath)) {
+                    long readBytes = 0;
+                    while (readBytes < rangeLength && !downloadState.failed) {
+                        // A read without any data before the end of the range would never finish
+                        int chunkLength = file.read(buffer, rangeOffset + readBytes, 0, (int) Math.min(rangeLength - readBytes, buffer.length));
+                        if (chunkLength <= 0) {
+                            throw new IOException("The file " + smbFilePath + " was truncated during the download");
+                        }
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, chunkLength);
+                        while (chunk.hasRemaining()) {
+                            fileChannel.write(chunk, rangeOffset + readBytes + chunk.position());
+                        }
+                        readBytes += chunkLength;
+                        downloadState.addTransferredBytes(chunkLength);
+                    }
+                    return null;
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ch.swaechter.smbjwrapper;
+
+/**
+ * This class represents the options of a parallel tree operation or download. The parallelism defines how many directories or file ranges are
+ * processed at the same time.
+ * Without a connection pool, all requests are multiplexed over the connection of the processed directory. With a connection pool, each request
+ * leases its own connection, so the requests are spread over several connections.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbParallelOptions {
+
+    /**
+     * Number of directories or file ranges that are processed at the same time.
+     */
+    private final int parallelism;
+
+    /**
+     * Connection pool the connections are leased from or null, if the connection of the processed directory is used.
+     */
+    private final SmbConnectionPool connectionPool;
+
+    /**
+     * Create new parallel options that multiplex all requests over the connection of the processed directory.
+     *
+     * @param parallelism Number of directories or file ranges that are processed at the same time
+     */
+    public SmbParallelOptions(int parallelism) {
+        this(parallelism, null);
+    }
+
+    /**
+     * Create new parallel options that spread the requests over connections leased from a connection pool.
+     *
+     * @param parallelism    Number of directories or file ranges that are processed at the same time
+     * @param connectionPool Connection pool the connections are leased from or null
+     */
+    public SmbParallelOptions(int parallelism, SmbConnectionPool connectionPool) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism has to be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Get the number of directories or file ranges that are processed at the same time.
+     *
+     * @return Parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Get the connection pool the connections are leased from.
+     *
+     * @return Connection pool or null, if the connection of the processed directory is used
+     */
+    public SmbConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+}
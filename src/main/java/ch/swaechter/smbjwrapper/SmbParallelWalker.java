@@ -0,0 +1,531 @@
+package ch.swaechter.smbjwrapper;
+
+import ch.swaechter.smbjwrapper.utils.SmbUtils;
+import com.hierynomus.msdtyp.FileTime;
+import com.hierynomus.msfscc.fileinformation.FileIdBothDirectoryInformation;
+import com.hierynomus.mssmb2.SMBApiException;
+import com.hierynomus.smbj.common.SMBRuntimeException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * This class represents a parallel walker that enumerates the subdirectories of a tree on a work stealing fork join pool. Each directory is
+ * enumerated by its own task, so a deep or wide tree is walked with several outstanding requests instead of a single one. All returned items
+ * are bound to the connection of the walked directory, even if they were enumerated via a leased connection.
+ *
+ * @author Simon Wächter
+ */
+final class SmbParallelWalker {
+
+    /**
+     * Number of files that are deleted by a single task.
+     */
+    private static final int FILE_BATCH_SIZE = 32;
+
+    /**
+     * Connection of the walked directory.
+     */
+    private final SmbConnection smbConnection;
+
+    /**
+     * Options of the parallel walk.
+     */
+    private final SmbParallelOptions parallelOptions;
+
+    /**
+     * Create a new parallel walker.
+     *
+     * @param smbConnection   Connection of the walked directory
+     * @param parallelOptions Options of the parallel walk
+     */
+    SmbParallelWalker(SmbConnection smbConnection, SmbParallelOptions parallelOptions) {
+        this.smbConnection = smbConnection;
+        this.parallelOptions = parallelOptions;
+    }
+
+    /**
+     * List all files and directories below a path that match the search predicate. The items are returned in the same order as a serial
+     * recursive enumeration would return them.
+     *
+     * @param smbDirectoryPath Path of the walked directory
+     * @param searchPredicate  Thread safe search predicate each item is checked against
+     * @return Flat list with all matching items
+     */
+    List<SmbItem> listItems(String smbDirectoryPath, Predicate<SmbItem> searchPredicate) {
+        return invoke(new ListTask(smbDirectoryPath, searchPredicate));
+    }
+
+    /**
+     * Delete a directory with all its subdirectories and files. Each directory is enumerated by its own task, its files are deleted in batches
+     * in parallel and the directory itself is removed as soon it's empty. Failures are collected instead of aborting the delete. The enumerated
+     * entries are not put into the metadata cache and each removed path is invalidated in it.
+     *
+     * @param smbDirectoryPath Path of the deleted directory
+     * @return Summary of the delete
+     */
+    SmbDeleteResult deleteTree(String smbDirectoryPath) {
+        DeleteState deleteState = new DeleteState();
+        try {
+            invoke(new DeleteDirectoryTask(smbDirectoryPath, deleteState));
+        } finally {
+            SmbItem.invalidateMetadataTree(smbConnection, smbDirectoryPath);
+        }
+        return new SmbDeleteResult(deleteState.deletedFileCount.get(), deleteState.deletedDirectoryCount.get(), deleteState.failures);
+    }
+
+    /**
+     * Aggregate the usage of a directory tree. Each directory is enumerated by its own task and the totals are summed up from the enumeration
+     * data of the entries.
+     *
+     * @param smbDirectoryPath Path of the aggregated directory
+     * @param maxDepth         Maximum depth of the returned child usages, 0 returns the totals only
+     * @return Usage of the directory tree
+     */
+    SmbDirectoryUsage computeUsage(String smbDirectoryPath, int maxDepth) {
+        return invoke(new UsageTask(smbDirectoryPath, 0, maxDepth));
+    }
+
+    /**
+     * Invoke a task on a fork join pool with the configured parallelism and shut the pool down afterwards.
+     *
+     * @param task Task to invoke
+     * @param <T>  Type of the result
+     * @return Result of the task
+     */
+    <T> T invoke(RecursiveTask<T> task) {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelOptions.getParallelism());
+        try {
+            return forkJoinPool.invoke(task);
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    /**
+     * Execute an action with a connection. If the options provide a connection pool, a connection is leased for the duration of the action,
+     * otherwise the connection of the walked directory is used. A leased connection is only invalidated if the action failed because of the
+     * connection, errors answered by the server and local errors keep it usable.
+     *
+     * @param action Action to execute
+     * @param <T>    Type of the result
+     * @return Result of the action
+     * @throws RuntimeException Exception in case no connection could be leased
+     */
+    <T> T withConnection(Function<SmbConnection, T> action) {
+        SmbConnectionPool connectionPool = parallelOptions.getConnectionPool();
+        if (connectionPool == null) {
+            return action.apply(smbConnection);
+        }
+
+        SmbConnectionLease smbConnectionLease;
+        try {
+            smbConnectionLease = connectionPool.lease(smbConnection.getServerName(), smbConnection.getShareName(), smbConnection.getAuthenticationContext());
+        } catch (IOException exception) {
+            throw new RuntimeException("Unable to lease a connection for the parallel walk: " + exception.getMessage(), exception);
+        }
+        try {
+            return action.apply(smbConnectionLease.getSmbConnection());
+        } catch (RuntimeException exception) {
+            if (isConnectionFailure(exception)) {
+                smbConnectionLease.invalidate();
+            }
+            throw exception;
+        } finally {
+            smbConnectionLease.close();
+        }
+    }
+
+    /**
+     * Check if an exception of an action was caused by the connection. An error answered by the server or a local IO error like a failed write
+     * into a local file leaves the connection usable.
+     *
+     * @param exception Exception of the action
+     * @return Status of the check
+     */
+    private static boolean isConnectionFailure(RuntimeException exception) {
+        if (exception instanceof SMBApiException || exception instanceof UncheckedIOException) {
+            return false;
+        }
+        return exception instanceof SMBRuntimeException || exception.getCause() instanceof IOException;
+    }
+
+    /**
+     * Enumerate a single directory and build its items bound to the connection of the walked directory. Their attributes are put into the
+     * metadata cache of the connection, if there is one.
+     *
+     * @param smbDirectoryPath Path of the enumerated directory
+     * @return All items of the directory in enumeration order
+     */
+    List<SmbItem> enumerateDirectory(String smbDirectoryPath) {
+        List<FileIdBothDirectoryInformation> entries = listEntries(smbDirectoryPath);
+        List<SmbItem> smbItems = new ArrayList<>(entries.size());
+        for (FileIdBothDirectoryInformation fileIdBothDirectoryInformation : entries) {
+            smbItems.add(SmbDirectory.createListedItem(smbConnection, smbDirectoryPath, fileIdBothDirectoryInformation));
+        }
+        return smbItems;
+    }
+
+    /**
+     * Enumerate the entries of a single directory without building items or touching the metadata cache.
+     *
+     * @param smbDirectoryPath Path of the enumerated directory
+     * @return All entries of the directory in enumeration order, without the current and parent directory entries
+     */
+    private List<FileIdBothDirectoryInformation> listEntries(String smbDirectoryPath) {
+        List<FileIdBothDirectoryInformation> entries = withConnection(connection -> connection.getDiskShare().list(smbDirectoryPath));
+        List<FileIdBothDirectoryInformation> validEntries = new ArrayList<>(entries.size());
+        for (FileIdBothDirectoryInformation fileIdBothDirectoryInformation : entries) {
+            if (SmbUtils.isValidSmbItemName(fileIdBothDirectoryInformation.getFileName())) {
+                validEntries.add(fileIdBothDirectoryInformation);
+            }
+        }
+        return validEntries;
+    }
+
+    /**
+     * This class represents the task that lists a directory and forks one task per subdirectory.
+     */
+    private final class ListTask extends RecursiveTask<List<SmbItem>> {
+
+        /**
+         * Path of the listed directory.
+         */
+        private final String smbDirectoryPath;
+
+        /**
+         * Search predicate each item is checked against.
+         */
+        private final Predicate<SmbItem> searchPredicate;
+
+        /**
+         * Create a new list task.
+         *
+         * @param smbDirectoryPath Path of the listed directory
+         * @param searchPredicate  Search predicate each item is checked against
+         */
+        private ListTask(String smbDirectoryPath, Predicate<SmbItem> searchPredicate) {
+            this.smbDirectoryPath = smbDirectoryPath;
+            this.searchPredicate = searchPredicate;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected List<SmbItem> compute() {
+            // Enumerate the directory and fork all subdirectories at once
+            List<SmbItem> directoryItems = enumerateDirectory(smbDirectoryPath);
+            List<ListTask> subtasks = new ArrayList<>();
+            for (SmbItem smbItem : directoryItems) {
+                if (smbItem instanceof SmbDirectory) {
+                    subtasks.add(new ListTask(smbItem.getPath(), searchPredicate));
+                }
+            }
+            invokeAll(subtasks);
+
+            // Merge the results in the order of a serial depth first enumeration
+            List<SmbItem> smbItems = new ArrayList<>();
+            Iterator<ListTask> subtaskIterator = subtasks.iterator();
+            for (SmbItem smbItem : directoryItems) {
+                if (searchPredicate.test(smbItem)) {
+                    smbItems.add(smbItem);
+                }
+                if (smbItem instanceof SmbDirectory) {
+                    smbItems.addAll(subtaskIterator.next().join());
+                }
+            }
+            return smbItems;
+        }
+    }
+
+    /**
+     * This class represents the shared state of a parallel delete.
+     */
+    private static final class DeleteState {
+
+        /**
+         * Number of deleted files.
+         */
+        private final AtomicLong deletedFileCount = new AtomicLong();
+
+        /**
+         * Number of deleted directories.
+         */
+        private final AtomicLong deletedDirectoryCount = new AtomicLong();
+
+        /**
+         * Failures per path.
+         */
+        private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * This class represents the task that empties a directory in parallel and removes it afterwards.
+     */
+    private final class DeleteDirectoryTask extends RecursiveTask<Boolean> {
+
+        /**
+         * Path of the deleted directory.
+         */
+        private final String smbDirectoryPath;
+
+        /**
+         * Shared state of the delete.
+         */
+        private final DeleteState deleteState;
+
+        /**
+         * Create a new delete task for a directory.
+         *
+         * @param smbDirectoryPath Path of the deleted directory
+         * @param deleteState      Shared state of the delete
+         */
+        private DeleteDirectoryTask(String smbDirectoryPath, DeleteState deleteState) {
+            this.smbDirectoryPath = smbDirectoryPath;
+            this.deleteState = deleteState;
+        }
+
+        /**
+         * Delete the directory and return whether it was removed.
+         *
+         * @return Status of the delete
+         */
+        @Override
+        protected Boolean compute() {
+            // Enumerate the directory without caching the entries that are about to be deleted
+            List<FileIdBothDirectoryInformation> entries;
+            try {
+                entries = listEntries(smbDirectoryPath);
+            } catch (SMBApiException exception) {
+                // Like a file, a directory that was removed in the meantime doesn't prevent the removal of its parent directory
+                if (SmbUtils.isNotFound(exception)) {
+                    return true;
+                }
+                deleteState.failures.put(smbDirectoryPath, exception);
+                return false;
+            } catch (RuntimeException exception) {
+                deleteState.failures.put(smbDirectoryPath, exception);
+                return false;
+            }
+
+            // Empty the directory by deleting the subdirectories and batches of files in parallel
+            List<RecursiveTask<Boolean>> subtasks = new ArrayList<>();
+            List<String> filePaths = new ArrayList<>();
+            for (FileIdBothDirectoryInformation fileIdBothDirectoryInformation : entries) {
+                String itemPath = SmbItem.buildProperItemPath(smbDirectoryPath, fileIdBothDirectoryInformation.getFileName());
+                if (SmbItemAttributes.fromDirectoryInformation(fileIdBothDirectoryInformation).isDirectory()) {
+                    subtasks.add(new DeleteDirectoryTask(itemPath, deleteState));
+                } else {
+                    filePaths.add(itemPath);
+                }
+            }
+            for (int i = 0; i < filePaths.size(); i += FILE_BATCH_SIZE) {
+                subtasks.add(new DeleteFilesTask(filePaths.subList(i, Math.min(i + FILE_BATCH_SIZE, filePaths.size())), deleteState));
+            }
+            boolean emptied = true;
+            for (RecursiveTask<Boolean> subtask : invokeAll(subtasks)) {
+                emptied &= subtask.join();
+            }
+
+            // Remove the directory as soon it's empty
+            if (!emptied) {
+                return false;
+            }
+            try {
+                withConnection(connection -> {
+                    try {
+                        connection.getDiskShare().rmdir(smbDirectoryPath, false);
+                    } finally {
+                        SmbItem.invalidateMetadata(smbConnection, smbDirectoryPath);
+                    }
+                    return null;
+                });
+                deleteState.deletedDirectoryCount.incrementAndGet();
+                return true;
+            } catch (SMBApiException exception) {
+                if (SmbUtils.isNotFound(exception)) {
+                    return true;
+                }
+                deleteState.failures.put(smbDirectoryPath, exception);
+                return false;
+            } catch (RuntimeException exception) {
+                deleteState.failures.put(smbDirectoryPath, exception);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * This class represents the task that deletes a batch of files of the same directory.
+     */
+    private final class DeleteFilesTask extends RecursiveTask<Boolean> {
+
+        /**
+         * Paths of the deleted files.
+         */
+        private final List<String> filePaths;
+
+        /**
+         * Shared state of the delete.
+         */
+        private final DeleteState deleteState;
+
+        /**
+         * Number of files of the batch that were already processed.
+         */
+        private int processedFileCount;
+
+        /**
+         * Create a new delete task for a batch of files.
+         *
+         * @param filePaths   Paths of the deleted files
+         * @param deleteState Shared state of the delete
+         */
+        private DeleteFilesTask(List<String> filePaths, DeleteState deleteState) {
+            this.filePaths = filePaths;
+            this.deleteState = deleteState;
+        }
+
+        /**
+         * Delete all files and return whether all of them were removed.
+         *
+         * @return Status of the delete
+         */
+        @Override
+        protected Boolean compute() {
+            try {
+                return withConnection(connection -> {
+                    boolean deleted = true;
+                    for (; processedFileCount < filePaths.size(); processedFileCount++) {
+                        String filePath = filePaths.get(processedFileCount);
+                        try {
+                            connection.getDiskShare().rm(filePath);
+                            deleteState.deletedFileCount.incrementAndGet();
+                        } catch (SMBApiException exception) {
+                            // A file that was removed in the meantime doesn't prevent the removal of its directory
+                            if (!SmbUtils.isNotFound(exception)) {
+                                deleteState.failures.put(filePath, exception);
+                                deleted = false;
+                            }
+                        } finally {
+                            SmbItem.invalidateMetadata(smbConnection, filePath);
+                        }
+                    }
+                    return deleted;
+                });
+            } catch (RuntimeException exception) {
+                // No connection could be leased or it was lost, so the remaining files of the batch are reported instead of aborting the delete
+                for (String filePath : filePaths.subList(processedFileCount, filePaths.size())) {
+                    deleteState.failures.put(filePath, exception);
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * This class represents the task that aggregates the usage of a directory and forks one task per subdirectory.
+     */
+    private final class UsageTask extends RecursiveTask<SmbDirectoryUsage> {
+
+        /**
+         * Path of the aggregated directory.
+         */
+        private final String smbDirectoryPath;
+
+        /**
+         * Depth of the aggregated directory.
+         */
+        private final int depth;
+
+        /**
+         * Maximum depth of the returned child usages.
+         */
+        private final int maxDepth;
+
+        /**
+         * Create a new usage task.
+         *
+         * @param smbDirectoryPath Path of the aggregated directory
+         * @param depth            Depth of the aggregated directory
+         * @param maxDepth         Maximum depth of the returned child usages
+         */
+        private UsageTask(String smbDirectoryPath, int depth, int maxDepth) {
+            this.smbDirectoryPath = smbDirectoryPath;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected SmbDirectoryUsage compute() {
+            // Sum up the direct entries and fork all subdirectories at once
+            long fileCount = 0;
+            long directoryCount = 0;
+            long totalSize = 0;
+            long totalAllocationSize = 0;
+            FileTime newestLastWriteTime = null;
+            List<UsageTask> subtasks = new ArrayList<>();
+            for (SmbItem smbItem : enumerateDirectory(smbDirectoryPath)) {
+                SmbItemAttributes attributes = smbItem.getAttributes();
+                newestLastWriteTime = newerFileTime(newestLastWriteTime, attributes.getLastWriteTime());
+                if (smbItem instanceof SmbDirectory) {
+                    directoryCount++;
+                    subtasks.add(new UsageTask(smbItem.getPath(), depth + 1, maxDepth));
+                } else {
+                    fileCount++;
+                    totalSize += attributes.getFileSize();
+                    totalAllocationSize += attributes.getAllocationSize();
+                }
+            }
+            invokeAll(subtasks);
+
+            // Add the totals of the subdirectories and keep their usages until the maximum depth is reached
+            List<SmbDirectoryUsage> children = new ArrayList<>();
+            for (UsageTask subtask : subtasks) {
+                SmbDirectoryUsage childUsage = subtask.join();
+                fileCount += childUsage.getFileCount();
+                directoryCount += childUsage.getDirectoryCount();
+                totalSize += childUsage.getTotalSize();
+                totalAllocationSize += childUsage.getTotalAllocationSize();
+                newestLastWriteTime = newerFileTime(newestLastWriteTime, childUsage.getNewestLastWriteTime());
+                if (depth < maxDepth) {
+                    children.add(childUsage);
+                }
+            }
+            children.sort(Comparator.comparing(SmbDirectoryUsage::getPath));
+            return new SmbDirectoryUsage(smbDirectoryPath, fileCount, directoryCount, totalSize, totalAllocationSize, newestLastWriteTime, children);
+        }
+
+        /**
+         * Get the newer of two file times.
+         *
+         * @param fileTime1 First file time or null
+         * @param fileTime2 Second file time or null
+         * @return Newer file time or null, if both are null
+         */
+        private FileTime newerFileTime(FileTime fileTime1, FileTime fileTime2) {
+            if (fileTime1 == null) {
+                return fileTime2;
+            }
+            if (fileTime2 == null) {
+                return fileTime1;
+            }
+            return fileTime2.getWindowsTimeStamp() > fileTime1.getWindowsTimeStamp() ? fileTime2 : fileTime1;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ch.swaechter.smbjwrapper;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class represents the reconnect policy of a SMB connection. A failed reconnect is retried with an exponential backoff and jitter. As soon
+ * a given number of reconnects failed in a row, the circuit opens: All calls fail fast without touching the network until the open duration
+ * elapsed. Afterwards, a single probe reconnect decides whether the circuit closes again or stays open for another period.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbReconnectPolicy {
+
+    /**
+     * Number of retries of a failed reconnect attempt.
+     */
+    private final int maxRetries;
+
+    /**
+     * Backoff in milliseconds before the first retry.
+     */
+    private final long initialBackoffMillis;
+
+    /**
+     * Upper limit of the backoff in milliseconds.
+     */
+    private final long maxBackoffMillis;
+
+    /**
+     * Factor the backoff grows with each retry.
+     */
+    private final double backoffMultiplier;
+
+    /**
+     * Part of the backoff between 0 and 1 that is randomized to avoid synchronized retries.
+     */
+    private final double jitterFactor;
+
+    /**
+     * Number of failed reconnects in a row that open the circuit.
+     */
+    private final int failureThreshold;
+
+    /**
+     * Duration in milliseconds the circuit stays open before a probe reconnect is allowed.
+     */
+    private final long openDurationMillis;
+
+    /**
+     * Create a new reconnect policy that reconnects once without retries and never opens the circuit. This is the behaviour of a SMB connection
+     * without a custom reconnect policy.
+     */
+    public SmbReconnectPolicy() {
+        this(0, 0, 0, 1, 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Create a new reconnect policy with a custom backoff and circuit breaker.
+     *
+     * @param maxRetries           Number of retries of a failed reconnect attempt
+     * @param initialBackoffMillis Backoff in milliseconds before the first retry
+     * @param maxBackoffMillis     Upper limit of the backoff in milliseconds
+     * @param backoffMultiplier    Factor the backoff grows with each retry
+     * @param jitterFactor         Part of the backoff between 0 and 1 that is randomized
+     * @param failureThreshold     Number of failed reconnects in a row that open the circuit
+     * @param openDurationMillis   Duration in milliseconds the circuit stays open before a probe reconnect is allowed
+     */
+    public SmbReconnectPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis, double backoffMultiplier, double jitterFactor, int failureThreshold, long openDurationMillis) {
+        if (maxRetries < 0 || initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis || backoffMultiplier < 1) {
+            throw new IllegalArgumentException("The backoff configuration of the reconnect policy is invalid");
+        }
+        if (jitterFactor < 0 || jitterFactor > 1) {
+            throw new IllegalArgumentException("The jitter factor has to be between 0 and 1");
+        }
+        if (failureThreshold < 1 || openDurationMillis < 0) {
+            throw new IllegalArgumentException("The circuit breaker configuration of the reconnect policy is invalid");
+        }
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.backoffMultiplier = backoffMultiplier;
+        this.jitterFactor = jitterFactor;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * Get the number of retries of a failed reconnect attempt.
+     *
+     * @return Number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Get the number of failed reconnects in a row that open the circuit.
+     *
+     * @return Number of failed reconnects
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Get the duration in milliseconds the circuit stays open before a probe reconnect is allowed.
+     *
+     * @return Open duration in milliseconds
+     */
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    /**
+     * Compute the jittered backoff before the given retry. The backoff grows exponentially up to the upper limit, the jitter only shortens it.
+     *
+     * @param retry Zero based number of the retry
+     * @return Backoff in milliseconds
+     */
+    public long computeBackoffMillis(int retry) {
+        double backoffMillis = Math.min(maxBackoffMillis, initialBackoffMillis * Math.pow(backoffMultiplier, retry));
+        double jitterMillis = backoffMillis * jitterFactor * ThreadLocalRandom.current().nextDouble();
+        return (long) (backoffMillis - jitterMillis);
+    }
+}
@@ -0,0 +1,334 @@
+package ch.swaechter.smbjwrapper;
+
+import com.hierynomus.smbj.SMBClient;
+import com.hierynomus.smbj.SmbConfig;
+import com.hierynomus.smbj.auth.AuthenticationContext;
+import com.hierynomus.smbj.connection.Connection;
+import com.hierynomus.smbj.session.Session;
+import com.hierynomus.smbj.share.DiskShare;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is responsible for sharing one SMB client, one connection per server and one session per server and credentials combination
+ * between several SMB connections. The SMB connections multiplex their disk shares over the shared connection and session. This reduces the
+ * number of sockets and authentications when several shares of the same server are accessed. Because smbj connects each share only once per
+ * session, SMB connections to the same share also share the disk share.
+ * <p>
+ * Note: The registry is thread safe. The shared connections, sessions and disk shares are reference counted and closed as soon the last SMB
+ * connection using them is closed. Connecting and authenticating only blocks other SMB connections to the same server.
+ *
+ * @author Simon Wächter
+ */
+public class SmbSessionRegistry implements AutoCloseable {
+
+    /**
+     * SMB configuration used for the shared client.
+     */
+    private final SmbConfig smbConfig;
+
+    /**
+     * Shared client that is used to connect to all servers.
+     */
+    private final SMBClient smbClient;
+
+    /**
+     * All shared connections, grouped by server name. Each server entry is locked on its own while connecting or releasing.
+     */
+    private final Map<String, ServerEntry> serverEntries = new HashMap<>();
+
+    /**
+     * Create a new session registry with the default SMB configuration.
+     */
+    public SmbSessionRegistry() {
+        this(SmbConfig.builder().build());
+    }
+
+    /**
+     * Create a new session registry with a custom smbj SMB configuration.
+     *
+     * @param smbConfig Custom SMB/smbj configuration used for all shared connections
+     */
+    public SmbSessionRegistry(SmbConfig smbConfig) {
+        this.smbConfig = smbConfig;
+        this.smbClient = new SMBClient(smbConfig);
+    }
+
+    /**
+     * Get the SMB configuration used for all shared connections.
+     *
+     * @return SMB configuration
+     */
+    public SmbConfig getSmbConfig() {
+        return smbConfig;
+    }
+
+    /**
+     * Get the number of currently shared connections.
+     *
+     * @return Number of shared connections
+     */
+    public synchronized int getConnectionCount() {
+        int connectionCount = 0;
+        for (ServerEntry serverEntry : serverEntries.values()) {
+            if (!serverEntry.closed) {
+                connectionCount++;
+            }
+        }
+        return connectionCount;
+    }
+
+    /**
+     * Get the number of currently shared sessions over all servers.
+     *
+     * @return Number of shared sessions
+     */
+    public synchronized int getSessionCount() {
+        int sessionCount = 0;
+        for (ServerEntry serverEntry : serverEntries.values()) {
+            sessionCount += serverEntry.sessionEntries.size();
+        }
+        return sessionCount;
+    }
+
+    /**
+     * Acquire a shared disk share for the server, credentials and share name. The connection to the server, the session and the disk share are
+     * created if there is no alive one yet. Every acquired disk share has to be released again.
+     *
+     * @param serverName            Server name of the server
+     * @param authenticationContext Authentication used to authenticate against
+     * @param shareName             Share name of the server
+     * @return Shared disk share
+     * @throws IOException Exception in case of a problem
+     */
+    DiskShare acquireShare(String serverName, AuthenticationContext authenticationContext, String shareName) throws IOException {
+        SmbCredentials smbCredentials = new SmbCredentials(authenticationContext);
+        while (true) {
+            ServerEntry serverEntry = getServerEntry(serverName);
+            synchronized (serverEntry) {
+                // The entry was closed in the meantime, so a new one has to be used
+                if (serverEntry.closed) {
+                    continue;
+                }
+
+                try {
+                    // Get an alive connection or replace a dead one. The sessions of a dead connection are dead as well
+                    if (serverEntry.connection == null || !serverEntry.connection.isConnected()) {
+                        serverEntry.sessionEntries.clear();
+                        serverEntry.connection = smbClient.connect(serverName);
+                    }
+
+                    // Get the session of the credentials or authenticate a new one
+                    SessionEntry sessionEntry = serverEntry.sessionEntries.get(smbCredentials);
+                    if (sessionEntry == null) {
+                        sessionEntry = new SessionEntry(serverEntry.connection.authenticate(authenticationContext));
+                        serverEntry.sessionEntries.put(smbCredentials, sessionEntry);
+                    }
+
+                    // Get the disk share or connect it again
+                    ShareEntry shareEntry = sessionEntry.shareEntries.get(shareName);
+                    if (shareEntry == null || !shareEntry.diskShare.isConnected()) {
+                        shareEntry = new ShareEntry((DiskShare) sessionEntry.session.connectShare(shareName));
+                        sessionEntry.shareEntries.put(shareName, shareEntry);
+                    }
+                    shareEntry.references++;
+                    return shareEntry.diskShare;
+                } finally {
+                    closeUnusedEntries(serverName, serverEntry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Release a previously acquired disk share. The disk share gets closed as soon it's no longer used, the session gets closed as soon it has no
+     * more disk shares and the connection gets closed as soon it has no more sessions. Releasing a disk share of an already replaced connection
+     * or session has no effect.
+     *
+     * @param serverName Server name of the server
+     * @param diskShare  Previously acquired disk share
+     * @throws IOException Exception in case of a problem
+     */
+    void releaseShare(String serverName, DiskShare diskShare) throws IOException {
+        ServerEntry serverEntry;
+        synchronized (this) {
+            serverEntry = serverEntries.get(serverName);
+        }
+        if (serverEntry == null) {
+            return;
+        }
+
+        synchronized (serverEntry) {
+            for (SessionEntry sessionEntry : serverEntry.sessionEntries.values()) {
+                for (ShareEntry shareEntry : sessionEntry.shareEntries.values()) {
+                    if (shareEntry.diskShare == diskShare) {
+                        shareEntry.references--;
+                        closeUnusedEntries(serverName, serverEntry);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Close the registry with all shared disk shares, sessions, connections and the client, even if they are still used by SMB connections.
+     *
+     * @throws IOException Exception in case of a problem
+     */
+    @Override
+    public void close() throws IOException {
+        List<ServerEntry> closedServerEntries;
+        synchronized (this) {
+            closedServerEntries = new ArrayList<>(serverEntries.values());
+            serverEntries.clear();
+        }
+        try {
+            for (ServerEntry serverEntry : closedServerEntries) {
+                synchronized (serverEntry) {
+                    serverEntry.closed = true;
+                    serverEntry.sessionEntries.clear();
+                    if (serverEntry.connection != null && serverEntry.connection.isConnected()) {
+                        serverEntry.connection.close(true);
+                    }
+                }
+            }
+        } finally {
+            smbClient.close();
+        }
+    }
+
+    /**
+     * Get the server entry of a server or create a new one. The entry is not connected yet, this happens under the lock of the entry.
+     *
+     * @param serverName Server name of the server
+     * @return Open server entry
+     */
+    private synchronized ServerEntry getServerEntry(String serverName) {
+        ServerEntry serverEntry = serverEntries.get(serverName);
+        if (serverEntry == null || serverEntry.closed) {
+            serverEntry = new ServerEntry();
+            serverEntries.put(serverName, serverEntry);
+        }
+        return serverEntry;
+    }
+
+    /**
+     * Close all unused disk shares and sessions of a server entry and the entry itself, if it has no more sessions. Has to be called with the
+     * lock of the server entry.
+     *
+     * @param serverName  Server name of the server
+     * @param serverEntry Server entry to clean up
+     * @throws IOException Exception in case of a problem
+     */
+    private void closeUnusedEntries(String serverName, ServerEntry serverEntry) throws IOException {
+        boolean connected = serverEntry.connection != null && serverEntry.connection.isConnected();
+        try {
+            for (Iterator<SessionEntry> sessionIterator = serverEntry.sessionEntries.values().iterator(); sessionIterator.hasNext(); ) {
+                SessionEntry sessionEntry = sessionIterator.next();
+                for (Iterator<ShareEntry> shareIterator = sessionEntry.shareEntries.values().iterator(); shareIterator.hasNext(); ) {
+                    ShareEntry shareEntry = shareIterator.next();
+                    if (shareEntry.references <= 0) {
+                        shareIterator.remove();
+                        if (connected && shareEntry.diskShare.isConnected()) {
+                            shareEntry.diskShare.close();
+                        }
+                    }
+                }
+                if (sessionEntry.shareEntries.isEmpty()) {
+                    sessionIterator.remove();
+                    if (connected) {
+                        sessionEntry.session.close();
+                    }
+                }
+            }
+        } finally {
+            if (serverEntry.sessionEntries.isEmpty()) {
+                serverEntry.closed = true;
+                synchronized (this) {
+                    serverEntries.remove(serverName, serverEntry);
+                }
+                if (connected) {
+                    serverEntry.connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * This class represents a shared connection and all its shared sessions.
+     */
+    private static final class ServerEntry {
+
+        /**
+         * All shared sessions, grouped by credentials. Modified under the lock of the entry, but also read for the statistics.
+         */
+        private final Map<SmbCredentials, SessionEntry> sessionEntries = new ConcurrentHashMap<>();
+
+        /**
+         * Shared connection to the server or null, if the entry is not connected yet.
+         */
+        private Connection connection;
+
+        /**
+         * Flag whether the entry was closed and removed from the registry.
+         */
+        private volatile boolean closed;
+    }
+
+    /**
+     * This class represents a shared session and all its shared disk shares.
+     */
+    private static final class SessionEntry {
+
+        /**
+         * Shared session.
+         */
+        private final Session session;
+
+        /**
+         * All shared disk shares, grouped by share name.
+         */
+        private final Map<String, ShareEntry> shareEntries = new HashMap<>();
+
+        /**
+         * Create a new session entry.
+         *
+         * @param session Shared session
+         */
+        private SessionEntry(Session session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * This class represents a shared disk share and the number of SMB connections using it.
+     */
+    private static final class ShareEntry {
+
+        /**
+         * Shared disk share.
+         */
+        private final DiskShare diskShare;
+
+        /**
+         * Number of SMB connections using the disk share.
+         */
+        private int references;
+
+        /**
+         * Create a new share entry.
+         *
+         * @param diskShare Shared disk share
+         */
+        private ShareEntry(DiskShare diskShare) {
+            this.diskShare = diskShare;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ch.swaechter.smbjwrapper;
+
+/**
+ * This interface represents a listener that receives the progress of a transfer.
+ *
+ * @author Simon Wächter
+ */
+@FunctionalInterface
+public interface SmbTransferListener {
+
+    /**
+     * Handle the progress of a transfer. The method is called from the transferring threads, but never concurrently, so a slow listener
+     * delays the transfer.
+     *
+     * @param transferProgress Current progress of the transfer
+     */
+    void onProgress(SmbTransferProgress transferProgress);
+}
@@ -0,0 +1,102 @@
+package ch.swaechter.smbjwrapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class represents the progress of a transfer with the aggregated throughput of all concurrent requests.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbTransferProgress {
+
+    /**
+     * Number of transferred bytes.
+     */
+    private final long transferredBytes;
+
+    /**
+     * Total number of bytes of the transfer.
+     */
+    private final long totalBytes;
+
+    /**
+     * Elapsed time since the start of the transfer in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Create a new transfer progress.
+     *
+     * @param transferredBytes Number of transferred bytes
+     * @param totalBytes       Total number of bytes of the transfer
+     * @param elapsedNanos     Elapsed time since the start of the transfer in nanoseconds
+     */
+    SmbTransferProgress(long transferredBytes, long totalBytes, long elapsedNanos) {
+        this.transferredBytes = transferredBytes;
+        this.totalBytes = totalBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Get the number of transferred bytes.
+     *
+     * @return Number of transferred bytes
+     */
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    /**
+     * Get the total number of bytes of the transfer.
+     *
+     * @return Total number of bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Get the elapsed time since the start of the transfer.
+     *
+     * @param timeUnit Unit of the returned time
+     * @return Elapsed time in the given unit
+     */
+    public long getElapsedTime(TimeUnit timeUnit) {
+        return timeUnit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the aggregated throughput of all concurrent requests since the start of the transfer.
+     *
+     * @return Throughput in bytes per second
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos > 0 ? transferredBytes * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * Get the completed fraction of the transfer.
+     *
+     * @return Fraction between 0 and 1
+     */
+    public double getFraction() {
+        return totalBytes > 0 ? (double) transferredBytes / totalBytes : 1;
+    }
+
+    /**
+     * Check if all bytes were transferred.
+     *
+     * @return Status of the check
+     */
+    public boolean isComplete() {
+        return transferredBytes == totalBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return transferredBytes + "/" + totalBytes + " bytes, " + Math.round(getBytesPerSecond()) + " bytes/s";
+    }
+}
@@ -0,0 +1,29 @@
+package ch.swaechter.smbjwrapper;
+
+/**
+ * This enum represents the result of a SMB item visitor that controls how a tree walk continues.
+ *
+ * @author Simon Wächter
+ */
+public enum SmbVisitResult {
+
+    /**
+     * Continue the walk.
+     */
+    CONTINUE,
+
+    /**
+     * Continue the walk without enumerating the directory. Only meaningful as result of a directory pre-visit.
+     */
+    SKIP_SUBTREE,
+
+    /**
+     * Continue the walk without visiting the remaining siblings of the item. The parent directory is still post-visited.
+     */
+    SKIP_SIBLINGS,
+
+    /**
+     * Terminate the walk immediately.
+     */
+    TERMINATE
+}
@@ -0,0 +1,130 @@
+package ch.swaechter.smbjwrapper.async;
+
+import ch.swaechter.smbjwrapper.SmbDirectory;
+import ch.swaechter.smbjwrapper.SmbFile;
+import ch.swaechter.smbjwrapper.SmbItem;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * This class represents an asynchronous facade for a SMB directory.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbAsyncDirectory extends SmbAsyncItem<SmbDirectory> {
+
+    /**
+     * Create a new asynchronous SMB directory that uses the default executor.
+     *
+     * @param smbDirectory Decorated SMB directory
+     */
+    public SmbAsyncDirectory(SmbDirectory smbDirectory) {
+        this(smbDirectory, SmbAsyncExecutors.getDefaultExecutor());
+    }
+
+    /**
+     * Create a new asynchronous SMB directory that uses a custom executor.
+     *
+     * @param smbDirectory Decorated SMB directory
+     * @param executor     Executor that executes all operations
+     */
+    public SmbAsyncDirectory(SmbDirectory smbDirectory, Executor executor) {
+        super(smbDirectory, executor);
+    }
+
+    /**
+     * Ensure asynchronously that the directory exists - if not, the path is created.
+     *
+     * @return Future that completes as soon the directory exists
+     */
+    public CompletableFuture<Void> ensureExistsAsync() {
+        return supplyAsync(() -> {
+            getSmbItem().ensureExists();
+            return null;
+        });
+    }
+
+    /**
+     * Create asynchronously the current directory.
+     *
+     * @return Future that completes as soon the directory was created
+     */
+    public CompletableFuture<Void> createDirectoryAsync() {
+        return supplyAsync(() -> {
+            getSmbItem().createDirectory();
+            return null;
+        });
+    }
+
+    /**
+     * Delete asynchronously the current directory with all its subdirectories and subfiles.
+     *
+     * @return Future that completes as soon the directory was deleted
+     */
+    public CompletableFuture<Void> deleteDirectoryRecursivelyAsync() {
+        return supplyAsync(() -> {
+            getSmbItem().deleteDirectoryRecursively();
+            return null;
+        });
+    }
+
+    /**
+     * Get asynchronously all directories of the current directory.
+     *
+     * @return Future with a list of all directories
+     */
+    public CompletableFuture<List<SmbDirectory>> getDirectoriesAsync() {
+        return supplyAsync(getSmbItem()::getDirectories);
+    }
+
+    /**
+     * Get asynchronously all files of the current directory.
+     *
+     * @return Future with a list of all files
+     */
+    public CompletableFuture<List<SmbFile>> getFilesAsync() {
+        return supplyAsync(getSmbItem()::getFiles);
+    }
+
+    /**
+     * List asynchronously all files and directories of the current directory. No recursive search or filtering is performed.
+     *
+     * @return Future with a flat list of all files and directories of the current directory
+     */
+    public CompletableFuture<List<SmbItem>> listItemsAsync() {
+        return supplyAsync(getSmbItem()::listItems);
+    }
+
+    /**
+     * List asynchronously all files and directories that match the search predicate.
+     *
+     * @param searchPredicate Search predicate that is used for testing
+     * @param searchRecursive Flag to search recursive
+     * @return Future with a flat list of all matching files and directories
+     */
+    public CompletableFuture<List<SmbItem>> listItemsAsync(Predicate<SmbItem> searchPredicate, boolean searchRecursive) {
+        return supplyAsync(() -> getSmbItem().listItems(searchPredicate, searchRecursive));
+    }
+
+    /**
+     * List asynchronously all files and directories that match the search pattern.
+     *
+     * @param searchPattern   Search regex pattern that is used for matching
+     * @param searchRecursive Flag to search recursive
+     * @return Future with a flat list of all matching files and directories
+     */
+    public CompletableFuture<List<SmbItem>> listItemsAsync(String searchPattern, boolean searchRecursive) {
+        return supplyAsync(() -> getSmbItem().listItems(searchPattern, searchRecursive));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<SmbAsyncDirectory> renameToAsync(String newDirectoryName, boolean replaceIfExist) {
+        return supplyAsync(() -> new SmbAsyncDirectory(getSmbItem().renameTo(newDirectoryName, replaceIfExist), getExecutor()));
+    }
+}
@@ -0,0 +1,46 @@
+package ch.swaechter.smbjwrapper.async;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class provides the default executor of the asynchronous API. On Java 8 to 20, a cached pool of daemon threads is used. The multi-release
+ * jar contains a Java 21 variant of this class that uses virtual threads instead.
+ *
+ * @author Simon Wächter
+ */
+public class SmbAsyncExecutors {
+
+    /**
+     * Counter used to name the threads of the default executor.
+     */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * Shared default executor.
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "smbjwrapper-async-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Get the shared default executor that is used if no custom executor is passed to an asynchronous SMB item.
+     *
+     * @return Shared default executor
+     */
+    public static ExecutorService getDefaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Check if the default executor uses virtual threads.
+     *
+     * @return Status of the check
+     */
+    public static boolean isUsingVirtualThreads() {
+        return false;
+    }
+}
@@ -0,0 +1,140 @@
+package ch.swaechter.smbjwrapper.async;
+
+import ch.swaechter.smbjwrapper.SmbFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * This class represents an asynchronous facade for a SMB file.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbAsyncFile extends SmbAsyncItem<SmbFile> {
+
+    /**
+     * Size of the buffer used to read the file content.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Create a new asynchronous SMB file that uses the default executor.
+     *
+     * @param smbFile Decorated SMB file
+     */
+    public SmbAsyncFile(SmbFile smbFile) {
+        this(smbFile, SmbAsyncExecutors.getDefaultExecutor());
+    }
+
+    /**
+     * Create a new asynchronous SMB file that uses a custom executor.
+     *
+     * @param smbFile  Decorated SMB file
+     * @param executor Executor that executes all operations
+     */
+    public SmbAsyncFile(SmbFile smbFile, Executor executor) {
+        super(smbFile, executor);
+    }
+
+    /**
+     * Create asynchronously a new file.
+     *
+     * @return Future that completes as soon the file was created
+     */
+    public CompletableFuture<Void> createFileAsync() {
+        return supplyAsync(() -> {
+            getSmbItem().createFile();
+            return null;
+        });
+    }
+
+    /**
+     * Delete asynchronously the current file.
+     *
+     * @return Future that completes as soon the file was deleted
+     */
+    public CompletableFuture<Void> deleteFileAsync() {
+        return supplyAsync(() -> {
+            getSmbItem().deleteFile();
+            return null;
+        });
+    }
+
+    /**
+     * Copy asynchronously the current file to another file on the same server share via server side copy.
+     *
+     * @param destinationSmbFile Other file on the same server share
+     * @return Future that completes as soon the file was copied
+     */
+    public CompletableFuture<Void> copyFileViaServerSideCopyAsync(SmbFile destinationSmbFile) {
+        return supplyAsync(() -> {
+            getSmbItem().copyFileViaServerSideCopy(destinationSmbFile);
+            return null;
+        });
+    }
+
+    /**
+     * Read asynchronously the whole content of the file.
+     *
+     * @return Future with the content of the file
+     */
+    public CompletableFuture<byte[]> readAllAsync() {
+        return supplyAsync(() -> {
+            try (InputStream inputStream = getSmbItem().getInputStream()) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int length;
+                while ((length = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, length);
+                }
+                return outputStream.toByteArray();
+            }
+        });
+    }
+
+    /**
+     * Write asynchronously the content to the file and overwrite the existing content.
+     *
+     * @param content Content to write
+     * @return Future that completes as soon the content was written
+     */
+    public CompletableFuture<Void> writeAllAsync(byte[] content) {
+        return writeAllAsync(content, false);
+    }
+
+    /**
+     * Write asynchronously the content to the file and append or overwrite the existing content.
+     *
+     * @param content       Content to write
+     * @param appendContent Append content or overwrite it
+     * @return Future that completes as soon the content was written
+     */
+    public CompletableFuture<Void> writeAllAsync(byte[] content, boolean appendContent) {
+        return supplyAsync(() -> {
+            try (OutputStream outputStream = getSmbItem().getOutputStream(appendContent)) {
+                outputStream.write(content);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Get asynchronously the file size of the SMB file.
+     *
+     * @return Future with the file size in bytes
+     */
+    public CompletableFuture<Long> getFileSizeAsync() {
+        return supplyAsync(getSmbItem()::getFileSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<SmbAsyncFile> renameToAsync(String newFileName, boolean replaceIfExist) {
+        return supplyAsync(() -> new SmbAsyncFile(getSmbItem().renameTo(newFileName, replaceIfExist), getExecutor()));
+    }
+}
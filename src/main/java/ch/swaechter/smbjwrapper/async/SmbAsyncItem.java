@@ -0,0 +1,178 @@
+package ch.swaechter.smbjwrapper.async;
+
+import ch.swaechter.smbjwrapper.SmbItem;
+import ch.swaechter.smbjwrapper.SmbItemAttributes;
+import ch.swaechter.smbjwrapper.SmbItemType;
+import com.hierynomus.msdtyp.FileTime;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * This class provides a common abstracted asynchronous facade for a SMB directory/file like node. Every operation is executed on the executor
+ * of the facade and returns a completable future, so network round trips can overlap without blocking the calling thread.
+ *
+ * @param <T> Type of the decorated SMB item
+ * @author Simon Wächter
+ */
+public abstract class SmbAsyncItem<T extends SmbItem> {
+
+    /**
+     * Decorated SMB item.
+     */
+    private final T smbItem;
+
+    /**
+     * Executor that executes all operations.
+     */
+    private final Executor executor;
+
+    /**
+     * Create a new asynchronous SMB item based on the decorated SMB item and the executor.
+     *
+     * @param smbItem  Decorated SMB item
+     * @param executor Executor that executes all operations
+     */
+    protected SmbAsyncItem(T smbItem, Executor executor) {
+        this.smbItem = smbItem;
+        this.executor = executor;
+    }
+
+    /**
+     * Get the decorated SMB item.
+     *
+     * @return Decorated SMB item
+     */
+    public T getSmbItem() {
+        return smbItem;
+    }
+
+    /**
+     * Get the executor that executes all operations.
+     *
+     * @return Executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Query asynchronously the type of the SMB item path on the server.
+     *
+     * @return Future with the type of the SMB item path
+     */
+    public CompletableFuture<SmbItemType> statAsync() {
+        return supplyAsync(smbItem::stat);
+    }
+
+    /**
+     * Check asynchronously if the SMB item does exist.
+     *
+     * @return Future with the status of the check
+     */
+    public CompletableFuture<Boolean> isExistingAsync() {
+        return supplyAsync(smbItem::isExisting);
+    }
+
+    /**
+     * Check asynchronously if the SMB item is a directory.
+     *
+     * @return Future with the status of the check
+     */
+    public CompletableFuture<Boolean> isDirectoryAsync() {
+        return supplyAsync(smbItem::isDirectory);
+    }
+
+    /**
+     * Check asynchronously if the SMB item is a file.
+     *
+     * @return Future with the status of the check
+     */
+    public CompletableFuture<Boolean> isFileAsync() {
+        return supplyAsync(smbItem::isFile);
+    }
+
+    /**
+     * Check asynchronously if the SMB item is hidden on an SMB level.
+     *
+     * @return Future with the status of the check
+     */
+    public CompletableFuture<Boolean> isHiddenAsync() {
+        return supplyAsync(smbItem::isHidden);
+    }
+
+    /**
+     * Read asynchronously all attributes of the SMB item with a single server round trip and attach the snapshot to the item.
+     *
+     * @return Future with the attribute snapshot
+     */
+    public CompletableFuture<SmbItemAttributes> readAttributesAsync() {
+        return supplyAsync(smbItem::readAttributes);
+    }
+
+    /**
+     * Get asynchronously the creation time of the SMB item.
+     *
+     * @return Future with the creation time of the SMB item
+     */
+    public CompletableFuture<FileTime> getCreationTimeAsync() {
+        return supplyAsync(smbItem::getCreationTime);
+    }
+
+    /**
+     * Get asynchronously the last access time of the SMB item.
+     *
+     * @return Future with the last access time of the SMB item
+     */
+    public CompletableFuture<FileTime> getLastAccessTimeAsync() {
+        return supplyAsync(smbItem::getLastAccessTime);
+    }
+
+    /**
+     * Get asynchronously the last write time of the SMB item.
+     *
+     * @return Future with the last write time of the SMB item
+     */
+    public CompletableFuture<FileTime> getLastWriteTimeAsync() {
+        return supplyAsync(smbItem::getLastWriteTime);
+    }
+
+    /**
+     * Get asynchronously the change time of the SMB item.
+     *
+     * @return Future with the change time of the SMB item
+     */
+    public CompletableFuture<FileTime> getChangeTimeAsync() {
+        return supplyAsync(smbItem::getChangeTime);
+    }
+
+    /**
+     * Rename asynchronously the current item and return it as newly renamed asynchronous item.
+     *
+     * @param newItemName    New item name
+     * @param replaceIfExist Flag to replace an existing path of the same type (File/Directory)
+     * @return Future with the newly renamed asynchronous SMB item
+     */
+    public abstract CompletableFuture<? extends SmbAsyncItem<T>> renameToAsync(String newItemName, boolean replaceIfExist);
+
+    /**
+     * Execute an operation on the executor. Checked exceptions of the operation complete the future exceptionally.
+     *
+     * @param callable Operation to execute
+     * @param <R>      Type of the operation result
+     * @return Future with the operation result
+     */
+    protected <R> CompletableFuture<R> supplyAsync(Callable<R> callable) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return callable.call();
+            } catch (RuntimeException exception) {
+                throw exception;
+            } catch (Exception exception) {
+                throw new CompletionException(exception);
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,759 @@
+package ch.swaechter.smbjwrapper.catalog;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+import ch.swaechter.smbjwrapper.SmbDirectory;
+import ch.swaechter.smbjwrapper.SmbFile;
+import ch.swaechter.smbjwrapper.SmbItem;
+import ch.swaechter.smbjwrapper.scan.SmbScanEntry;
+import ch.swaechter.smbjwrapper.scan.SmbScanSnapshot;
+import ch.swaechter.smbjwrapper.utils.SmbUtils;
+import com.hierynomus.msdtyp.FileTime;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntToLongFunction;
+
+/**
+ * This class represents a memory mapped catalog of a directory tree that answers name, size and time queries locally. The item names are
+ * interned into a sorted name table and each entry only references its name and parent entry, so repeated names and directory paths are
+ * stored once. The entries are sorted by path and additionally indexed by name, file size and last write time, so most queries are answered by
+ * a binary search instead of a full scan.
+ * <p>
+ * The catalog path refers to a small pointer file that names the current version of the catalog. Each version is written to its own data
+ * file next to the pointer file and the pointer file is switched afterwards, so a data file that is still mapped is never replaced, which
+ * Windows would refuse. Outdated versions are removed with the next write as soon they are no longer mapped.
+ * <p>
+ * Note: The catalog is thread safe. The mapped file is released by the garbage collector after the catalog was closed.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbCatalog implements AutoCloseable {
+
+    /**
+     * Magic number that identifies a catalog file.
+     */
+    private static final int MAGIC_NUMBER = 0x534D4243;
+
+    /**
+     * Version of the catalog format.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Magic number that identifies a catalog pointer file.
+     */
+    private static final int POINTER_MAGIC_NUMBER = 0x534D4250;
+
+    /**
+     * Size of the fixed header fields in bytes.
+     */
+    private static final int HEADER_SIZE = 36;
+
+    /**
+     * Size of all columns of a single entry in bytes.
+     */
+    private static final int ENTRY_SIZE = 53;
+
+    /**
+     * Flag of a directory entry.
+     */
+    private static final byte FLAG_DIRECTORY = 1;
+
+    /**
+     * Order of the name table. Names are ordered case insensitive, so all names with the same prefix are adjacent.
+     */
+    private static final Comparator<String> NAME_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    /**
+     * Channel of the mapped catalog file.
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * Mapped content of the catalog file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Path of the cataloged root directory.
+     */
+    private final String rootPath;
+
+    /**
+     * Change time of the cataloged root directory as Windows timestamp in 100 nanosecond intervals since 1601.
+     */
+    private final long rootChangeTime;
+
+    /**
+     * Server side file ID of the cataloged root directory.
+     */
+    private final long rootFileId;
+
+    /**
+     * Number of entries.
+     */
+    private final int entryCount;
+
+    /**
+     * Number of interned names.
+     */
+    private final int nameCount;
+
+    /**
+     * Offset of the name offset table.
+     */
+    private final int nameOffsetsOffset;
+
+    /**
+     * Offset of the UTF-8 encoded names.
+     */
+    private final int nameBytesOffset;
+
+    /**
+     * Offset of the first entry column.
+     */
+    private final int columnsOffset;
+
+    /**
+     * Flag whether the catalog was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create a new catalog from a mapped catalog file and validate its header.
+     *
+     * @param fileChannel Channel of the mapped catalog file
+     * @param buffer      Mapped content of the catalog file
+     * @throws IOException Exception in case of an invalid format
+     */
+    private SmbCatalog(FileChannel fileChannel, ByteBuffer buffer) throws IOException {
+        this.fileChannel = fileChannel;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC_NUMBER || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("The file does not contain a supported catalog");
+        }
+        this.rootChangeTime = buffer.getLong(8);
+        this.rootFileId = buffer.getLong(16);
+        this.entryCount = buffer.getInt(24);
+        this.nameCount = buffer.getInt(28);
+        int rootPathLength = buffer.getInt(32);
+        if (entryCount < 0 || nameCount < 0 || rootPathLength < 0 || HEADER_SIZE + (long) rootPathLength + 4L * (nameCount + 1) > buffer.capacity()) {
+            throw new IOException("The catalog is truncated");
+        }
+        this.rootPath = decodeString(HEADER_SIZE, rootPathLength);
+        this.nameOffsetsOffset = HEADER_SIZE + rootPathLength;
+        this.nameBytesOffset = nameOffsetsOffset + 4 * (nameCount + 1);
+        this.columnsOffset = nameBytesOffset + buffer.getInt(nameOffsetsOffset + 4 * nameCount);
+        if (columnsOffset < nameBytesOffset || columnsOffset + (long) ENTRY_SIZE * entryCount != buffer.capacity()) {
+            throw new IOException("The catalog is truncated");
+        }
+    }
+
+    /**
+     * Open and map the current version of a catalog.
+     *
+     * @param catalogPath Path of the catalog pointer file
+     * @return Opened catalog that has to be closed
+     * @throws IOException Exception in case of an IO problem or an invalid format
+     */
+    public static SmbCatalog open(Path catalogPath) throws IOException {
+        FileChannel fileChannel = FileChannel.open(getDataPath(catalogPath, readVersion(catalogPath)), StandardOpenOption.READ);
+        try {
+            long fileSize = fileChannel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("The catalog is too large to be mapped");
+            }
+            return new SmbCatalog(fileChannel, fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize));
+        } catch (IOException | RuntimeException exception) {
+            fileChannel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Get the path of the cataloged root directory.
+     *
+     * @return Path of the root directory
+     */
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * Get the change time of the cataloged root directory.
+     *
+     * @return Change time as Windows timestamp in 100 nanosecond intervals since 1601
+     */
+    public long getRootChangeTime() {
+        return rootChangeTime;
+    }
+
+    /**
+     * Get the server side file ID of the cataloged root directory.
+     *
+     * @return Server side file ID of the root directory
+     */
+    public long getRootFileId() {
+        return rootFileId;
+    }
+
+    /**
+     * Get the number of cataloged entries.
+     *
+     * @return Number of entries
+     */
+    public int getSize() {
+        return entryCount;
+    }
+
+    /**
+     * Find all entries that match the query.
+     *
+     * @param catalogQuery Query with the criteria
+     * @return List with the matching entries, sorted by path
+     * @throws IllegalStateException Exception in case the catalog was already closed
+     */
+    public List<SmbScanEntry> findEntries(SmbCatalogQuery catalogQuery) {
+        ensureOpen();
+
+        // Match each interned name once and select the candidates via the most selective index
+        BitSet matchingNameIds = catalogQuery.getNamePattern() != null ? findMatchingNameIds(catalogQuery.getNamePattern()) : null;
+        BitSet candidates = findCandidates(catalogQuery, matchingNameIds);
+
+        // Check the remaining criteria of each candidate, the candidates are already in path order
+        List<SmbScanEntry> entries = new ArrayList<>();
+        Map<Integer, String> directoryPaths = new HashMap<>();
+        for (int index = candidates.nextSetBit(0); index >= 0; index = candidates.nextSetBit(index + 1)) {
+            if (matchingNameIds != null && !matchingNameIds.get(getNameId(index))) {
+                continue;
+            }
+            if (catalogQuery.matchesAttributes(isDirectory(index), getFileSize(index), getLastWriteTimeMillis(index))) {
+                entries.add(getEntry(index, directoryPaths));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Find all items that match the query and return them as handles bound to a connection.
+     *
+     * @param smbConnection SMB connection the handles are bound to
+     * @param catalogQuery  Query with the criteria
+     * @return List with the matching files and directories, sorted by path
+     * @throws IllegalStateException Exception in case the catalog was already closed
+     */
+    public List<SmbItem> find(SmbConnection smbConnection, SmbCatalogQuery catalogQuery) {
+        List<SmbItem> smbItems = new ArrayList<>();
+        for (SmbScanEntry entry : findEntries(catalogQuery)) {
+            smbItems.add(entry.isDirectory() ? new SmbDirectory(smbConnection, entry.getPath()) : new SmbFile(smbConnection, entry.getPath()));
+        }
+        return smbItems;
+    }
+
+    /**
+     * Convert the catalog to a scan snapshot, so it can be used as base of an incremental scan.
+     *
+     * @return Snapshot with all entries
+     * @throws IllegalStateException Exception in case the catalog was already closed
+     */
+    public SmbScanSnapshot toSnapshot() {
+        ensureOpen();
+        List<SmbScanEntry> entries = new ArrayList<>(entryCount);
+        Map<Integer, String> directoryPaths = new HashMap<>();
+        for (int index = 0; index < entryCount; index++) {
+            entries.add(getEntry(index, directoryPaths));
+        }
+        return SmbScanSnapshot.fromEntries(rootPath, rootChangeTime, rootFileId, entries);
+    }
+
+    /**
+     * Close the catalog file. Closing the catalog multiple times has no effect.
+     *
+     * @throws IOException Exception in case of an IO problem
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        fileChannel.close();
+    }
+
+    /**
+     * Delete a catalog with all its versions. The catalog has to be closed, otherwise Windows refuses to delete the mapped data file.
+     *
+     * @param catalogPath Path of the catalog pointer file
+     * @throws IOException Exception in case of an IO problem
+     */
+    public static void delete(Path catalogPath) throws IOException {
+        Files.deleteIfExists(catalogPath);
+        for (Path dataPath : findDataPaths(catalogPath).values()) {
+            Files.deleteIfExists(dataPath);
+        }
+    }
+
+    /**
+     * Write a snapshot as new version of a catalog. The version is written to its own data file and the pointer file is switched afterwards, so
+     * an open catalog is neither overwritten partially nor replaced while it's mapped. Outdated versions that are no longer mapped are removed.
+     *
+     * @param catalogPath Path of the catalog pointer file
+     * @param snapshot    Snapshot with the entries
+     * @throws IOException Exception in case of an IO problem
+     */
+    static void write(Path catalogPath, SmbScanSnapshot snapshot) throws IOException {
+        // Sort the entries by path, so each parent directory precedes its entries
+        List<SmbScanEntry> entries = new ArrayList<>(snapshot.getEntries());
+        entries.sort(Comparator.comparing(SmbScanEntry::getPath));
+        int entryCount = entries.size();
+
+        // Intern the names and resolve the parent entries
+        TreeMap<String, Integer> nameIds = new TreeMap<>(NAME_ORDER);
+        Map<String, Integer> entryIndexes = new HashMap<>();
+        int[] parents = new int[entryCount];
+        String[] names = new String[entryCount];
+        for (int index = 0; index < entryCount; index++) {
+            String path = entries.get(index).getPath();
+            int lastIndex = path.lastIndexOf('/');
+            String parentPath = lastIndex != -1 ? path.substring(0, lastIndex) : "";
+            if (parentPath.equals(snapshot.getRootPath())) {
+                parents[index] = -1;
+            } else if (entryIndexes.containsKey(parentPath)) {
+                parents[index] = entryIndexes.get(parentPath);
+            } else {
+                throw new IllegalArgumentException("The snapshot contains an entry without parent directory: " + path);
+            }
+            names[index] = path.substring(lastIndex + 1);
+            nameIds.put(names[index], 0);
+            entryIndexes.put(path, index);
+        }
+        List<byte[]> encodedNames = new ArrayList<>(nameIds.size());
+        for (Map.Entry<String, Integer> nameId : nameIds.entrySet()) {
+            nameId.setValue(encodedNames.size());
+            encodedNames.add(nameId.getKey().getBytes(StandardCharsets.UTF_8));
+        }
+        int[] entryNameIds = new int[entryCount];
+        for (int index = 0; index < entryCount; index++) {
+            entryNameIds[index] = nameIds.get(names[index]);
+        }
+
+        // Build the sorted indexes
+        Integer[] byName = sortedIndexes(entryCount, Comparator.comparingInt(index -> entryNameIds[index]));
+        Integer[] byFileSize = sortedIndexes(entryCount, Comparator.comparingLong(index -> entries.get(index).getFileSize()));
+        Integer[] byLastWriteTime = sortedIndexes(entryCount, Comparator.comparingLong(index -> entries.get(index).getLastWriteTime()));
+
+        // Never reuse the data file of an existing version, it might still be mapped
+        TreeMap<Long, Path> dataPaths = findDataPaths(catalogPath);
+        long version = dataPaths.isEmpty() ? 1 : dataPaths.lastKey() + 1;
+        Path dataPath = getDataPath(catalogPath, version);
+        try (DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)))) {
+            // Write the header and the name table
+            byte[] encodedRootPath = snapshot.getRootPath().getBytes(StandardCharsets.UTF_8);
+            dataOutputStream.writeInt(MAGIC_NUMBER);
+            dataOutputStream.writeInt(FORMAT_VERSION);
+            dataOutputStream.writeLong(snapshot.getRootChangeTime());
+            dataOutputStream.writeLong(snapshot.getRootFileId());
+            dataOutputStream.writeInt(entryCount);
+            dataOutputStream.writeInt(encodedNames.size());
+            dataOutputStream.writeInt(encodedRootPath.length);
+            dataOutputStream.write(encodedRootPath);
+            int nameOffset = 0;
+            for (byte[] encodedName : encodedNames) {
+                dataOutputStream.writeInt(nameOffset);
+                nameOffset += encodedName.length;
+            }
+            dataOutputStream.writeInt(nameOffset);
+            for (byte[] encodedName : encodedNames) {
+                dataOutputStream.write(encodedName);
+            }
+
+            // Write the entry columns
+            for (int parent : parents) {
+                dataOutputStream.writeInt(parent);
+            }
+            for (int entryNameId : entryNameIds) {
+                dataOutputStream.writeInt(entryNameId);
+            }
+            for (SmbScanEntry entry : entries) {
+                dataOutputStream.writeLong(entry.getFileSize());
+            }
+            for (SmbScanEntry entry : entries) {
+                dataOutputStream.writeLong(entry.getLastWriteTime());
+            }
+            for (SmbScanEntry entry : entries) {
+                dataOutputStream.writeLong(entry.getChangeTime());
+            }
+            for (SmbScanEntry entry : entries) {
+                dataOutputStream.writeLong(entry.getFileId());
+            }
+            for (SmbScanEntry entry : entries) {
+                dataOutputStream.writeByte(entry.isDirectory() ? FLAG_DIRECTORY : 0);
+            }
+
+            // Write the sorted indexes
+            for (Integer[] sortedIndexes : Arrays.asList(byName, byFileSize, byLastWriteTime)) {
+                for (int index : sortedIndexes) {
+                    dataOutputStream.writeInt(index);
+                }
+            }
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(dataPath);
+            throw exception;
+        }
+
+        // Switch the pointer file, it's never mapped and only open while a catalog is opened
+        Path temporaryPath = catalogPath.resolveSibling(catalogPath.getFileName() + ".tmp");
+        try (DataOutputStream dataOutputStream = new DataOutputStream(Files.newOutputStream(temporaryPath))) {
+            dataOutputStream.writeInt(POINTER_MAGIC_NUMBER);
+            dataOutputStream.writeLong(version);
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(temporaryPath);
+            Files.deleteIfExists(dataPath);
+            throw exception;
+        }
+        try {
+            Files.move(temporaryPath, catalogPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temporaryPath, catalogPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // Remove the outdated versions, a version that is still mapped on Windows is removed with a later write
+        for (Path outdatedPath : dataPaths.values()) {
+            try {
+                Files.deleteIfExists(outdatedPath);
+            } catch (IOException exception) {
+                // The outdated version is still mapped by an open catalog, Windows reports this as denied access or sharing violation
+            }
+        }
+    }
+
+    /**
+     * Read the current version of a catalog from its pointer file.
+     *
+     * @param catalogPath Path of the catalog pointer file
+     * @return Current version
+     * @throws IOException Exception in case of an IO problem or an invalid pointer file
+     */
+    private static long readVersion(Path catalogPath) throws IOException {
+        try (DataInputStream dataInputStream = new DataInputStream(Files.newInputStream(catalogPath))) {
+            if (dataInputStream.readInt() != POINTER_MAGIC_NUMBER) {
+                throw new IOException("The file does not contain a supported catalog");
+            }
+            return dataInputStream.readLong();
+        } catch (EOFException exception) {
+            throw new IOException("The file does not contain a supported catalog", exception);
+        }
+    }
+
+    /**
+     * Get the path of the data file of a catalog version.
+     *
+     * @param catalogPath Path of the catalog pointer file
+     * @param version     Version of the catalog
+     * @return Path of the data file
+     */
+    private static Path getDataPath(Path catalogPath, long version) {
+        return catalogPath.resolveSibling(catalogPath.getFileName() + "." + version);
+    }
+
+    /**
+     * Find the data files of all versions of a catalog.
+     *
+     * @param catalogPath Path of the catalog pointer file
+     * @return Data files, sorted by version
+     * @throws IOException Exception in case of an IO problem
+     */
+    private static TreeMap<Long, Path> findDataPaths(Path catalogPath) throws IOException {
+        TreeMap<Long, Path> dataPaths = new TreeMap<>();
+        Path directoryPath = catalogPath.toAbsolutePath().getParent();
+        String prefix = catalogPath.getFileName() + ".";
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directoryPath)) {
+            for (Path path : directoryStream) {
+                String fileName = path.getFileName().toString();
+                String suffix = fileName.substring(Math.min(prefix.length(), fileName.length()));
+                if (fileName.startsWith(prefix) && !suffix.isEmpty() && suffix.length() < 19 && suffix.chars().allMatch(character -> character >= '0' && character <= '9')) {
+                    dataPaths.put(Long.parseLong(suffix), catalogPath.resolveSibling(fileName));
+                }
+            }
+        }
+        return dataPaths;
+    }
+
+    /**
+     * Sort the entry indexes with a stable order.
+     *
+     * @param entryCount Number of entries
+     * @param comparator Comparator of the entry indexes
+     * @return Sorted entry indexes
+     */
+    private static Integer[] sortedIndexes(int entryCount, Comparator<Integer> comparator) {
+        Integer[] indexes = new Integer[entryCount];
+        for (int index = 0; index < entryCount; index++) {
+            indexes[index] = index;
+        }
+        Arrays.sort(indexes, comparator);
+        return indexes;
+    }
+
+    /**
+     * Find the IDs of all interned names that match a wildcard pattern. The literal prefix of the pattern limits the search to a range of the
+     * sorted name table.
+     *
+     * @param namePattern Wildcard pattern with * and ?
+     * @return IDs of the matching names
+     */
+    private BitSet findMatchingNameIds(String namePattern) {
+        String literalPrefix = getLiteralPrefix(namePattern);
+        BitSet matchingNameIds = new BitSet(nameCount);
+        for (int nameId = findFirstNameId(literalPrefix); nameId < nameCount; nameId++) {
+            String name = getName(nameId);
+            if (!name.regionMatches(true, 0, literalPrefix, 0, literalPrefix.length())) {
+                break;
+            }
+            if (SmbUtils.matchesWildcard(name, namePattern)) {
+                matchingNameIds.set(nameId);
+            }
+        }
+        return matchingNameIds;
+    }
+
+    /**
+     * Select the candidate entries of a query via the name, file size or last write time index.
+     *
+     * @param catalogQuery    Query with the criteria
+     * @param matchingNameIds IDs of the matching names or null
+     * @return Candidate entries
+     */
+    private BitSet findCandidates(SmbCatalogQuery catalogQuery, BitSet matchingNameIds) {
+        BitSet candidates = new BitSet(entryCount);
+        if (matchingNameIds != null && !getLiteralPrefix(catalogQuery.getNamePattern()).isEmpty()) {
+            // The matching names are in a narrow range of the name table
+            if (!matchingNameIds.isEmpty()) {
+                int byNameOffset = columnsOffset + 41 * entryCount;
+                int firstNameId = matchingNameIds.nextSetBit(0);
+                int lastNameId = matchingNameIds.length() - 1;
+                for (int position = findLowerBound(byNameOffset, this::getNameId, firstNameId); position < entryCount; position++) {
+                    int index = buffer.getInt(byNameOffset + 4 * position);
+                    if (getNameId(index) > lastNameId) {
+                        break;
+                    }
+                    candidates.set(index);
+                }
+            }
+        } else if (catalogQuery.isFileSizeBounded()) {
+            addRange(candidates, columnsOffset + 45 * entryCount, this::getFileSize, catalogQuery.getMinFileSize(), catalogQuery.getMaxFileSize());
+        } else if (catalogQuery.isLastWriteTimeBounded()) {
+            addRange(candidates, columnsOffset + 49 * entryCount, this::getLastWriteTimeMillis, catalogQuery.getMinLastWriteTime(), catalogQuery.getMaxLastWriteTime());
+        } else {
+            candidates.set(0, entryCount);
+        }
+        return candidates;
+    }
+
+    /**
+     * Add all entries of a sorted index whose key is within a range.
+     *
+     * @param candidates   Candidate entries the entries are added to
+     * @param sortedOffset Offset of the sorted index
+     * @param keyFunction  Function that returns the key of an entry
+     * @param minKey       Minimum key
+     * @param maxKey       Maximum key
+     */
+    private void addRange(BitSet candidates, int sortedOffset, IntToLongFunction keyFunction, long minKey, long maxKey) {
+        for (int position = findLowerBound(sortedOffset, keyFunction, minKey); position < entryCount; position++) {
+            int index = buffer.getInt(sortedOffset + 4 * position);
+            if (keyFunction.applyAsLong(index) > maxKey) {
+                break;
+            }
+            candidates.set(index);
+        }
+    }
+
+    /**
+     * Find the first position of a sorted index whose key is equal or greater than a key.
+     *
+     * @param sortedOffset Offset of the sorted index
+     * @param keyFunction  Function that returns the key of an entry
+     * @param key          Searched key
+     * @return First position or the number of entries, if all keys are smaller
+     */
+    private int findLowerBound(int sortedOffset, IntToLongFunction keyFunction, long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyFunction.applyAsLong(buffer.getInt(sortedOffset + 4 * middle)) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find the first ID of the sorted name table whose name is equal or greater than a prefix.
+     *
+     * @param prefix Searched prefix
+     * @return First name ID or the number of names, if all names are smaller
+     */
+    private int findFirstNameId(String prefix) {
+        int low = 0;
+        int high = nameCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(getName(middle), prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the literal prefix of a wildcard pattern that precedes the first wildcard.
+     *
+     * @param namePattern Wildcard pattern
+     * @return Literal prefix, which might be empty
+     */
+    private static String getLiteralPrefix(String namePattern) {
+        for (int i = 0; i < namePattern.length(); i++) {
+            char character = namePattern.charAt(i);
+            if (character == '*' || character == '?') {
+                return namePattern.substring(0, i);
+            }
+        }
+        return namePattern;
+    }
+
+    /**
+     * Build the scan entry of a catalog entry.
+     *
+     * @param index          Index of the entry
+     * @param directoryPaths Cache with the resolved paths of the parent directories
+     * @return Scan entry
+     */
+    private SmbScanEntry getEntry(int index, Map<Integer, String> directoryPaths) {
+        int parentIndex = buffer.getInt(columnsOffset + 4 * index);
+        String parentPath = rootPath;
+        if (parentIndex != -1) {
+            parentPath = directoryPaths.get(parentIndex);
+            if (parentPath == null) {
+                parentPath = getEntry(parentIndex, directoryPaths).getPath();
+                directoryPaths.put(parentIndex, parentPath);
+            }
+        }
+        String name = getName(getNameId(index));
+        String path = parentPath.isEmpty() ? name : parentPath + "/" + name;
+        long changeTime = buffer.getLong(columnsOffset + 24 * entryCount + 8 * index);
+        long fileId = buffer.getLong(columnsOffset + 32 * entryCount + 8 * index);
+        return new SmbScanEntry(path, isDirectory(index), getFileSize(index), getLastWriteTime(index), changeTime, fileId);
+    }
+
+    /**
+     * Get the name ID of an entry.
+     *
+     * @param index Index of the entry
+     * @return Name ID
+     */
+    private int getNameId(int index) {
+        return buffer.getInt(columnsOffset + 4 * entryCount + 4 * index);
+    }
+
+    /**
+     * Get the file size of an entry.
+     *
+     * @param index Index of the entry
+     * @return File size in bytes
+     */
+    private long getFileSize(int index) {
+        return buffer.getLong(columnsOffset + 8 * entryCount + 8 * index);
+    }
+
+    /**
+     * Get the last write time of an entry.
+     *
+     * @param index Index of the entry
+     * @return Last write time as Windows timestamp in 100 nanosecond intervals since 1601
+     */
+    private long getLastWriteTime(int index) {
+        return buffer.getLong(columnsOffset + 16 * entryCount + 8 * index);
+    }
+
+    /**
+     * Get the last write time of an entry like it's queried. The conversion preserves the order of the last write time index.
+     *
+     * @param index Index of the entry
+     * @return Last write time in milliseconds since the epoch
+     */
+    private long getLastWriteTimeMillis(int index) {
+        return new FileTime(getLastWriteTime(index)).toEpochMillis();
+    }
+
+    /**
+     * Check if an entry is a directory.
+     *
+     * @param index Index of the entry
+     * @return Status of the check
+     */
+    private boolean isDirectory(int index) {
+        return buffer.get(columnsOffset + 40 * entryCount + index) == FLAG_DIRECTORY;
+    }
+
+    /**
+     * Get an interned name.
+     *
+     * @param nameId ID of the name
+     * @return Name
+     */
+    private String getName(int nameId) {
+        int startOffset = buffer.getInt(nameOffsetsOffset + 4 * nameId);
+        int endOffset = buffer.getInt(nameOffsetsOffset + 4 * (nameId + 1));
+        return decodeString(nameBytesOffset + startOffset, endOffset - startOffset);
+    }
+
+    /**
+     * Decode an UTF-8 encoded string of the mapped content.
+     *
+     * @param offset Offset of the string
+     * @param length Length of the string in bytes
+     * @return Decoded string
+     */
+    private String decodeString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicatedBuffer = buffer.duplicate();
+        ((Buffer) duplicatedBuffer).position(offset);
+        duplicatedBuffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ensure that the catalog was not closed yet.
+     *
+     * @throws IllegalStateException Exception in case the catalog was already closed
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The catalog was already closed");
+        }
+    }
+}
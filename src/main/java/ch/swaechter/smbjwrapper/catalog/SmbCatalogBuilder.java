@@ -0,0 +1,84 @@
+package ch.swaechter.smbjwrapper.catalog;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+import ch.swaechter.smbjwrapper.scan.SmbScanResult;
+import ch.swaechter.smbjwrapper.scan.SmbScanSnapshot;
+import ch.swaechter.smbjwrapper.scan.SmbShareScanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class represents a builder that walks a directory tree and writes its catalog file. An existing catalog is refreshed incrementally, so
+ * only directories that changed since the last refresh are enumerated again.
+ *
+ * @author Simon Wächter
+ */
+public class SmbCatalogBuilder {
+
+    /**
+     * Path of the cataloged root directory.
+     */
+    private final String rootPath;
+
+    /**
+     * Scanner that walks the directory tree.
+     */
+    private final SmbShareScanner shareScanner;
+
+    /**
+     * Create a new catalog builder for a directory tree.
+     *
+     * @param smbConnection SMB connection
+     * @param rootPath      Path of the cataloged root directory
+     */
+    public SmbCatalogBuilder(SmbConnection smbConnection, String rootPath) {
+        this.rootPath = rootPath;
+        this.shareScanner = new SmbShareScanner(smbConnection, rootPath);
+    }
+
+    /**
+     * Walk the whole tree and write a new catalog version. An existing catalog is replaced, but catalogs that are still open keep their version.
+     *
+     * @param catalogPath Path of the catalog pointer file
+     * @return Opened catalog that has to be closed
+     * @throws IOException Exception in case of an IO problem
+     */
+    public SmbCatalog build(Path catalogPath) throws IOException {
+        SmbScanResult scanResult = shareScanner.scanFully(null);
+        SmbCatalog.write(catalogPath, scanResult.getSnapshot());
+        return SmbCatalog.open(catalogPath);
+    }
+
+    /**
+     * Refresh an existing catalog file incrementally or build a new one, if there is none yet. Only the directories that changed since the last
+     * refresh are enumerated and the catalog file is only rewritten in case of changes. Like an incremental scan, a refresh does not detect in
+     * place modifications of files in unchanged directories, so rebuild the catalog from time to time.
+     *
+     * @param catalogPath Path of the catalog pointer file
+     * @return Opened catalog that has to be closed
+     * @throws IOException              Exception in case of an IO problem
+     * @throws IllegalArgumentException Exception in case the catalog belongs to another root path
+     */
+    public SmbCatalog refresh(Path catalogPath) throws IOException {
+        if (!Files.exists(catalogPath)) {
+            return build(catalogPath);
+        }
+
+        SmbScanSnapshot previousSnapshot;
+        try (SmbCatalog previousCatalog = SmbCatalog.open(catalogPath)) {
+            previousSnapshot = previousCatalog.toSnapshot();
+        }
+        if (!previousSnapshot.getRootPath().equals(rootPath)) {
+            throw new IllegalArgumentException("The catalog belongs to another root path: " + previousSnapshot.getRootPath());
+        }
+
+        SmbScanResult scanResult = shareScanner.scan(previousSnapshot);
+        SmbScanSnapshot snapshot = scanResult.getSnapshot();
+        if (scanResult.hasChanges() || snapshot.getRootChangeTime() != previousSnapshot.getRootChangeTime() || snapshot.getRootFileId() != previousSnapshot.getRootFileId()) {
+            SmbCatalog.write(catalogPath, snapshot);
+        }
+        return SmbCatalog.open(catalogPath);
+    }
+}
@@ -0,0 +1,166 @@
+package ch.swaechter.smbjwrapper.catalog;
+
+/**
+ * This class represents a query against a catalog. All criteria have to match. Directories have no file size, so a query with a bounded file
+ * size only matches files.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbCatalogQuery {
+
+    /**
+     * Wildcard pattern the item name has to match or null.
+     */
+    private final String namePattern;
+
+    /**
+     * Minimum file size in bytes.
+     */
+    private final long minFileSize;
+
+    /**
+     * Maximum file size in bytes.
+     */
+    private final long maxFileSize;
+
+    /**
+     * Minimum last write time in milliseconds since the epoch.
+     */
+    private final long minLastWriteTime;
+
+    /**
+     * Maximum last write time in milliseconds since the epoch.
+     */
+    private final long maxLastWriteTime;
+
+    /**
+     * Create a new query with all criteria.
+     *
+     * @param namePattern      Wildcard pattern with * and ? the item name has to match case insensitive or null
+     * @param minFileSize      Minimum file size in bytes
+     * @param maxFileSize      Maximum file size in bytes
+     * @param minLastWriteTime Minimum last write time in milliseconds since the epoch
+     * @param maxLastWriteTime Maximum last write time in milliseconds since the epoch
+     */
+    public SmbCatalogQuery(String namePattern, long minFileSize, long maxFileSize, long minLastWriteTime, long maxLastWriteTime) {
+        if (minFileSize > maxFileSize || minLastWriteTime > maxLastWriteTime) {
+            throw new IllegalArgumentException("The minimum of a range can't be greater than its maximum");
+        }
+        this.namePattern = namePattern;
+        this.minFileSize = minFileSize;
+        this.maxFileSize = maxFileSize;
+        this.minLastWriteTime = minLastWriteTime;
+        this.maxLastWriteTime = maxLastWriteTime;
+    }
+
+    /**
+     * Create a new query that matches all items with a name like *.pdf or Report-????.docx.
+     *
+     * @param namePattern Wildcard pattern with * and ? the item name has to match case insensitive
+     * @return New query
+     */
+    public static SmbCatalogQuery byName(String namePattern) {
+        return new SmbCatalogQuery(namePattern, 0, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a new query that matches all files within a size range.
+     *
+     * @param minFileSize Minimum file size in bytes
+     * @param maxFileSize Maximum file size in bytes
+     * @return New query
+     */
+    public static SmbCatalogQuery byFileSize(long minFileSize, long maxFileSize) {
+        return new SmbCatalogQuery(null, minFileSize, maxFileSize, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a new query that matches all items that were last written within a time range.
+     *
+     * @param minLastWriteTime Minimum last write time in milliseconds since the epoch
+     * @param maxLastWriteTime Maximum last write time in milliseconds since the epoch
+     * @return New query
+     */
+    public static SmbCatalogQuery byLastWriteTime(long minLastWriteTime, long maxLastWriteTime) {
+        return new SmbCatalogQuery(null, 0, Long.MAX_VALUE, minLastWriteTime, maxLastWriteTime);
+    }
+
+    /**
+     * Get the wildcard pattern the item name has to match.
+     *
+     * @return Wildcard pattern or null
+     */
+    public String getNamePattern() {
+        return namePattern;
+    }
+
+    /**
+     * Get the minimum file size.
+     *
+     * @return Minimum file size in bytes
+     */
+    public long getMinFileSize() {
+        return minFileSize;
+    }
+
+    /**
+     * Get the maximum file size.
+     *
+     * @return Maximum file size in bytes
+     */
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * Get the minimum last write time.
+     *
+     * @return Minimum last write time in milliseconds since the epoch
+     */
+    public long getMinLastWriteTime() {
+        return minLastWriteTime;
+    }
+
+    /**
+     * Get the maximum last write time.
+     *
+     * @return Maximum last write time in milliseconds since the epoch
+     */
+    public long getMaxLastWriteTime() {
+        return maxLastWriteTime;
+    }
+
+    /**
+     * Check if the file size is bounded, so directories don't match.
+     *
+     * @return Status of the check
+     */
+    boolean isFileSizeBounded() {
+        return minFileSize > 0 || maxFileSize < Long.MAX_VALUE;
+    }
+
+    /**
+     * Check if the last write time is bounded.
+     *
+     * @return Status of the check
+     */
+    boolean isLastWriteTimeBounded() {
+        return minLastWriteTime > Long.MIN_VALUE || maxLastWriteTime < Long.MAX_VALUE;
+    }
+
+    /**
+     * Check if the attributes of an item match the size and time criteria. The name is matched separately, so each interned name of a catalog
+     * is only matched once.
+     *
+     * @param directory     Flag whether the item is a directory
+     * @param fileSize      File size of the item in bytes
+     * @param lastWriteTime Last write time of the item in milliseconds since the epoch
+     * @return Status of the check
+     */
+    boolean matchesAttributes(boolean directory, long fileSize, long lastWriteTime) {
+        if (directory && isFileSizeBounded()) {
+            return false;
+        }
+        return fileSize >= minFileSize && fileSize <= maxFileSize && lastWriteTime >= minLastWriteTime && lastWriteTime <= maxLastWriteTime;
+    }
+}
@@ -0,0 +1,158 @@
+package ch.swaechter.smbjwrapper.scan;
+
+import ch.swaechter.smbjwrapper.SmbItem;
+import ch.swaechter.smbjwrapper.SmbItemAttributes;
+import com.hierynomus.msdtyp.FileTime;
+
+/**
+ * This class represents the compact metadata of a single scanned file or directory.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbScanEntry {
+
+    /**
+     * Path of the item.
+     */
+    private final String path;
+
+    /**
+     * Flag whether the item is a directory.
+     */
+    private final boolean directory;
+
+    /**
+     * File size of the item in bytes.
+     */
+    private final long fileSize;
+
+    /**
+     * Last write time of the item as Windows timestamp in 100 nanosecond intervals since 1601.
+     */
+    private final long lastWriteTime;
+
+    /**
+     * Change time of the item as Windows timestamp in 100 nanosecond intervals since 1601.
+     */
+    private final long changeTime;
+
+    /**
+     * Server side file ID of the item.
+     */
+    private final long fileId;
+
+    /**
+     * Create a new scan entry.
+     *
+     * @param path          Path of the item
+     * @param directory     Flag whether the item is a directory
+     * @param fileSize      File size of the item in bytes
+     * @param lastWriteTime Last write time of the item as Windows timestamp in 100 nanosecond intervals since 1601
+     * @param changeTime    Change time of the item as Windows timestamp in 100 nanosecond intervals since 1601
+     * @param fileId        Server side file ID of the item
+     */
+    public SmbScanEntry(String path, boolean directory, long fileSize, long lastWriteTime, long changeTime, long fileId) {
+        this.path = path;
+        this.directory = directory;
+        this.fileSize = fileSize;
+        this.lastWriteTime = lastWriteTime;
+        this.changeTime = changeTime;
+        this.fileId = fileId;
+    }
+
+    /**
+     * Create a new scan entry based on the attribute snapshot of an item.
+     *
+     * @param path       Path of the item
+     * @param attributes Attribute snapshot of the item
+     * @return Scan entry
+     */
+    public static SmbScanEntry fromAttributes(String path, SmbItemAttributes attributes) {
+        return new SmbScanEntry(
+            path,
+            attributes.isDirectory(),
+            attributes.isDirectory() ? 0 : attributes.getFileSize(),
+            attributes.getLastWriteTime().getWindowsTimeStamp(),
+            attributes.getChangeTime().getWindowsTimeStamp(),
+            attributes.getFileId()
+        );
+    }
+
+    /**
+     * Create a new scan entry based on an item with an attached attribute snapshot.
+     *
+     * @param smbItem Item with an attached attribute snapshot
+     * @return Scan entry
+     */
+    static SmbScanEntry fromItem(SmbItem smbItem) {
+        return fromAttributes(smbItem.getPath(), smbItem.getAttributes());
+    }
+
+    /**
+     * Get the path of the item.
+     *
+     * @return Path of the item
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Check if the item is a directory.
+     *
+     * @return Status of the check
+     */
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the file size of the item. For directories, the value is always 0.
+     *
+     * @return File size of the item in bytes
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Get the last write time of the item with the full server precision. Use {@link FileTime#FileTime(long)} to convert it.
+     *
+     * @return Last write time as Windows timestamp in 100 nanosecond intervals since 1601
+     */
+    public long getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    /**
+     * Get the change time of the item with the full server precision. Use {@link FileTime#FileTime(long)} to convert it.
+     *
+     * @return Change time as Windows timestamp in 100 nanosecond intervals since 1601
+     */
+    public long getChangeTime() {
+        return changeTime;
+    }
+
+    /**
+     * Get the server side file ID of the item.
+     *
+     * @return Server side file ID of the item
+     */
+    public long getFileId() {
+        return fileId;
+    }
+
+    /**
+     * Check if the content of the item differs from another scan of the same path. For directories, only the type and the file ID are
+     * compared, because their times change with each added or removed child.
+     *
+     * @param otherEntry Other scan entry of the same path
+     * @return Status of the check
+     */
+    public boolean isModifiedComparedTo(SmbScanEntry otherEntry) {
+        if (directory != otherEntry.directory || fileId != otherEntry.fileId) {
+            return true;
+        }
+        return !directory && (fileSize != otherEntry.fileSize || lastWriteTime != otherEntry.lastWriteTime);
+    }
+}
@@ -0,0 +1,124 @@
+package ch.swaechter.smbjwrapper.scan;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class represents the result of a scan with the differences to the previous scan.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbScanResult {
+
+    /**
+     * Snapshot of the current scan.
+     */
+    private final SmbScanSnapshot snapshot;
+
+    /**
+     * Entries that were added since the previous scan.
+     */
+    private final List<SmbScanEntry> addedEntries;
+
+    /**
+     * Entries that were modified since the previous scan.
+     */
+    private final List<SmbScanEntry> modifiedEntries;
+
+    /**
+     * Entries of the previous scan that were deleted.
+     */
+    private final List<SmbScanEntry> deletedEntries;
+
+    /**
+     * Number of directories that were enumerated.
+     */
+    private final int enumeratedDirectoryCount;
+
+    /**
+     * Number of unchanged directories whose enumeration was skipped.
+     */
+    private final int skippedDirectoryCount;
+
+    /**
+     * Create a new scan result.
+     *
+     * @param snapshot                 Snapshot of the current scan
+     * @param addedEntries             Entries that were added since the previous scan
+     * @param modifiedEntries          Entries that were modified since the previous scan
+     * @param deletedEntries           Entries of the previous scan that were deleted
+     * @param enumeratedDirectoryCount Number of directories that were enumerated
+     * @param skippedDirectoryCount    Number of unchanged directories whose enumeration was skipped
+     */
+    SmbScanResult(SmbScanSnapshot snapshot, List<SmbScanEntry> addedEntries, List<SmbScanEntry> modifiedEntries, List<SmbScanEntry> deletedEntries, int enumeratedDirectoryCount, int skippedDirectoryCount) {
+        this.snapshot = snapshot;
+        this.addedEntries = Collections.unmodifiableList(addedEntries);
+        this.modifiedEntries = Collections.unmodifiableList(modifiedEntries);
+        this.deletedEntries = Collections.unmodifiableList(deletedEntries);
+        this.enumeratedDirectoryCount = enumeratedDirectoryCount;
+        this.skippedDirectoryCount = skippedDirectoryCount;
+    }
+
+    /**
+     * Get the snapshot of the current scan, which is the base of the next incremental scan.
+     *
+     * @return Snapshot of the current scan
+     */
+    public SmbScanSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Get the entries that were added since the previous scan.
+     *
+     * @return Unmodifiable list with the added entries
+     */
+    public List<SmbScanEntry> getAddedEntries() {
+        return addedEntries;
+    }
+
+    /**
+     * Get the entries that were modified since the previous scan.
+     *
+     * @return Unmodifiable list with the modified entries
+     */
+    public List<SmbScanEntry> getModifiedEntries() {
+        return modifiedEntries;
+    }
+
+    /**
+     * Get the entries of the previous scan that were deleted.
+     *
+     * @return Unmodifiable list with the deleted entries
+     */
+    public List<SmbScanEntry> getDeletedEntries() {
+        return deletedEntries;
+    }
+
+    /**
+     * Check if there are any differences to the previous scan.
+     *
+     * @return Status of the check
+     */
+    public boolean hasChanges() {
+        return !addedEntries.isEmpty() || !modifiedEntries.isEmpty() || !deletedEntries.isEmpty();
+    }
+
+    /**
+     * Get the number of directories that were enumerated.
+     *
+     * @return Number of enumerated directories
+     */
+    public int getEnumeratedDirectoryCount() {
+        return enumeratedDirectoryCount;
+    }
+
+    /**
+     * Get the number of unchanged directories whose enumeration was skipped.
+     *
+     * @return Number of skipped directories
+     */
+    public int getSkippedDirectoryCount() {
+        return skippedDirectoryCount;
+    }
+}
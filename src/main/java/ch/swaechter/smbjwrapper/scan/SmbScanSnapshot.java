@@ -0,0 +1,225 @@
+package ch.swaechter.smbjwrapper.scan;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents an immutable snapshot of a scanned tree. The snapshot can be persisted in a compact binary format, so an incremental
+ * scan can be continued after a restart.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbScanSnapshot {
+
+    /**
+     * Magic number that identifies a persisted snapshot.
+     */
+    private static final int MAGIC_NUMBER = 0x534D4253;
+
+    /**
+     * Version of the persisted format.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Path of the scanned root directory.
+     */
+    private final String rootPath;
+
+    /**
+     * Change time of the scanned root directory as Windows timestamp in 100 nanosecond intervals since 1601.
+     */
+    private final long rootChangeTime;
+
+    /**
+     * Server side file ID of the scanned root directory.
+     */
+    private final long rootFileId;
+
+    /**
+     * All scanned entries below the root directory, keyed by path.
+     */
+    private final Map<String, SmbScanEntry> entries;
+
+    /**
+     * All scanned entries, grouped by the path of their parent directory.
+     */
+    private final Map<String, List<SmbScanEntry>> childEntries;
+
+    /**
+     * Create a new snapshot.
+     *
+     * @param rootPath       Path of the scanned root directory
+     * @param rootChangeTime Change time of the scanned root directory as Windows timestamp in 100 nanosecond intervals since 1601
+     * @param rootFileId     Server side file ID of the scanned root directory
+     * @param entries        All scanned entries below the root directory, keyed by path
+     */
+    SmbScanSnapshot(String rootPath, long rootChangeTime, long rootFileId, LinkedHashMap<String, SmbScanEntry> entries) {
+        this.rootPath = rootPath;
+        this.rootChangeTime = rootChangeTime;
+        this.rootFileId = rootFileId;
+        this.entries = Collections.unmodifiableMap(entries);
+        this.childEntries = new HashMap<>();
+        for (SmbScanEntry entry : entries.values()) {
+            childEntries.computeIfAbsent(getParentPath(entry.getPath()), parentPath -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    /**
+     * Create a snapshot from entries that were persisted in another format, so it can be used as base of an incremental scan.
+     *
+     * @param rootPath       Path of the scanned root directory
+     * @param rootChangeTime Change time of the scanned root directory as Windows timestamp in 100 nanosecond intervals since 1601
+     * @param rootFileId     Server side file ID of the scanned root directory
+     * @param entries        All scanned entries below the root directory
+     * @return Created snapshot
+     */
+    public static SmbScanSnapshot fromEntries(String rootPath, long rootChangeTime, long rootFileId, Collection<SmbScanEntry> entries) {
+        LinkedHashMap<String, SmbScanEntry> entryMap = new LinkedHashMap<>();
+        for (SmbScanEntry entry : entries) {
+            entryMap.put(entry.getPath(), entry);
+        }
+        return new SmbScanSnapshot(rootPath, rootChangeTime, rootFileId, entryMap);
+    }
+
+    /**
+     * Read a persisted snapshot.
+     *
+     * @param inputStream Input stream with the persisted snapshot. The stream is not closed
+     * @return Read snapshot
+     * @throws IOException Exception in case of an IO problem or an invalid format
+     */
+    public static SmbScanSnapshot readFrom(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        if (dataInputStream.readInt() != MAGIC_NUMBER || dataInputStream.readInt() != FORMAT_VERSION) {
+            throw new IOException("The input stream does not contain a supported scan snapshot");
+        }
+        String rootPath = dataInputStream.readUTF();
+        long rootChangeTime = dataInputStream.readLong();
+        long rootFileId = dataInputStream.readLong();
+        int entryCount = dataInputStream.readInt();
+        LinkedHashMap<String, SmbScanEntry> entries = new LinkedHashMap<>();
+        for (int i = 0; i < entryCount; i++) {
+            String path = dataInputStream.readUTF();
+            boolean directory = dataInputStream.readBoolean();
+            long fileSize = dataInputStream.readLong();
+            long lastWriteTime = dataInputStream.readLong();
+            long changeTime = dataInputStream.readLong();
+            long fileId = dataInputStream.readLong();
+            entries.put(path, new SmbScanEntry(path, directory, fileSize, lastWriteTime, changeTime, fileId));
+        }
+        return new SmbScanSnapshot(rootPath, rootChangeTime, rootFileId, entries);
+    }
+
+    /**
+     * Persist the snapshot.
+     *
+     * @param outputStream Output stream the snapshot is written to. The stream is flushed, but not closed
+     * @throws IOException Exception in case of an IO problem
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(MAGIC_NUMBER);
+        dataOutputStream.writeInt(FORMAT_VERSION);
+        dataOutputStream.writeUTF(rootPath);
+        dataOutputStream.writeLong(rootChangeTime);
+        dataOutputStream.writeLong(rootFileId);
+        dataOutputStream.writeInt(entries.size());
+        for (SmbScanEntry entry : entries.values()) {
+            dataOutputStream.writeUTF(entry.getPath());
+            dataOutputStream.writeBoolean(entry.isDirectory());
+            dataOutputStream.writeLong(entry.getFileSize());
+            dataOutputStream.writeLong(entry.getLastWriteTime());
+            dataOutputStream.writeLong(entry.getChangeTime());
+            dataOutputStream.writeLong(entry.getFileId());
+        }
+        dataOutputStream.flush();
+    }
+
+    /**
+     * Get the path of the scanned root directory.
+     *
+     * @return Path of the root directory
+     */
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * Get the change time of the scanned root directory.
+     *
+     * @return Change time as Windows timestamp in 100 nanosecond intervals since 1601
+     */
+    public long getRootChangeTime() {
+        return rootChangeTime;
+    }
+
+    /**
+     * Get the server side file ID of the scanned root directory.
+     *
+     * @return Server side file ID of the root directory
+     */
+    public long getRootFileId() {
+        return rootFileId;
+    }
+
+    /**
+     * Get the entry of a path.
+     *
+     * @param path Path of the entry
+     * @return Entry or null if the path was not scanned
+     */
+    public SmbScanEntry getEntry(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Get all entries below the root directory.
+     *
+     * @return Unmodifiable collection with all entries
+     */
+    public Collection<SmbScanEntry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * Get the number of entries below the root directory.
+     *
+     * @return Number of entries
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Get all direct child entries of a directory.
+     *
+     * @param directoryPath Path of the directory
+     * @return Unmodifiable list with all child entries
+     */
+    public List<SmbScanEntry> getChildEntries(String directoryPath) {
+        List<SmbScanEntry> children = childEntries.get(directoryPath);
+        return children != null ? Collections.unmodifiableList(children) : Collections.emptyList();
+    }
+
+    /**
+     * Get the path of the parent directory of a path.
+     *
+     * @param path Path
+     * @return Path of the parent directory
+     */
+    private static String getParentPath(String path) {
+        int lastIndex = path.lastIndexOf('/');
+        return lastIndex != -1 ? path.substring(0, lastIndex) : "";
+    }
+}
@@ -0,0 +1,246 @@
+package ch.swaechter.smbjwrapper.scan;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+import ch.swaechter.smbjwrapper.SmbDirectory;
+import ch.swaechter.smbjwrapper.SmbItem;
+import ch.swaechter.smbjwrapper.SmbItemAttributes;
+import ch.swaechter.smbjwrapper.SmbItemIterator;
+import ch.swaechter.smbjwrapper.utils.SmbUtils;
+import com.hierynomus.mssmb2.SMBApiException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * This class represents an incremental scanner of a directory tree. Each scan creates a snapshot of the tree and reports the added, modified
+ * and deleted items compared with the previous snapshot. A directory whose change time did not move since the previous scan is not enumerated
+ * again. Instead, its entries are taken from the previous snapshot and only its subdirectories are queried, which takes a single round trip
+ * per directory.
+ * <p>
+ * Note: Servers update the change time of a directory when an entry is added, removed or renamed, but not when the content of a file in the
+ * directory is modified in place. Use {@link #scanFully(SmbScanSnapshot)} from time to time to detect these modifications too.
+ *
+ * @author Simon Wächter
+ */
+public class SmbShareScanner {
+
+    /**
+     * SMB connection to access the server.
+     */
+    private final SmbConnection smbConnection;
+
+    /**
+     * Path of the scanned root directory.
+     */
+    private final String rootPath;
+
+    /**
+     * Flag to scan the whole tree instead of the direct entries of the root directory only.
+     */
+    private final boolean scanRecursive;
+
+    /**
+     * Create a new scanner for a directory tree.
+     *
+     * @param smbConnection SMB connection
+     * @param rootPath      Path of the scanned root directory
+     */
+    public SmbShareScanner(SmbConnection smbConnection, String rootPath) {
+        this(smbConnection, rootPath, true);
+    }
+
+    /**
+     * Create a new scanner for a directory tree or only for the direct entries of a directory.
+     *
+     * @param smbConnection SMB connection
+     * @param rootPath      Path of the scanned root directory
+     * @param scanRecursive Flag to scan the whole tree instead of the direct entries of the root directory only
+     */
+    public SmbShareScanner(SmbConnection smbConnection, String rootPath, boolean scanRecursive) {
+        this.smbConnection = smbConnection;
+        this.rootPath = rootPath;
+        this.scanRecursive = scanRecursive;
+    }
+
+    /**
+     * Scan the tree incrementally and compare it with the previous snapshot. Unchanged directories are not enumerated again.
+     *
+     * @param previousSnapshot Snapshot of the previous scan or null for an initial scan, which reports all items as added
+     * @return Scan result with the new snapshot and all differences
+     */
+    public SmbScanResult scan(SmbScanSnapshot previousSnapshot) {
+        return scan(previousSnapshot, false);
+    }
+
+    /**
+     * Scan the tree fully and compare it with the previous snapshot. All directories are enumerated, so in-place modifications of files in
+     * unchanged directories are detected too.
+     *
+     * @param previousSnapshot Snapshot of the previous scan or null for an initial scan, which reports all items as added
+     * @return Scan result with the new snapshot and all differences
+     */
+    public SmbScanResult scanFully(SmbScanSnapshot previousSnapshot) {
+        return scan(previousSnapshot, true);
+    }
+
+    /**
+     * Scan the tree and compare it with the previous snapshot.
+     *
+     * @param previousSnapshot Snapshot of the previous scan or null
+     * @param forceEnumeration Flag to enumerate unchanged directories too
+     * @return Scan result with the new snapshot and all differences
+     */
+    private SmbScanResult scan(SmbScanSnapshot previousSnapshot, boolean forceEnumeration) {
+        if (previousSnapshot != null && !previousSnapshot.getRootPath().equals(rootPath)) {
+            throw new IllegalArgumentException("The previous snapshot belongs to another root path");
+        }
+
+        // Scan the tree starting with the root directory
+        ScanState scanState = new ScanState(previousSnapshot, forceEnumeration);
+        SmbDirectory rootDirectory = new SmbDirectory(smbConnection, rootPath);
+        SmbItemAttributes rootAttributes = rootDirectory.readAttributes();
+        long rootChangeTime = rootAttributes.getChangeTime().getWindowsTimeStamp();
+        long rootFileId = rootAttributes.getFileId();
+        boolean rootUnchanged = previousSnapshot != null && previousSnapshot.getRootChangeTime() == rootChangeTime && previousSnapshot.getRootFileId() == rootFileId;
+        scanDirectory(rootDirectory, rootUnchanged, scanState);
+        SmbScanSnapshot snapshot = new SmbScanSnapshot(rootPath, rootChangeTime, rootFileId, scanState.entries);
+
+        // Compare the snapshots
+        List<SmbScanEntry> addedEntries = new ArrayList<>();
+        List<SmbScanEntry> modifiedEntries = new ArrayList<>();
+        List<SmbScanEntry> deletedEntries = new ArrayList<>();
+        for (SmbScanEntry entry : snapshot.getEntries()) {
+            SmbScanEntry previousEntry = previousSnapshot != null ? previousSnapshot.getEntry(entry.getPath()) : null;
+            if (previousEntry == null) {
+                addedEntries.add(entry);
+            } else if (entry.isModifiedComparedTo(previousEntry)) {
+                modifiedEntries.add(entry);
+            }
+        }
+        if (previousSnapshot != null) {
+            for (SmbScanEntry previousEntry : previousSnapshot.getEntries()) {
+                if (snapshot.getEntry(previousEntry.getPath()) == null) {
+                    deletedEntries.add(previousEntry);
+                }
+            }
+        }
+        return new SmbScanResult(snapshot, addedEntries, modifiedEntries, deletedEntries, scanState.enumeratedDirectoryCount, scanState.skippedDirectoryCount);
+    }
+
+    /**
+     * Scan a directory and all its subdirectories.
+     *
+     * @param smbDirectory Scanned directory
+     * @param unchanged    Flag whether the change time of the directory did not move since the previous scan
+     * @param scanState    State of the current scan
+     */
+    private void scanDirectory(SmbDirectory smbDirectory, boolean unchanged, ScanState scanState) {
+        if (unchanged && !scanState.forceEnumeration) {
+            // Take the entries from the previous snapshot and only query the subdirectories
+            scanState.skippedDirectoryCount++;
+            for (SmbScanEntry previousEntry : scanState.previousSnapshot.getChildEntries(smbDirectory.getPath())) {
+                if (previousEntry.isDirectory() && scanRecursive) {
+                    scanSubdirectory(previousEntry, scanState);
+                } else {
+                    scanState.entries.put(previousEntry.getPath(), previousEntry);
+                }
+            }
+        } else {
+            // Enumerate the directory lazily and descend depth first
+            scanState.enumeratedDirectoryCount++;
+            try (SmbItemIterator smbItemIterator = smbDirectory.iterateItems(smbItem -> true, false)) {
+                while (smbItemIterator.hasNext()) {
+                    SmbItem smbItem = smbItemIterator.next();
+                    SmbScanEntry entry = SmbScanEntry.fromItem(smbItem);
+                    scanState.entries.put(entry.getPath(), entry);
+                    if (scanRecursive && smbItem instanceof SmbDirectory) {
+                        scanDirectory((SmbDirectory) smbItem, isUnchangedDirectory(entry, scanState), scanState);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Query a subdirectory of an unchanged directory and scan it.
+     *
+     * @param previousEntry Entry of the subdirectory in the previous snapshot
+     * @param scanState     State of the current scan
+     */
+    private void scanSubdirectory(SmbScanEntry previousEntry, ScanState scanState) {
+        SmbItemAttributes attributes;
+        try {
+            attributes = new SmbDirectory(smbConnection, previousEntry.getPath()).readAttributes();
+        } catch (SMBApiException exception) {
+            // The directory was removed after its parent directory was queried
+            if (SmbUtils.isNotFound(exception)) {
+                return;
+            }
+            throw exception;
+        }
+
+        SmbScanEntry entry = SmbScanEntry.fromAttributes(previousEntry.getPath(), attributes);
+        scanState.entries.put(entry.getPath(), entry);
+        if (entry.isDirectory()) {
+            scanDirectory(new SmbDirectory(smbConnection, entry.getPath()), isUnchangedDirectory(entry, scanState), scanState);
+        }
+    }
+
+    /**
+     * Check if a directory has the same change time as in the previous snapshot.
+     *
+     * @param entry     Current entry of the directory
+     * @param scanState State of the current scan
+     * @return Status of the check
+     */
+    private static boolean isUnchangedDirectory(SmbScanEntry entry, ScanState scanState) {
+        if (scanState.previousSnapshot == null) {
+            return false;
+        }
+        SmbScanEntry previousEntry = scanState.previousSnapshot.getEntry(entry.getPath());
+        return previousEntry != null && previousEntry.isDirectory() && previousEntry.getFileId() == entry.getFileId() && previousEntry.getChangeTime() == entry.getChangeTime();
+    }
+
+    /**
+     * This class represents the state of a running scan.
+     */
+    private static final class ScanState {
+
+        /**
+         * Snapshot of the previous scan or null.
+         */
+        private final SmbScanSnapshot previousSnapshot;
+
+        /**
+         * Flag to enumerate unchanged directories too.
+         */
+        private final boolean forceEnumeration;
+
+        /**
+         * All scanned entries in scan order.
+         */
+        private final LinkedHashMap<String, SmbScanEntry> entries = new LinkedHashMap<>();
+
+        /**
+         * Number of directories that were enumerated.
+         */
+        private int enumeratedDirectoryCount;
+
+        /**
+         * Number of unchanged directories whose enumeration was skipped.
+         */
+        private int skippedDirectoryCount;
+
+        /**
+         * Create a new scan state.
+         *
+         * @param previousSnapshot Snapshot of the previous scan or null
+         * @param forceEnumeration Flag to enumerate unchanged directories too
+         */
+        private ScanState(SmbScanSnapshot previousSnapshot, boolean forceEnumeration) {
+            this.previousSnapshot = previousSnapshot;
+            this.forceEnumeration = forceEnumeration;
+        }
+    }
+}
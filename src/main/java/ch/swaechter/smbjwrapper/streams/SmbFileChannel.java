@@ -0,0 +1,293 @@
+package ch.swaechter.smbjwrapper.streams;
+
+import com.hierynomus.msfscc.fileinformation.FileStandardInformation;
+import com.hierynomus.smbj.share.File;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * This class represents a seekable byte channel of a SMB file. Every read and write is an SMB2 request at an explicit file offset, so readers
+ * of columnar or archive formats can fetch only the byte ranges they need instead of streaming the whole file.
+ * <p>
+ * Note: The positional read and write methods can be used concurrently, while the relative ones share the position of the channel.
+ *
+ * @author Simon Wächter
+ */
+public class SmbFileChannel implements SeekableByteChannel {
+
+    /**
+     * Size of the transfer buffer that is used for buffers without an accessible array.
+     */
+    private static final int TRANSFER_BUFFER_SIZE = 65536;
+
+    /**
+     * File that is accessed.
+     */
+    private final File file;
+
+    /**
+     * Flag whether the channel was opened for reading.
+     */
+    private final boolean readable;
+
+    /**
+     * Flag whether the channel was opened for writing.
+     */
+    private final boolean writable;
+
+    /**
+     * Flag whether relative writes append the content to the end of the file.
+     */
+    private final boolean appendContent;
+
+    /**
+     * Callback that is invoked after a write or truncate and when the channel is closed.
+     */
+    private final Runnable writeCallback;
+
+    /**
+     * Current position of the channel.
+     */
+    private long position;
+
+    /**
+     * Flag whether the channel is open.
+     */
+    private volatile boolean open = true;
+
+    /**
+     * Create a new seekable byte channel of a file.
+     *
+     * @param file          File that will be accessed
+     * @param readable      Channel can be used for reading
+     * @param writable      Channel can be used for writing
+     * @param appendContent Relative writes append the content to the end of the file
+     * @param writeCallback Callback that is invoked after a write or truncate and when the channel is closed
+     */
+    public SmbFileChannel(File file, boolean readable, boolean writable, boolean appendContent, Runnable writeCallback) {
+        this.file = file;
+        this.readable = readable;
+        this.writable = writable;
+        this.appendContent = appendContent;
+        this.writeCallback = writeCallback;
+    }
+
+    /**
+     * Read a sequence of bytes at the current position and advance the position.
+     *
+     * @param destination Buffer the bytes are transferred into
+     * @return Number of read bytes or -1 if the position is at the end of the file
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    @Override
+    public synchronized int read(ByteBuffer destination) throws IOException {
+        int readBytes = read(destination, position);
+        if (readBytes > 0) {
+            position += readBytes;
+        }
+        return readBytes;
+    }
+
+    /**
+     * Read a sequence of bytes at the given file position. The position of the channel is not changed.
+     *
+     * @param destination  Buffer the bytes are transferred into
+     * @param filePosition File position the read starts at
+     * @return Number of read bytes or -1 if the position is at the end of the file
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    public int read(ByteBuffer destination, long filePosition) throws IOException {
+        if (filePosition < 0) {
+            throw new IllegalArgumentException("The file position can't be negative");
+        }
+        checkOpen();
+        if (!readable) {
+            throw new NonReadableChannelException();
+        }
+        if (!destination.hasRemaining()) {
+            return 0;
+        }
+
+        // Read directly into the array of the buffer if possible
+        if (destination.hasArray()) {
+            int readBytes = file.read(destination.array(), filePosition, destination.arrayOffset() + destination.position(), destination.remaining());
+            if (readBytes > 0) {
+                ((Buffer) destination).position(destination.position() + readBytes);
+            }
+            return readBytes;
+        }
+        byte[] buffer = new byte[Math.min(destination.remaining(), TRANSFER_BUFFER_SIZE)];
+        int readBytes = file.read(buffer, filePosition, 0, buffer.length);
+        if (readBytes > 0) {
+            destination.put(buffer, 0, readBytes);
+        }
+        return readBytes;
+    }
+
+    /**
+     * Write a sequence of bytes at the current position and advance the position. When appending, the position is moved to the end of the
+     * file first.
+     *
+     * @param source Buffer the bytes are transferred from
+     * @return Number of written bytes
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    @Override
+    public synchronized int write(ByteBuffer source) throws IOException {
+        checkOpen();
+        if (appendContent) {
+            position = size();
+        }
+        int writtenBytes = write(source, position);
+        position += writtenBytes;
+        return writtenBytes;
+    }
+
+    /**
+     * Write a sequence of bytes at the given file position. The position of the channel is not changed and the file grows if the position is
+     * after the end of the file.
+     *
+     * @param source       Buffer the bytes are transferred from
+     * @param filePosition File position the write starts at
+     * @return Number of written bytes
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    public int write(ByteBuffer source, long filePosition) throws IOException {
+        if (filePosition < 0) {
+            throw new IllegalArgumentException("The file position can't be negative");
+        }
+        checkOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        int length = source.remaining();
+        if (length == 0) {
+            return 0;
+        }
+
+        try {
+            // Write directly from the array of the buffer if possible
+            if (source.hasArray()) {
+                file.write(source.array(), filePosition, source.arrayOffset() + source.position(), length);
+                ((Buffer) source).position(source.position() + length);
+                return length;
+            }
+            byte[] buffer = new byte[Math.min(length, TRANSFER_BUFFER_SIZE)];
+            int writtenBytes = 0;
+            while (writtenBytes < length) {
+                int chunkLength = Math.min(length - writtenBytes, buffer.length);
+                source.get(buffer, 0, chunkLength);
+                file.write(buffer, filePosition + writtenBytes, 0, chunkLength);
+                writtenBytes += chunkLength;
+            }
+            return length;
+        } finally {
+            writeCallback.run();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long position() throws IOException {
+        checkOpen();
+        return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized SmbFileChannel position(long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("The position can't be negative");
+        }
+        checkOpen();
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * Get the current size of the file. The size is requested from the server on every call.
+     *
+     * @return Size of the file in bytes
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    @Override
+    public long size() throws IOException {
+        checkOpen();
+        return file.getFileInformation(FileStandardInformation.class).getEndOfFile();
+    }
+
+    /**
+     * Truncate the file to the given size. The file is not changed if it is not larger than the given size and the position is moved to the
+     * given size if it was after it.
+     *
+     * @param size New size of the file in bytes
+     * @return Current channel
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    @Override
+    public synchronized SmbFileChannel truncate(long size) throws IOException {
+        if (size < 0) {
+            throw new IllegalArgumentException("The size can't be negative");
+        }
+        checkOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        if (size < size()) {
+            try {
+                file.setLength(size);
+            } finally {
+                writeCallback.run();
+            }
+        }
+        if (position > size) {
+            position = size;
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            file.close();
+        } finally {
+            writeCallback.run();
+        }
+    }
+
+    /**
+     * Check that the channel is still open.
+     *
+     * @throws ClosedChannelException Exception in case the channel was closed
+     */
+    private void checkOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -4,9 +4,17 @@ import com.hierynomus.smbj.share.File;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
- * This class represents a decorated input stream that respects the reference counting close mechanism of the file.
+ * This class represents a decorated input stream that respects the reference counting close mechanism of the file. In read-ahead mode, the
+ * stream reads the following chunks of the file with several concurrent READ requests, so a sequential download is not stalled by the round
+ * trip of each request.
  *
  * @author Simon Wächter
  */
@@ -18,10 +26,50 @@ public class SmbInputStream extends InputStream {
     private final File file;
 
     /**
-     * Input stream of the file that will be decorated.
+     * Input stream of the file that will be decorated or null in read-ahead mode.
      */
     private final InputStream inputStream;
 
+    /**
+     * Size of a chunk that is read by a single request in read-ahead mode.
+     */
+    private final int chunkSize;
+
+    /**
+     * Maximum number of outstanding chunk requests in read-ahead mode.
+     */
+    private final int readAheadDepth;
+
+    /**
+     * Outstanding chunk requests in file order.
+     */
+    private final Deque<Future<byte[]>> pendingChunks = new ArrayDeque<>();
+
+    /**
+     * File offset of the next requested chunk.
+     */
+    private long nextChunkOffset;
+
+    /**
+     * Chunk that is currently consumed.
+     */
+    private byte[] currentChunk = new byte[0];
+
+    /**
+     * Position within the current chunk.
+     */
+    private int currentPosition;
+
+    /**
+     * Flag whether the end of the file was reached, so no more chunks are requested.
+     */
+    private boolean endOfFile;
+
+    /**
+     * First failed chunk request. Its chunk is lost, so the failure is reported by all following calls instead of skipping the chunk.
+     */
+    private IOException deferredException;
+
     /**
      * Create a new decorated input stream that respects the reference counting close mechanism of the file.
      *
@@ -30,6 +78,27 @@ public class SmbInputStream extends InputStream {
     public SmbInputStream(File file) {
         this.file = file;
         this.inputStream = file.getInputStream();
+        this.chunkSize = 0;
+        this.readAheadDepth = 0;
+    }
+
+    /**
+     * Create a new input stream that reads ahead with several concurrent requests. The chunk size should be the maximum read size that was
+     * negotiated with the server, so each chunk is transferred with a single request.
+     *
+     * @param file           File that will provide the content
+     * @param chunkSize      Size of a chunk that is read by a single request
+     * @param readAheadDepth Maximum number of outstanding chunk requests
+     * @throws IllegalArgumentException Exception in case the chunk size or depth is invalid
+     */
+    public SmbInputStream(File file, int chunkSize, int readAheadDepth) {
+        if (chunkSize < 1 || readAheadDepth < 1) {
+            throw new IllegalArgumentException("The chunk size and the read-ahead depth have to be at least 1");
+        }
+        this.file = file;
+        this.inputStream = null;
+        this.chunkSize = chunkSize;
+        this.readAheadDepth = readAheadDepth;
     }
 
     /**
@@ -37,7 +106,77 @@ public class SmbInputStream extends InputStream {
      */
     @Override
     public int read() throws IOException {
-        return inputStream.read();
+        if (inputStream != null) {
+            return inputStream.read();
+        }
+        return fillChunk() ? currentChunk[currentPosition++] & 0xFF : -1;
+    }
+
+    /**
+     * Read up to length bytes into the buffer. The read is passed to the underlying stream in a single call instead of one call per byte.
+     *
+     * @param buffer Buffer the bytes are read into
+     * @param offset Offset in the buffer
+     * @param length Maximum number of bytes to read
+     * @return Number of read bytes or -1, if the end of the file was reached
+     * @throws IOException Exception in case of an IO/network problem
+     */
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (inputStream != null) {
+            return inputStream.read(buffer, offset, length);
+        }
+        if (offset < 0 || length < 0 || length > buffer.length - offset) {
+            throw new IndexOutOfBoundsException("Invalid offset or length for a buffer with " + buffer.length + " bytes");
+        }
+        if (length == 0) {
+            return 0;
+        }
+
+        // Copy from the buffered chunks until the request is satisfied or no chunk is immediately available
+        int readBytes = 0;
+        while (readBytes < length && (readBytes == 0 || currentPosition < currentChunk.length || isNextChunkDone())) {
+            try {
+                if (!fillChunk()) {
+                    break;
+                }
+            } catch (IOException exception) {
+                // Return the copied bytes first, the recorded failure is reported by the next call
+                if (readBytes > 0) {
+                    break;
+                }
+                throw exception;
+            }
+            int copiedBytes = Math.min(length - readBytes, currentChunk.length - currentPosition);
+            System.arraycopy(currentChunk, currentPosition, buffer, offset + readBytes, copiedBytes);
+            currentPosition += copiedBytes;
+            readBytes += copiedBytes;
+        }
+        return readBytes > 0 ? readBytes : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip(long length) throws IOException {
+        if (inputStream != null) {
+            return inputStream.skip(length);
+        }
+        checkDeferredException();
+        return super.skip(length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() throws IOException {
+        if (inputStream != null) {
+            return inputStream.available();
+        }
+        checkDeferredException();
+        return currentChunk.length - currentPosition;
     }
 
     /**
@@ -45,7 +184,133 @@ public class SmbInputStream extends InputStream {
      */
     @Override
     public void close() throws IOException {
-        inputStream.close();
-        file.close();
+        try {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            awaitPendingChunks();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Make sure the current chunk has unread bytes by taking the next requested chunk. The outstanding requests are refilled first.
+     *
+     * @return Status whether there are unread bytes or the end of the file was reached
+     * @throws IOException Exception in case a chunk request failed now or before
+     */
+    private boolean fillChunk() throws IOException {
+        while (currentPosition >= currentChunk.length) {
+            checkDeferredException();
+            requestChunks();
+            Future<byte[]> pendingChunk = pendingChunks.poll();
+            if (pendingChunk == null) {
+                return false;
+            }
+            try {
+                currentChunk = awaitChunk(pendingChunk);
+            } catch (IOException exception) {
+                deferredException = exception;
+                throw exception;
+            }
+            currentPosition = 0;
+            if (currentChunk.length < chunkSize) {
+                // A short chunk marks the end of the file, so the following requests are obsolete
+                endOfFile = true;
+                awaitPendingChunks();
+                if (currentChunk.length == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Report the first failed chunk request again.
+     *
+     * @throws IOException Exception in case a chunk request failed before
+     */
+    private void checkDeferredException() throws IOException {
+        if (deferredException != null) {
+            throw deferredException;
+        }
+    }
+
+    /**
+     * Request chunks until the read-ahead depth is reached or the end of the file is known.
+     */
+    private void requestChunks() {
+        while (!endOfFile && pendingChunks.size() < readAheadDepth) {
+            long chunkOffset = nextChunkOffset;
+            pendingChunks.add(SmbTransferExecutor.getExecutorService().submit(() -> readChunk(chunkOffset)));
+            nextChunkOffset += chunkSize;
+        }
+    }
+
+    /**
+     * Read a chunk of the file with positional reads.
+     *
+     * @param chunkOffset File offset of the chunk
+     * @return Read chunk, which is shorter than the chunk size at the end of the file
+     */
+    private byte[] readChunk(long chunkOffset) {
+        byte[] chunk = new byte[chunkSize];
+        int chunkLength = 0;
+        while (chunkLength < chunkSize) {
+            int readBytes = file.read(chunk, chunkOffset + chunkLength, chunkLength, chunkSize - chunkLength);
+            if (readBytes <= 0) {
+                break;
+            }
+            chunkLength += readBytes;
+        }
+        return chunkLength == chunkSize ? chunk : Arrays.copyOf(chunk, chunkLength);
+    }
+
+    /**
+     * Check if the next requested chunk is already available, so it can be consumed without waiting.
+     *
+     * @return Status of the check
+     */
+    private boolean isNextChunkDone() {
+        Future<byte[]> pendingChunk = pendingChunks.peek();
+        return pendingChunk != null && pendingChunk.isDone();
+    }
+
+    /**
+     * Wait for a chunk request.
+     *
+     * @param pendingChunk Chunk request
+     * @return Read chunk
+     * @throws IOException Exception in case the request failed or the thread was interrupted
+     */
+    private static byte[] awaitChunk(Future<byte[]> pendingChunk) throws IOException {
+        try {
+            return pendingChunk.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a chunk");
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("Unable to read a chunk: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Wait for all outstanding requests and discard their chunks, so no request is running while the file is closed.
+     */
+    private void awaitPendingChunks() {
+        Future<byte[]> pendingChunk;
+        while ((pendingChunk = pendingChunks.poll()) != null) {
+            try {
+                pendingChunk.get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException exception) {
+                // The chunk is discarded anyway
+            }
+        }
     }
 }
@@ -1,31 +1,87 @@
 package ch.swaechter.smbjwrapper.streams;
 
+import com.hierynomus.msfscc.fileinformation.FileStandardInformation;
 import com.hierynomus.smbj.share.File;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
- * This class represents a decorated output stream that respects the reference counting close mechanism of the file.
+ * This class represents a decorated output stream that respects the reference counting close mechanism of the file. In write-behind mode, the
+ * stream collects the content in chunks and writes them with several concurrent WRITE requests, so an upload is not stalled by the round trip
+ * of each request. Errors of the background writes are reported by the next write, flush or close.
+ * <p>
+ * When appending, the stream tracks the end offset of the file itself and writes at explicit positions, so slices of a buffer are written
+ * without copying them first.
  *
  * @author Simon Wächter
  */
 public class SmbOutputStream extends OutputStream {
 
+    /**
+     * Size of the buffer that collects single values when appending without write-behind.
+     */
+    private static final int VALUE_BUFFER_SIZE = 8192;
+
     /**
      * File that provides the output stream.
      */
     private final File file;
 
     /**
-     * Output stream of the file that will be decorated.
+     * Output stream of the file that will be decorated or null when appending or in write-behind mode.
      */
     private final OutputStream outputStream;
 
     /**
-     * Flag whether the content should be appended or the file should be overwritten/written at the beginning.
+     * Callback that is invoked after the content was flushed or the stream was closed.
+     */
+    private final Runnable writeCallback;
+
+    /**
+     * Size of a chunk that is written by a single request in write-behind mode or size of the value buffer when appending.
+     */
+    private final int chunkSize;
+
+    /**
+     * Maximum number of outstanding chunk writes in write-behind mode.
+     */
+    private final int maxPendingWrites;
+
+    /**
+     * Outstanding chunk writes in file order.
+     */
+    private final Deque<PendingWrite> pendingWrites = new ArrayDeque<>();
+
+    /**
+     * Chunks of completed writes that can be reused.
+     */
+    private final Deque<byte[]> freeChunks = new ArrayDeque<>();
+
+    /**
+     * Chunk that is currently filled or null.
+     */
+    private byte[] currentChunk;
+
+    /**
+     * Number of bytes in the current chunk.
      */
-    private final Boolean appendContent;
+    private int currentLength;
+
+    /**
+     * File offset of the current chunk, which is the end offset of the file when appending.
+     */
+    private long writeOffset;
+
+    /**
+     * First error of a background write or null.
+     */
+    private IOException deferredException;
 
     /**
      * Create a new decorated output stream that respects the reference counting close mechanism of the file. It's possible to append or
@@ -35,55 +91,145 @@ public class SmbOutputStream extends OutputStream {
      * @param appendContent Append the content to the current file or overwrite it
      */
     public SmbOutputStream(File file, boolean appendContent) {
+        this(file, appendContent, () -> {
+        });
+    }
+
+    /**
+     * Create a new decorated output stream with a callback that is invoked after the content was flushed or the stream was closed. The
+     * callback can be used to invalidate cached metadata of the file.
+     *
+     * @param file          File that will provide the output stream
+     * @param appendContent Append the content to the current file or overwrite it
+     * @param writeCallback Callback that is invoked after a flush or close
+     */
+    public SmbOutputStream(File file, boolean appendContent, Runnable writeCallback) {
+        this.file = file;
+        this.outputStream = !appendContent ? file.getOutputStream(false) : null;
+        this.writeCallback = writeCallback;
+        this.chunkSize = appendContent ? VALUE_BUFFER_SIZE : 0;
+        this.maxPendingWrites = 0;
+        this.writeOffset = appendContent ? getEndOfFile(file) : 0;
+    }
+
+    /**
+     * Create a new output stream that writes behind with several concurrent requests. The chunk size should be the maximum write size that was
+     * negotiated with the server, so each chunk is transferred with a single request. A flush waits until all outstanding writes were
+     * acknowledged by the server.
+     *
+     * @param file             File that will be written
+     * @param appendContent    Append the content to the current file or overwrite it
+     * @param writeCallback    Callback that is invoked after a flush or close
+     * @param chunkSize        Size of a chunk that is written by a single request
+     * @param maxPendingWrites Maximum number of outstanding chunk writes
+     * @throws IllegalArgumentException Exception in case the chunk size or the number of outstanding writes is invalid
+     */
+    public SmbOutputStream(File file, boolean appendContent, Runnable writeCallback, int chunkSize, int maxPendingWrites) {
+        if (chunkSize < 1 || maxPendingWrites < 1) {
+            throw new IllegalArgumentException("The chunk size and the number of outstanding writes have to be at least 1");
+        }
         this.file = file;
-        this.outputStream = file.getOutputStream(appendContent);
-        this.appendContent = appendContent;
+        this.outputStream = null;
+        this.writeCallback = writeCallback;
+        this.chunkSize = chunkSize;
+        this.maxPendingWrites = maxPendingWrites;
+        this.writeOffset = appendContent ? getEndOfFile(file) : 0;
     }
 
     /**
-     * Write a single value to the SMB file. The value is appended if appendContent is set to true.
+     * Write a single value to the SMB file. The value is appended if the stream was created in append mode.
      *
      * @param value Value to write or append
      * @throws IOException Exception in case of an IO/network problem
      */
     @Override
     public void write(int value) throws IOException {
-        outputStream.write(value);
+        if (outputStream != null) {
+            outputStream.write(value);
+            return;
+        }
+        checkCompletedWrites();
+        ensureChunk();
+        currentChunk[currentLength++] = (byte) value;
+        if (currentLength == chunkSize) {
+            submitChunk();
+        }
     }
 
     /**
-     * Write a byte buffer to the SMB file. The values are appended if appendContent is set to true. Otherwise, they will overwrite the file.
+     * Write a byte buffer to the SMB file. The values are appended if the stream was created in append mode. Otherwise, they will overwrite the
+     * file.
      *
      * @param values Values to write or append
      * @throws IOException Exception in case of an IO/network problem
      */
     @Override
     public void write(byte[] values) throws IOException {
-        outputStream.write(values, 0, values.length); // smbj ignores the offset when appending is enabled
+        if (outputStream != null) {
+            outputStream.write(values);
+            return;
+        }
+        write(values, 0, values.length);
     }
 
     /**
-     * Write a byte buffer to the SMB file at a given offset with a given size. This method can only be used when appendContent is set to false.
+     * Write a part of a byte buffer to the SMB file. The values are appended if the stream was created in append mode. When appending without
+     * write-behind, the values are written directly from the given buffer.
      *
-     * @param values Values to write
-     * @param offset Offset in the file
+     * @param values Values to write or append
+     * @param offset Offset in the buffer
      * @param length Length of the values to write
      * @throws IOException Exception in case of an IO/network problem
      */
     @Override
     public void write(byte[] values, int offset, int length) throws IOException {
-        if (appendContent) {
-            throw new IOException("The method SmbOutputStream.write(values, offset, length) can not be used when appendingContent is set to true.");
+        if (outputStream != null) {
+            outputStream.write(values, offset, length);
+            return;
+        }
+        if (offset < 0 || length < 0 || length > values.length - offset) {
+            throw new IndexOutOfBoundsException("Invalid offset or length for a buffer with " + values.length + " bytes");
+        }
+
+        // Write the slice at the end of the file without copying it
+        if (!isWriteBehind()) {
+            submitChunk();
+            if (length > 0) {
+                writeOffset += file.write(values, writeOffset, offset, length);
+            }
+            return;
+        }
+
+        // Copy the values into chunks, because the caller might reuse the buffer while the chunks are written
+        checkCompletedWrites();
+        int writtenBytes = 0;
+        while (writtenBytes < length) {
+            ensureChunk();
+            int copiedBytes = Math.min(length - writtenBytes, chunkSize - currentLength);
+            System.arraycopy(values, offset + writtenBytes, currentChunk, currentLength, copiedBytes);
+            currentLength += copiedBytes;
+            writtenBytes += copiedBytes;
+            if (currentLength == chunkSize) {
+                submitChunk();
+            }
         }
-        outputStream.write(values, offset, length);
     }
 
     /**
-     * {@inheritDoc}
+     * Flush the content. The collected values are written and in write-behind mode, the flush waits until all outstanding writes were
+     * acknowledged by the server.
+     *
+     * @throws IOException Exception in case of an IO/network problem, including the ones of previous background writes
      */
     @Override
     public void flush() throws IOException {
-        outputStream.flush();
+        if (outputStream != null) {
+            outputStream.flush();
+        } else {
+            submitChunk();
+            awaitPendingWrites();
+        }
+        writeCallback.run();
     }
 
     /**
@@ -91,8 +237,171 @@ public class SmbOutputStream extends OutputStream {
      */
     @Override
     public void close() throws IOException {
-        outputStream.flush();
-        outputStream.close();
-        file.close();
+        try {
+            if (outputStream != null) {
+                outputStream.flush();
+                outputStream.close();
+                file.close();
+            } else {
+                try {
+                    submitChunk();
+                    awaitPendingWrites();
+                } finally {
+                    awaitPendingWritesSilently();
+                    file.close();
+                }
+            }
+        } finally {
+            writeCallback.run();
+        }
+    }
+
+    /**
+     * Check if the stream writes behind with several concurrent requests.
+     *
+     * @return Status of the check
+     */
+    private boolean isWriteBehind() {
+        return maxPendingWrites > 0;
+    }
+
+    /**
+     * Get the end offset of the file, at which appended content is written.
+     *
+     * @param file File to query
+     * @return End offset of the file in bytes
+     */
+    private static long getEndOfFile(File file) {
+        return file.getFileInformation(FileStandardInformation.class).getEndOfFile();
+    }
+
+    /**
+     * Make sure there is a chunk with free space, preferably by reusing the chunk of a completed write.
+     */
+    private void ensureChunk() {
+        if (currentChunk == null) {
+            byte[] freeChunk = freeChunks.poll();
+            currentChunk = freeChunk != null ? freeChunk : new byte[chunkSize];
+            currentLength = 0;
+        }
+    }
+
+    /**
+     * Write the current chunk in the background. If the maximum number of outstanding writes is reached, the oldest write is awaited first.
+     * When appending without write-behind, the chunk is written directly.
+     *
+     * @throws IOException Exception in case of a previous background write problem
+     */
+    private void submitChunk() throws IOException {
+        if (currentChunk == null || currentLength == 0) {
+            return;
+        }
+        if (!isWriteBehind()) {
+            writeOffset += file.write(currentChunk, writeOffset, 0, currentLength);
+            currentLength = 0;
+            return;
+        }
+        while (pendingWrites.size() >= maxPendingWrites) {
+            awaitWrite(pendingWrites.poll());
+        }
+
+        byte[] chunk = currentChunk;
+        int length = currentLength;
+        long chunkOffset = writeOffset;
+        Future<?> future = SmbTransferExecutor.getExecutorService().submit(() -> file.write(chunk, chunkOffset, 0, length));
+        pendingWrites.add(new PendingWrite(future, chunk));
+        writeOffset += length;
+        currentChunk = null;
+        currentLength = 0;
+    }
+
+    /**
+     * Collect the completed writes without waiting and report the first error.
+     *
+     * @throws IOException Exception in case of a background write problem
+     */
+    private void checkCompletedWrites() throws IOException {
+        if (deferredException != null) {
+            throw deferredException;
+        }
+        while (!pendingWrites.isEmpty() && pendingWrites.peek().future.isDone()) {
+            awaitWrite(pendingWrites.poll());
+        }
+    }
+
+    /**
+     * Wait for all outstanding writes and report the first error.
+     *
+     * @throws IOException Exception in case of a background write problem
+     */
+    private void awaitPendingWrites() throws IOException {
+        while (!pendingWrites.isEmpty()) {
+            awaitWrite(pendingWrites.poll());
+        }
+        if (deferredException != null) {
+            throw deferredException;
+        }
+    }
+
+    /**
+     * Wait for all outstanding writes and ignore their errors, so no write is running while the file is closed.
+     */
+    private void awaitPendingWritesSilently() {
+        while (!pendingWrites.isEmpty()) {
+            try {
+                awaitWrite(pendingWrites.poll());
+            } catch (IOException exception) {
+                // The first error was already reported
+            }
+        }
+    }
+
+    /**
+     * Wait for a write and release its chunk. The first error is kept, so it's reported again by all following calls.
+     *
+     * @param pendingWrite Outstanding write
+     * @throws IOException Exception in case the write failed or the thread was interrupted
+     */
+    private void awaitWrite(PendingWrite pendingWrite) throws IOException {
+        try {
+            pendingWrite.future.get();
+            freeChunks.add(pendingWrite.chunk);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a write");
+        } catch (ExecutionException exception) {
+            if (deferredException == null) {
+                Throwable cause = exception.getCause();
+                deferredException = cause instanceof IOException ? (IOException) cause : new IOException("Unable to write a chunk: " + cause.getMessage(), cause);
+            }
+            throw deferredException;
+        }
+    }
+
+    /**
+     * This class represents an outstanding write with its chunk.
+     */
+    private static final class PendingWrite {
+
+        /**
+         * Future of the write.
+         */
+        private final Future<?> future;
+
+        /**
+         * Chunk that is written.
+         */
+        private final byte[] chunk;
+
+        /**
+         * Create a new outstanding write.
+         *
+         * @param future Future of the write
+         * @param chunk  Chunk that is written
+         */
+        private PendingWrite(Future<?> future, byte[] chunk) {
+            this.future = future;
+            this.chunk = chunk;
+        }
     }
 }
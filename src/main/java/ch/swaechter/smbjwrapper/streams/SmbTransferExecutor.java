@@ -0,0 +1,31 @@
+package ch.swaechter.smbjwrapper.streams;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class represents the shared executor that runs the pipelined read and write requests of the streams. The threads are daemon threads
+ * and are released after they were idle for a while, so streams don't have to shut the executor down.
+ *
+ * @author Simon Wächter
+ */
+final class SmbTransferExecutor {
+
+    /**
+     * Shared executor with daemon threads.
+     */
+    private static final ExecutorService EXECUTOR_SERVICE = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "smbjwrapper-transfer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Get the shared executor.
+     *
+     * @return Shared executor
+     */
+    static ExecutorService getExecutorService() {
+        return EXECUTOR_SERVICE;
+    }
+}
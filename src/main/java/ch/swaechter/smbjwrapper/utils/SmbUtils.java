@@ -1,5 +1,8 @@
 package ch.swaechter.smbjwrapper.utils;
 
+import com.hierynomus.mserref.NtStatus;
+import com.hierynomus.mssmb2.SMBApiException;
+
 /**
  * This class provides some common SMB util methods.
  *
@@ -23,4 +26,64 @@ public class SmbUtils {
                 return true;
         }
     }
+
+    /**
+     * Check if the SMB exception was caused by a path that does not exist (Or is about to be deleted).
+     *
+     * @param exception SMB exception to be checked
+     * @return Status of the check
+     */
+    public static boolean isNotFound(SMBApiException exception) {
+        NtStatus status = exception.getStatus();
+        return status == NtStatus.STATUS_OBJECT_NAME_NOT_FOUND
+            || status == NtStatus.STATUS_OBJECT_PATH_NOT_FOUND
+            || status == NtStatus.STATUS_NO_SUCH_FILE
+            || status == NtStatus.STATUS_DELETE_PENDING;
+    }
+
+    /**
+     * Check if the SMB item name matches a wildcard pattern, where * matches any sequence and ? matches a single character. Like on most SMB
+     * servers, the check is case insensitive.
+     *
+     * @param itemName        Item name to be checked
+     * @param wildcardPattern Wildcard pattern like *.csv
+     * @return Status of the check
+     */
+    public static boolean matchesWildcard(String itemName, String wildcardPattern) {
+        int nameIndex = 0;
+        int patternIndex = 0;
+        int starPatternIndex = -1;
+        int starNameIndex = 0;
+        while (nameIndex < itemName.length()) {
+            if (patternIndex < wildcardPattern.length() && wildcardPattern.charAt(patternIndex) == '*') {
+                // Remember the star and try to match an empty sequence first
+                starPatternIndex = patternIndex++;
+                starNameIndex = nameIndex;
+            } else if (patternIndex < wildcardPattern.length() && (wildcardPattern.charAt(patternIndex) == '?' || equalsIgnoreCase(wildcardPattern.charAt(patternIndex), itemName.charAt(nameIndex)))) {
+                patternIndex++;
+                nameIndex++;
+            } else if (starPatternIndex != -1) {
+                // Let the last star match one more character
+                patternIndex = starPatternIndex + 1;
+                nameIndex = ++starNameIndex;
+            } else {
+                return false;
+            }
+        }
+        while (patternIndex < wildcardPattern.length() && wildcardPattern.charAt(patternIndex) == '*') {
+            patternIndex++;
+        }
+        return patternIndex == wildcardPattern.length();
+    }
+
+    /**
+     * Check if two characters are equal, ignoring the case.
+     *
+     * @param character1 First character
+     * @param character2 Second character
+     * @return Status of the check
+     */
+    private static boolean equalsIgnoreCase(char character1, char character2) {
+        return Character.toUpperCase(character1) == Character.toUpperCase(character2) || Character.toLowerCase(character1) == Character.toLowerCase(character2);
+    }
 }
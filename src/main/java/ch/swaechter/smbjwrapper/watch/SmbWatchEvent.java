@@ -0,0 +1,72 @@
+package ch.swaechter.smbjwrapper.watch;
+
+/**
+ * This class represents a single change of an item in a watched directory.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbWatchEvent {
+
+    /**
+     * Kind of the event.
+     */
+    private final SmbWatchEventKind kind;
+
+    /**
+     * Path of the changed item.
+     */
+    private final String path;
+
+    /**
+     * Previous path of a renamed item or null.
+     */
+    private final String previousPath;
+
+    /**
+     * Create a new watch event.
+     *
+     * @param kind         Kind of the event
+     * @param path         Path of the changed item
+     * @param previousPath Previous path of a renamed item or null
+     */
+    public SmbWatchEvent(SmbWatchEventKind kind, String path, String previousPath) {
+        this.kind = kind;
+        this.path = path;
+        this.previousPath = previousPath;
+    }
+
+    /**
+     * Get the kind of the event.
+     *
+     * @return Kind of the event
+     */
+    public SmbWatchEventKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the path of the changed item. For renamed items, it's the new path.
+     *
+     * @return Path of the changed item
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the previous path of a renamed item.
+     *
+     * @return Previous path or null, if the item was not renamed
+     */
+    public String getPreviousPath() {
+        return previousPath;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return previousPath != null ? kind + " " + previousPath + " -> " + path : kind + " " + path;
+    }
+}
@@ -0,0 +1,34 @@
+package ch.swaechter.smbjwrapper.watch;
+
+/**
+ * This enum represents the kind of a watch event.
+ *
+ * @author Simon Wächter
+ */
+public enum SmbWatchEventKind {
+
+    /**
+     * The item was created.
+     */
+    CREATED,
+
+    /**
+     * The content or the attributes of the item were modified.
+     */
+    MODIFIED,
+
+    /**
+     * The item was deleted.
+     */
+    DELETED,
+
+    /**
+     * The item was renamed, the previous path is part of the event.
+     */
+    RENAMED,
+
+    /**
+     * Events of the watched directory were lost and could not be recovered by a rescan. The path is the one of the watched directory.
+     */
+    OVERFLOW
+}
@@ -0,0 +1,19 @@
+package ch.swaechter.smbjwrapper.watch;
+
+import java.util.List;
+
+/**
+ * This interface represents a listener that receives the coalesced events of a watch service.
+ *
+ * @author Simon Wächter
+ */
+@FunctionalInterface
+public interface SmbWatchListener {
+
+    /**
+     * Handle a batch of coalesced events. The method is always called from the same dispatcher thread, so a slow listener delays the next batch.
+     *
+     * @param watchEvents Coalesced events in the order of their occurrence
+     */
+    void onEvents(List<SmbWatchEvent> watchEvents);
+}
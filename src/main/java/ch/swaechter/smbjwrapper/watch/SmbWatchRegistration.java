@@ -0,0 +1,446 @@
+package ch.swaechter.smbjwrapper.watch;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+import ch.swaechter.smbjwrapper.SmbDirectory;
+import ch.swaechter.smbjwrapper.SmbItemAttributes;
+import ch.swaechter.smbjwrapper.scan.SmbScanEntry;
+import ch.swaechter.smbjwrapper.scan.SmbScanResult;
+import ch.swaechter.smbjwrapper.scan.SmbScanSnapshot;
+import ch.swaechter.smbjwrapper.scan.SmbShareScanner;
+import ch.swaechter.smbjwrapper.utils.SmbUtils;
+import com.hierynomus.msdtyp.AccessMask;
+import com.hierynomus.mserref.NtStatus;
+import com.hierynomus.mssmb2.SMB2CompletionFilter;
+import com.hierynomus.mssmb2.SMB2CreateDisposition;
+import com.hierynomus.mssmb2.SMB2ShareAccess;
+import com.hierynomus.mssmb2.SMBApiException;
+import com.hierynomus.mssmb2.messages.SMB2ChangeNotifyResponse;
+import com.hierynomus.smbj.share.Directory;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class represents a directory that is registered at a watch service. The directory is watched via SMB2 CHANGE_NOTIFY requests on a
+ * dedicated handle. The last known state is scanned once on the watcher thread and then kept up to date with the notified changes. In case the
+ * server reports an overflow or the handle is lost, the directory is rescanned fully and the differences to the last known state are reported
+ * as events. Events are delivered at least once, so a rescan might report a change again.
+ *
+ * @author Simon Wächter
+ */
+public final class SmbWatchRegistration {
+
+    /**
+     * Changes the server reports.
+     */
+    private static final Set<SMB2CompletionFilter> COMPLETION_FILTER = EnumSet.of(
+        SMB2CompletionFilter.FILE_NOTIFY_CHANGE_FILE_NAME,
+        SMB2CompletionFilter.FILE_NOTIFY_CHANGE_DIR_NAME,
+        SMB2CompletionFilter.FILE_NOTIFY_CHANGE_ATTRIBUTES,
+        SMB2CompletionFilter.FILE_NOTIFY_CHANGE_SIZE,
+        SMB2CompletionFilter.FILE_NOTIFY_CHANGE_LAST_WRITE,
+        SMB2CompletionFilter.FILE_NOTIFY_CHANGE_CREATION
+    );
+
+    /**
+     * Delay in milliseconds before a lost handle is reopened.
+     */
+    private static final long REOPEN_DELAY_MILLIS = 1000;
+
+    /**
+     * Watch service the events are published to.
+     */
+    private final SmbWatchService watchService;
+
+    /**
+     * SMB connection to access the server.
+     */
+    private final SmbConnection smbConnection;
+
+    /**
+     * Path of the watched directory.
+     */
+    private final String directoryPath;
+
+    /**
+     * Flag to watch the whole subtree instead of the direct entries only.
+     */
+    private final boolean watchSubtree;
+
+    /**
+     * Scanner that is used to take the initial state and to recover lost events. Without a subtree watch, only the direct entries are scanned.
+     */
+    private final SmbShareScanner shareScanner;
+
+    /**
+     * Last known entries of the watched directory, sorted by path. Only accessed by the watcher thread.
+     */
+    private final TreeMap<String, SmbScanEntry> knownEntries = new TreeMap<>();
+
+    /**
+     * Open handle of the watched directory or null.
+     */
+    private final AtomicReference<Directory> directory = new AtomicReference<>();
+
+    /**
+     * Outstanding change notification or null.
+     */
+    private volatile Future<SMB2ChangeNotifyResponse> pendingNotification;
+
+    /**
+     * Snapshot of the last scan with the state of the watched directory itself or null, if it was not scanned yet. Only accessed by the watcher
+     * thread.
+     */
+    private SmbScanSnapshot snapshot;
+
+    /**
+     * Flag whether the registration was cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Create a new registration and open the handle of the watched directory. The initial state is scanned later on by the watcher thread.
+     *
+     * @param watchService  Watch service the events are published to
+     * @param smbConnection SMB connection
+     * @param directoryPath Path of the watched directory
+     * @param watchSubtree  Flag to watch the whole subtree
+     */
+    SmbWatchRegistration(SmbWatchService watchService, SmbConnection smbConnection, String directoryPath, boolean watchSubtree) {
+        this.watchService = watchService;
+        this.smbConnection = smbConnection;
+        this.directoryPath = directoryPath;
+        this.watchSubtree = watchSubtree;
+        this.shareScanner = new SmbShareScanner(smbConnection, directoryPath, watchSubtree);
+        this.directory.set(openDirectory());
+    }
+
+    /**
+     * Get the path of the watched directory.
+     *
+     * @return Path of the watched directory
+     */
+    public String getDirectoryPath() {
+        return directoryPath;
+    }
+
+    /**
+     * Check if the whole subtree is watched.
+     *
+     * @return Status of the check
+     */
+    public boolean isWatchingSubtree() {
+        return watchSubtree;
+    }
+
+    /**
+     * Check if the registration was cancelled.
+     *
+     * @return Status of the check
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancel the registration and close the watched handle. Cancelling the registration multiple times has no effect.
+     */
+    public void cancel() {
+        cancelled = true;
+        Future<SMB2ChangeNotifyResponse> notification = pendingNotification;
+        if (notification != null) {
+            notification.cancel(true);
+        }
+        closeDirectory();
+        watchService.unregister(this);
+    }
+
+    /**
+     * Watch the directory until the registration is cancelled.
+     */
+    void watch() {
+        boolean rescanRequired = false;
+        while (!cancelled) {
+            try {
+                // Reopen a lost handle and recover the events that were lost in the meantime
+                Directory watchedDirectory = directory.get();
+                if (watchedDirectory == null) {
+                    watchedDirectory = openDirectory();
+                    directory.set(watchedDirectory);
+                }
+                if (snapshot == null) {
+                    rebase(shareScanner.scanFully(null).getSnapshot());
+                    rescanRequired = false;
+                }
+                if (rescanRequired) {
+                    rescanRequired = false;
+                    rescan();
+                }
+
+                // Wait for the next change notification
+                Future<SMB2ChangeNotifyResponse> notification = watchedDirectory.watchAsync(COMPLETION_FILTER, watchSubtree);
+                pendingNotification = notification;
+                SMB2ChangeNotifyResponse response = notification.get();
+                if (cancelled) {
+                    break;
+                }
+
+                long statusCode = response.getHeader().getStatusCode();
+                if (statusCode == NtStatus.STATUS_NOTIFY_ENUM_DIR.getValue()) {
+                    rescan();
+                } else if (statusCode == NtStatus.STATUS_NOTIFY_CLEANUP.getValue()) {
+                    closeDirectory();
+                    rescanRequired = true;
+                } else {
+                    List<SmbWatchEvent> watchEvents = convertNotifications(response.getFileNotifyInfoList());
+                    watchService.publish(watchEvents);
+                    applyEvents(SmbWatchService.coalesce(watchEvents));
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception exception) {
+                if (cancelled) {
+                    break;
+                }
+
+                // The handle or the connection was lost, so try again after a delay
+                closeDirectory();
+                rescanRequired = true;
+                try {
+                    Thread.sleep(REOPEN_DELAY_MILLIS);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        closeDirectory();
+    }
+
+    /**
+     * Convert the notifications of the server to watch events with full paths.
+     *
+     * @param fileNotifyInfos Notifications of the server
+     * @return Converted watch events
+     */
+    private List<SmbWatchEvent> convertNotifications(List<SMB2ChangeNotifyResponse.FileNotifyInfo> fileNotifyInfos) {
+        List<SmbWatchEvent> watchEvents = new ArrayList<>();
+        String renamedPath = null;
+        for (SMB2ChangeNotifyResponse.FileNotifyInfo fileNotifyInfo : fileNotifyInfos) {
+            String path = buildPath(fileNotifyInfo.getFileName());
+            switch (fileNotifyInfo.getAction()) {
+                case FILE_ACTION_ADDED:
+                    watchEvents.add(new SmbWatchEvent(SmbWatchEventKind.CREATED, path, null));
+                    break;
+                case FILE_ACTION_REMOVED:
+                case FILE_ACTION_REMOVED_BY_DELETE:
+                    watchEvents.add(new SmbWatchEvent(SmbWatchEventKind.DELETED, path, null));
+                    break;
+                case FILE_ACTION_MODIFIED:
+                case FILE_ACTION_ADDED_STREAM:
+                case FILE_ACTION_REMOVED_STREAM:
+                case FILE_ACTION_MODIFIED_STREAM:
+                    watchEvents.add(new SmbWatchEvent(SmbWatchEventKind.MODIFIED, path, null));
+                    break;
+                case FILE_ACTION_RENAMED_OLD_NAME:
+                    renamedPath = path;
+                    break;
+                case FILE_ACTION_RENAMED_NEW_NAME:
+                    if (renamedPath != null) {
+                        watchEvents.add(new SmbWatchEvent(SmbWatchEventKind.RENAMED, path, renamedPath));
+                        renamedPath = null;
+                    } else {
+                        watchEvents.add(new SmbWatchEvent(SmbWatchEventKind.CREATED, path, null));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // The new name of a rename might be outside the watched directory
+        if (renamedPath != null) {
+            watchEvents.add(new SmbWatchEvent(SmbWatchEventKind.DELETED, renamedPath, null));
+        }
+        return watchEvents;
+    }
+
+    /**
+     * Apply the notified changes to the last known entries, so a later rescan only reports the changes that were really lost. Created, modified
+     * and renamed items are queried once, the entries below a renamed directory are moved along.
+     *
+     * @param watchEvents Coalesced events of a notification
+     */
+    private void applyEvents(List<SmbWatchEvent> watchEvents) {
+        for (SmbWatchEvent watchEvent : watchEvents) {
+            switch (watchEvent.getKind()) {
+                case CREATED:
+                    updateEntry(watchEvent.getPath(), true);
+                    break;
+                case MODIFIED:
+                    updateEntry(watchEvent.getPath(), false);
+                    break;
+                case RENAMED:
+                    moveEntries(watchEvent.getPreviousPath(), watchEvent.getPath());
+                    updateEntry(watchEvent.getPath(), false);
+                    break;
+                case DELETED:
+                    removeEntries(watchEvent.getPath());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Query an item and update its known entry. The entries below a created directory are scanned too, because a directory that was moved into
+     * the watched tree is only reported as a single creation.
+     *
+     * @param path        Path of the item
+     * @param scanSubtree Flag to scan the entries below a directory
+     */
+    private void updateEntry(String path, boolean scanSubtree) {
+        SmbItemAttributes attributes;
+        try {
+            attributes = new SmbDirectory(smbConnection, path).readAttributes();
+        } catch (SMBApiException exception) {
+            // The item was removed again after the notification
+            if (SmbUtils.isNotFound(exception)) {
+                removeEntries(path);
+                return;
+            }
+            throw exception;
+        }
+
+        SmbScanEntry entry = SmbScanEntry.fromAttributes(path, attributes);
+        knownEntries.put(path, entry);
+        if (scanSubtree && watchSubtree && entry.isDirectory()) {
+            for (SmbScanEntry childEntry : new SmbShareScanner(smbConnection, path).scanFully(null).getSnapshot().getEntries()) {
+                knownEntries.put(childEntry.getPath(), childEntry);
+            }
+        }
+    }
+
+    /**
+     * Move the known entry of a renamed item and all known entries below it to the new path.
+     *
+     * @param previousPath Previous path of the item
+     * @param path         New path of the item
+     */
+    private void moveEntries(String previousPath, String path) {
+        removeEntries(path);
+        Map<String, SmbScanEntry> movedEntries = new HashMap<>();
+        SmbScanEntry entry = knownEntries.remove(previousPath);
+        if (entry != null) {
+            movedEntries.put(path, entry);
+        }
+        SortedMap<String, SmbScanEntry> childEntries = knownEntries.subMap(previousPath + "/", previousPath + "0");
+        for (SmbScanEntry childEntry : childEntries.values()) {
+            movedEntries.put(path + childEntry.getPath().substring(previousPath.length()), childEntry);
+        }
+        childEntries.clear();
+        for (Map.Entry<String, SmbScanEntry> movedEntry : movedEntries.entrySet()) {
+            SmbScanEntry oldEntry = movedEntry.getValue();
+            knownEntries.put(movedEntry.getKey(), new SmbScanEntry(movedEntry.getKey(), oldEntry.isDirectory(), oldEntry.getFileSize(), oldEntry.getLastWriteTime(), oldEntry.getChangeTime(), oldEntry.getFileId()));
+        }
+    }
+
+    /**
+     * Remove the known entry of a deleted item and all known entries below it. The range of the entries below ends before "0", which is the
+     * character that follows the path separator.
+     *
+     * @param path Path of the item
+     */
+    private void removeEntries(String path) {
+        knownEntries.remove(path);
+        knownEntries.subMap(path + "/", path + "0").clear();
+    }
+
+    /**
+     * Replace the last known state with a scanned snapshot.
+     *
+     * @param scannedSnapshot Scanned snapshot
+     */
+    private void rebase(SmbScanSnapshot scannedSnapshot) {
+        snapshot = scannedSnapshot;
+        knownEntries.clear();
+        for (SmbScanEntry entry : scannedSnapshot.getEntries()) {
+            knownEntries.put(entry.getPath(), entry);
+        }
+    }
+
+    /**
+     * Rescan the watched directory fully and publish the differences to the last known state. If the rescan fails, an overflow event is
+     * published.
+     */
+    private void rescan() {
+        try {
+            SmbScanSnapshot knownSnapshot = SmbScanSnapshot.fromEntries(directoryPath, snapshot.getRootChangeTime(), snapshot.getRootFileId(), knownEntries.values());
+            SmbScanResult scanResult = shareScanner.scanFully(knownSnapshot);
+            rebase(scanResult.getSnapshot());
+
+            List<SmbWatchEvent> watchEvents = new ArrayList<>();
+            addScanEvents(watchEvents, scanResult.getAddedEntries(), SmbWatchEventKind.CREATED);
+            addScanEvents(watchEvents, scanResult.getModifiedEntries(), SmbWatchEventKind.MODIFIED);
+            addScanEvents(watchEvents, scanResult.getDeletedEntries(), SmbWatchEventKind.DELETED);
+            watchService.publish(watchEvents);
+        } catch (RuntimeException exception) {
+            List<SmbWatchEvent> watchEvents = new ArrayList<>();
+            watchEvents.add(new SmbWatchEvent(SmbWatchEventKind.OVERFLOW, directoryPath, null));
+            watchService.publish(watchEvents);
+        }
+    }
+
+    /**
+     * Add the events of scanned entries. Without a subtree watch, the scanner only returns the direct entries of the watched directory.
+     *
+     * @param watchEvents Watch events the events are added to
+     * @param scanEntries Scanned entries
+     * @param kind        Kind of the events
+     */
+    private void addScanEvents(List<SmbWatchEvent> watchEvents, List<SmbScanEntry> scanEntries, SmbWatchEventKind kind) {
+        for (SmbScanEntry scanEntry : scanEntries) {
+            watchEvents.add(new SmbWatchEvent(kind, scanEntry.getPath(), null));
+        }
+    }
+
+    /**
+     * Build the full path of a notified item. The server reports paths relative to the watched directory and separated by backslashes.
+     *
+     * @param relativePath Relative path of the notified item
+     * @return Full path of the item
+     */
+    private String buildPath(String relativePath) {
+        String path = relativePath.replace('\\', '/');
+        return directoryPath.isEmpty() ? path : directoryPath + "/" + path;
+    }
+
+    /**
+     * Open a dedicated handle of the watched directory.
+     *
+     * @return Open handle
+     */
+    private Directory openDirectory() {
+        return smbConnection.getDiskShare().openDirectory(directoryPath, EnumSet.of(AccessMask.FILE_LIST_DIRECTORY), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OPEN, null);
+    }
+
+    /**
+     * Close the handle of the watched directory, if it's open.
+     */
+    private void closeDirectory() {
+        Directory openDirectory = directory.getAndSet(null);
+        if (openDirectory != null) {
+            openDirectory.closeSilently();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package ch.swaechter.smbjwrapper.watch;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class represents a watch service that pushes the changes of registered directories to a listener. Each registered directory is watched
+ * via SMB2 CHANGE_NOTIFY on a dedicated handle and thread, so no polling is required. The events are collected until no further event arrived
+ * for the coalesce duration, then they are coalesced per path and delivered as a single batch.
+ * <p>
+ * Note: The watch service is thread safe.
+ *
+ * @author Simon Wächter
+ */
+public class SmbWatchService implements AutoCloseable {
+
+    /**
+     * Default duration in milliseconds the events are collected before they are delivered.
+     */
+    public static final long DEFAULT_COALESCE_MILLIS = 200;
+
+    /**
+     * Default maximum number of collected events per batch.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Listener that receives the coalesced events.
+     */
+    private final SmbWatchListener watchListener;
+
+    /**
+     * Duration in milliseconds the events are collected before they are delivered.
+     */
+    private final long coalesceMillis;
+
+    /**
+     * Maximum number of collected events per batch.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Events that were not delivered yet.
+     */
+    private final BlockingQueue<SmbWatchEvent> pendingEvents = new LinkedBlockingQueue<>();
+
+    /**
+     * All active registrations.
+     */
+    private final Set<SmbWatchRegistration> registrations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Executor that runs the dispatcher and one watcher per registration.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Flag whether the watch service was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create a new watch service with the default coalesce duration and batch size.
+     *
+     * @param watchListener Listener that receives the coalesced events
+     */
+    public SmbWatchService(SmbWatchListener watchListener) {
+        this(watchListener, DEFAULT_COALESCE_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Create a new watch service with a custom coalesce duration and batch size.
+     *
+     * @param watchListener  Listener that receives the coalesced events
+     * @param coalesceMillis Duration in milliseconds the events are collected before they are delivered
+     * @param maxBatchSize   Maximum number of collected events per batch
+     */
+    public SmbWatchService(SmbWatchListener watchListener, long coalesceMillis, int maxBatchSize) {
+        if (coalesceMillis < 0 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("The coalesce duration can't be negative and a batch requires at least one event");
+        }
+        this.watchListener = watchListener;
+        this.coalesceMillis = coalesceMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.executorService = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "smbjwrapper-watch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executorService.execute(this::dispatch);
+    }
+
+    /**
+     * Register a directory and start watching it. The current state of the directory is scanned once on the watcher thread, so lost events can
+     * be recovered by a rescan later on. Without a subtree watch, only the direct entries of the directory are scanned.
+     *
+     * @param smbConnection SMB connection
+     * @param directoryPath Path of the watched directory
+     * @param watchSubtree  Flag to watch the whole subtree instead of the direct entries only
+     * @return Registration that can be cancelled
+     * @throws IllegalStateException Exception in case the watch service was already closed
+     */
+    public SmbWatchRegistration register(SmbConnection smbConnection, String directoryPath, boolean watchSubtree) {
+        if (closed) {
+            throw new IllegalStateException("The watch service was already closed");
+        }
+        SmbWatchRegistration watchRegistration = new SmbWatchRegistration(this, smbConnection, directoryPath, watchSubtree);
+        registrations.add(watchRegistration);
+        executorService.execute(watchRegistration::watch);
+        return watchRegistration;
+    }
+
+    /**
+     * Get the number of active registrations.
+     *
+     * @return Number of active registrations
+     */
+    public int getRegistrationCount() {
+        return registrations.size();
+    }
+
+    /**
+     * Cancel all registrations and stop the delivery of events.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (SmbWatchRegistration watchRegistration : new ArrayList<>(registrations)) {
+            watchRegistration.cancel();
+        }
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Publish events of a registration, so they are delivered with the next batch.
+     *
+     * @param watchEvents Events to publish
+     */
+    void publish(List<SmbWatchEvent> watchEvents) {
+        if (!closed) {
+            pendingEvents.addAll(watchEvents);
+        }
+    }
+
+    /**
+     * Remove a cancelled registration.
+     *
+     * @param watchRegistration Cancelled registration
+     */
+    void unregister(SmbWatchRegistration watchRegistration) {
+        registrations.remove(watchRegistration);
+    }
+
+    /**
+     * Coalesce the events per path, so only the net change of each item is delivered. For example, a created and modified item is reported as
+     * created, a created and deleted item is not reported at all. A renamed item that was modified before or after the rename is reported as
+     * rename followed by a modification of the new path.
+     *
+     * @param watchEvents Events in the order of their occurrence
+     * @return Coalesced events in the order of their first occurrence
+     */
+    static List<SmbWatchEvent> coalesce(List<SmbWatchEvent> watchEvents) {
+        Map<String, SmbWatchEvent> coalescedEvents = new LinkedHashMap<>();
+        Set<String> modifiedRenamedPaths = new HashSet<>();
+        List<SmbWatchEvent> overflowEvents = new ArrayList<>();
+        for (SmbWatchEvent watchEvent : watchEvents) {
+            if (watchEvent.getKind() == SmbWatchEventKind.OVERFLOW) {
+                overflowEvents.add(watchEvent);
+                continue;
+            }
+            if (watchEvent.getKind() == SmbWatchEventKind.RENAMED) {
+                coalesceRename(coalescedEvents, modifiedRenamedPaths, watchEvent);
+                continue;
+            }
+
+            SmbWatchEvent previousEvent = coalescedEvents.get(watchEvent.getPath());
+            if (previousEvent == null) {
+                coalescedEvents.put(watchEvent.getPath(), watchEvent);
+                continue;
+            }
+            switch (previousEvent.getKind()) {
+                case CREATED:
+                    if (watchEvent.getKind() == SmbWatchEventKind.DELETED) {
+                        coalescedEvents.remove(watchEvent.getPath());
+                    }
+                    break;
+                case DELETED:
+                    if (watchEvent.getKind() == SmbWatchEventKind.CREATED) {
+                        coalescedEvents.put(watchEvent.getPath(), new SmbWatchEvent(SmbWatchEventKind.MODIFIED, watchEvent.getPath(), null));
+                    }
+                    break;
+                case RENAMED:
+                    if (watchEvent.getKind() == SmbWatchEventKind.DELETED) {
+                        modifiedRenamedPaths.remove(watchEvent.getPath());
+                        coalescedEvents.put(watchEvent.getPath(), new SmbWatchEvent(SmbWatchEventKind.DELETED, previousEvent.getPreviousPath(), null));
+                    } else if (watchEvent.getKind() == SmbWatchEventKind.MODIFIED) {
+                        modifiedRenamedPaths.add(watchEvent.getPath());
+                    }
+                    break;
+                default:
+                    coalescedEvents.put(watchEvent.getPath(), watchEvent);
+                    break;
+            }
+        }
+
+        List<SmbWatchEvent> result = new ArrayList<>(overflowEvents);
+        for (SmbWatchEvent coalescedEvent : coalescedEvents.values()) {
+            result.add(coalescedEvent);
+            if (coalescedEvent.getKind() == SmbWatchEventKind.RENAMED && modifiedRenamedPaths.contains(coalescedEvent.getPath())) {
+                result.add(new SmbWatchEvent(SmbWatchEventKind.MODIFIED, coalescedEvent.getPath(), null));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Coalesce a rename with the pending event of the previous path.
+     *
+     * @param coalescedEvents      Pending coalesced events per path
+     * @param modifiedRenamedPaths New paths of the renamed items that were modified too
+     * @param watchEvent           Rename event
+     */
+    private static void coalesceRename(Map<String, SmbWatchEvent> coalescedEvents, Set<String> modifiedRenamedPaths, SmbWatchEvent watchEvent) {
+        SmbWatchEvent previousEvent = coalescedEvents.remove(watchEvent.getPreviousPath());
+        boolean modified = modifiedRenamedPaths.remove(watchEvent.getPreviousPath());
+        if (previousEvent != null && previousEvent.getKind() == SmbWatchEventKind.CREATED) {
+            // The item did not exist before the batch, so it was created at the new path
+            coalescedEvents.put(watchEvent.getPath(), new SmbWatchEvent(SmbWatchEventKind.CREATED, watchEvent.getPath(), null));
+        } else if (previousEvent != null && previousEvent.getKind() == SmbWatchEventKind.RENAMED) {
+            // Chained renames are reported as single rename from the original path
+            coalescedEvents.put(watchEvent.getPath(), new SmbWatchEvent(SmbWatchEventKind.RENAMED, watchEvent.getPath(), previousEvent.getPreviousPath()));
+            if (modified) {
+                modifiedRenamedPaths.add(watchEvent.getPath());
+            }
+        } else {
+            // A pending modification of the previous path is carried over to the new path
+            coalescedEvents.put(watchEvent.getPath(), watchEvent);
+            if (previousEvent != null && previousEvent.getKind() == SmbWatchEventKind.MODIFIED) {
+                modifiedRenamedPaths.add(watchEvent.getPath());
+            }
+        }
+    }
+
+    /**
+     * Collect the published events and deliver them in coalesced batches until the watch service is closed.
+     */
+    private void dispatch() {
+        try {
+            while (!closed) {
+                // Wait for the first event and collect the following ones until the events settle down
+                List<SmbWatchEvent> watchEvents = new ArrayList<>();
+                watchEvents.add(pendingEvents.take());
+                while (watchEvents.size() < maxBatchSize) {
+                    SmbWatchEvent watchEvent = pendingEvents.poll(coalesceMillis, TimeUnit.MILLISECONDS);
+                    if (watchEvent == null) {
+                        break;
+                    }
+                    watchEvents.add(watchEvent);
+                }
+
+                List<SmbWatchEvent> coalescedEvents = coalesce(watchEvents);
+                if (!coalescedEvents.isEmpty() && !closed) {
+                    try {
+                        watchListener.onEvents(coalescedEvents);
+                    } catch (RuntimeException exception) {
+                        // A failing listener must not stop the delivery of the following batches
+                    }
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ch.swaechter.smbjwrapper.async;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class provides the default executor of the asynchronous API. This is the Java 21 variant of the multi-release jar that starts a new
+ * virtual thread per task, so thousands of concurrent operations don't require thousands of platform threads.
+ *
+ * @author Simon Wächter
+ */
+public class SmbAsyncExecutors {
+
+    /**
+     * Shared default executor.
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("smbjwrapper-async-", 1).factory());
+
+    /**
+     * Get the shared default executor that is used if no custom executor is passed to an asynchronous SMB item.
+     *
+     * @return Shared default executor
+     */
+    public static ExecutorService getDefaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Check if the default executor uses virtual threads.
+     *
+     * @return Status of the check
+     */
+    public static boolean isUsingVirtualThreads() {
+        return true;
+    }
+}
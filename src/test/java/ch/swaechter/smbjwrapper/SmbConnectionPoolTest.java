@@ -0,0 +1,104 @@
+package ch.swaechter.smbjwrapper;
+
+import ch.swaechter.smbjwrapper.helpers.BaseTest;
+import ch.swaechter.smbjwrapper.helpers.TestConnection;
+import com.hierynomus.smbj.SmbConfig;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmbConnectionPoolTest extends BaseTest {
+
+    /**
+     * Test the leasing and reuse of pooled connections.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testLeaseAndReuse(TestConnection testConnection) throws Exception {
+        try (SmbConnectionPool smbConnectionPool = new SmbConnectionPool(2)) {
+            // Lease a connection and return it
+            SmbConnection smbConnection1;
+            try (SmbConnectionLease smbConnectionLease = smbConnectionPool.lease(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+                smbConnection1 = smbConnectionLease.getSmbConnection();
+                assertTrue(smbConnection1.isConnectionAlive());
+                assertTrue(new SmbDirectory(smbConnection1).isExisting());
+                assertEquals(1, smbConnectionPool.getLeasedConnectionCount());
+            }
+            assertEquals(0, smbConnectionPool.getLeasedConnectionCount());
+            assertEquals(1, smbConnectionPool.getIdleConnectionCount());
+
+            // Lease it again and check that the same connection is reused
+            try (SmbConnectionLease smbConnectionLease = smbConnectionPool.lease(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+                assertSame(smbConnection1, smbConnectionLease.getSmbConnection());
+            }
+
+            // Invalidate a connection and check that it's not reused
+            try (SmbConnectionLease smbConnectionLease = smbConnectionPool.lease(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+                smbConnectionLease.invalidate();
+            }
+            assertEquals(0, smbConnectionPool.getIdleConnectionCount());
+            assertFalse(smbConnection1.isConnectionAlive());
+        }
+    }
+
+    /**
+     * Test that many threads share a bounded number of connections.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testBoundedConnections(TestConnection testConnection) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        try (SmbConnectionPool smbConnectionPool = new SmbConnectionPool(4)) {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executorService.submit(() -> {
+                    try (SmbConnectionLease smbConnectionLease = smbConnectionPool.lease(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+                        assertTrue(smbConnectionPool.getLeasedConnectionCount() <= 4);
+                        return new SmbDirectory(smbConnectionLease.getSmbConnection()).isExisting();
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+            assertTrue(smbConnectionPool.getIdleConnectionCount() <= 4);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Test the lease timeout and the eviction of idle connections.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testTimeoutAndEviction(TestConnection testConnection) throws Exception {
+        try (SmbConnectionPool smbConnectionPool = new SmbConnectionPool(SmbConfig.builder().build(), 1, 0, 100)) {
+            // Exhaust the pool and check the lease timeout
+            try (SmbConnectionLease smbConnectionLease = smbConnectionPool.lease(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+                assertThrows(IOException.class, () -> smbConnectionPool.lease(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext()));
+            }
+
+            // Evict the idle connection
+            smbConnectionPool.evictIdleConnections();
+            assertEquals(0, smbConnectionPool.getIdleConnectionCount());
+        }
+    }
+}
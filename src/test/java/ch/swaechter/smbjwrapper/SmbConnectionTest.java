@@ -3,10 +3,21 @@ package ch.swaechter.smbjwrapper;
 import ch.swaechter.smbjwrapper.helpers.BaseTest;
 import ch.swaechter.smbjwrapper.helpers.TestConnection;
 import com.hierynomus.smbj.SmbConfig;
+import com.hierynomus.smbj.share.DiskShare;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SmbConnectionTest extends BaseTest {
@@ -98,4 +109,156 @@ public class SmbConnectionTest extends BaseTest {
             }
         }
     }
+
+    /**
+     * Test the sharing of the connection and session via a session registry.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testSessionRegistry(TestConnection testConnection) throws Exception {
+        try (SmbSessionRegistry smbSessionRegistry = new SmbSessionRegistry()) {
+            SmbConnection smbConnection1 = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext(), smbSessionRegistry, false);
+            SmbConnection smbConnection2 = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext(), smbSessionRegistry, false);
+            assertTrue(smbConnection1.isConnectionAlive());
+            assertTrue(smbConnection2.isConnectionAlive());
+            assertEquals(1, smbSessionRegistry.getConnectionCount());
+            assertEquals(1, smbSessionRegistry.getSessionCount());
+
+            // Close the first connection and check that the disk share of the second one is still connected
+            DiskShare diskShare2 = smbConnection2.getDiskShare();
+            smbConnection1.close();
+            assertEquals(1, smbSessionRegistry.getSessionCount());
+            assertTrue(diskShare2.isConnected());
+            assertSame(diskShare2, smbConnection2.getDiskShare());
+            assertTrue(new SmbDirectory(smbConnection2).isExisting());
+
+            // Close the second connection and check that everything was released
+            smbConnection2.close();
+            assertEquals(0, smbSessionRegistry.getConnectionCount());
+            assertEquals(0, smbSessionRegistry.getSessionCount());
+        }
+    }
+
+    /**
+     * Test that failed reconnects of a connection created via a session registry don't release the shared resources of other connections.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testFailedReconnectWithSessionRegistry(TestConnection testConnection) throws Exception {
+        try (SmbSessionRegistry smbSessionRegistry = new SmbSessionRegistry()) {
+            SmbConnection smbConnection1 = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext(), smbSessionRegistry, false);
+            SmbConnection smbConnection2 = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext(), smbSessionRegistry, false);
+            SmbConnection missingConnection = new SmbConnection(testConnection.getHostName(), "MissingShare", testConnection.getAuthenticationContext(), smbSessionRegistry, true);
+
+            // Fail the reconnect of the missing share twice and check that the session is still used
+            assertThrows(RuntimeException.class, missingConnection::getDiskShare);
+            assertThrows(RuntimeException.class, missingConnection::getDiskShare);
+            assertEquals(1, smbSessionRegistry.getSessionCount());
+            assertTrue(new SmbDirectory(smbConnection2).isExisting());
+
+            // Drop the shared disk share, reconnect and close the first connection and check that the second one still works
+            smbConnection1.getDiskShare().close();
+            assertFalse(smbConnection1.isConnectionAlive());
+            assertTrue(new SmbDirectory(smbConnection1).isExisting());
+            smbConnection1.close();
+            smbConnection1.close();
+            assertTrue(new SmbDirectory(smbConnection2).isExisting());
+            assertEquals(1, smbSessionRegistry.getSessionCount());
+
+            // Close the second connection and check that everything was released
+            missingConnection.close();
+            smbConnection2.close();
+            assertEquals(0, smbSessionRegistry.getConnectionCount());
+            assertEquals(0, smbSessionRegistry.getSessionCount());
+        }
+    }
+
+    /**
+     * Test the concurrent access and reconnect of one shared connection.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testConcurrentAccess(TestConnection testConnection) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext(), SmbConfig.builder().build(), true)) {
+            for (int round = 0; round < 3; round++) {
+                // Close the connection, so all threads notice the dropped connection at the same time
+                smbConnection.close();
+                assertFalse(smbConnection.isConnectionAlive());
+
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int i = 0; i < 64; i++) {
+                    futures.add(executorService.submit(() -> new SmbDirectory(smbConnection).isDirectory()));
+                }
+                for (Future<Boolean> future : futures) {
+                    assertTrue(future.get());
+                }
+                assertTrue(smbConnection.isConnectionAlive());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Test the circuit breaker of the reconnect policy with an unreachable server.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testCircuitBreaker(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection("unreachable.invalid", testConnection.getShareName(), testConnection.getAuthenticationContext(), SmbConfig.builder().build(), true)) {
+            smbConnection.setReconnectPolicy(new SmbReconnectPolicy(1, 10, 100, 2, 0.5, 2, 60_000));
+            assertFalse(smbConnection.isCircuitOpen());
+
+            // Fail two reconnects (Including their retries) to open the circuit
+            assertThrows(IOException.class, smbConnection::ensureConnectionIsAlive);
+            assertFalse(smbConnection.isCircuitOpen());
+            assertThrows(IOException.class, smbConnection::ensureConnectionIsAlive);
+            assertTrue(smbConnection.isCircuitOpen());
+
+            // Check that the open circuit fails fast
+            assertThrows(IOException.class, smbConnection::ensureConnectionIsAlive);
+            assertThrows(RuntimeException.class, smbConnection::getDiskShare);
+        }
+    }
+
+    /**
+     * Test that threads waiting for a reconnect fail fast instead of waiting for the retries and their backoff.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testReconnectWaitersFailFast(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection("unreachable.invalid", testConnection.getShareName(), testConnection.getAuthenticationContext(), SmbConfig.builder().build(), true)) {
+            smbConnection.setReconnectPolicy(new SmbReconnectPolicy(1, 3000, 3000, 1, 0, 10, 60_000));
+            ExecutorService executorService = Executors.newSingleThreadExecutor();
+            try {
+                // Start a reconnect that retries after a long backoff
+                Future<?> reconnect = executorService.submit(() -> assertThrows(IOException.class, smbConnection::ensureConnectionIsAlive));
+                Thread.sleep(500);
+
+                // Check that another thread doesn't wait for the retry
+                long startMillis = System.currentTimeMillis();
+                assertThrows(IOException.class, smbConnection::ensureConnectionIsAlive);
+                assertTrue(System.currentTimeMillis() - startMillis < 2000);
+                reconnect.get();
+            } finally {
+                executorService.shutdown();
+            }
+        }
+    }
 }
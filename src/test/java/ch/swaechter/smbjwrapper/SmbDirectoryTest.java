@@ -10,8 +10,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -430,4 +435,506 @@ public class SmbDirectoryTest extends BaseTest {
             assertFalse(transferDirectory.isExisting());
         }
     }
+
+    /**
+     * Test that listed items carry the attributes of the directory enumeration.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testListAttributes(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a directory and a file with content
+            transferDirectory.createDirectoryInCurrentDirectory("Dir1");
+            SmbFile smbFile = transferDirectory.createFileInCurrentDirectory("File1");
+            try (OutputStream outputStream = smbFile.getOutputStream()) {
+                outputStream.write(new byte[1234]);
+            }
+
+            // Compare the listed attributes with the queried ones
+            List<SmbItem> smbItems = transferDirectory.listItems();
+            assertEquals(2, smbItems.size());
+            assertTrue(smbItems.get(0) instanceof SmbDirectory);
+            assertTrue(smbItems.get(0).getAttributes().isDirectory());
+            assertTrue(smbItems.get(1) instanceof SmbFile);
+            assertFalse(smbItems.get(1).getAttributes().isDirectory());
+            assertEquals(1234, ((SmbFile) smbItems.get(1)).getFileSize());
+            assertEquals(smbFile.readAttributes().getLastWriteTime().toEpochMillis(), smbItems.get(1).getLastWriteTime().toEpochMillis());
+            assertEquals(smbFile.readAttributes().getFileId(), smbItems.get(1).getAttributes().getFileId());
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the lazy streaming and iteration of directories.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testStreamItems(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a small tree
+            SmbDirectory subDirectory1 = transferDirectory.createDirectoryInCurrentDirectory("Dir1");
+            SmbDirectory subDirectory2 = subDirectory1.createDirectoryInCurrentDirectory("Dir2");
+            transferDirectory.createFileInCurrentDirectory("File1");
+            subDirectory1.createFileInCurrentDirectory("File2");
+            subDirectory2.createFileInCurrentDirectory("File3");
+
+            // Check that the sorted stream returns the same items as the list
+            try (Stream<SmbItem> smbItems = transferDirectory.streamItems(smbItem -> true, true)) {
+                List<SmbItem> streamedItems = smbItems.sorted(Comparator.comparing(SmbItem::getPath)).collect(Collectors.toList());
+                assertEquals(transferDirectory.listItems(smbItem -> true, true), streamedItems);
+                assertEquals(5, streamedItems.size());
+            }
+
+            // Check the flat and filtered stream
+            try (Stream<SmbItem> smbItems = transferDirectory.streamItems()) {
+                assertEquals(2, smbItems.count());
+            }
+            try (Stream<SmbItem> smbItems = transferDirectory.streamItems(smbItem -> smbItem instanceof SmbFile, true)) {
+                assertEquals(3, smbItems.count());
+            }
+
+            // Check that a partially consumed iterator can be closed
+            try (SmbItemIterator smbItemIterator = transferDirectory.iterateItems(smbItem -> true, true)) {
+                assertTrue(smbItemIterator.hasNext());
+                assertNotNull(smbItemIterator.next());
+            }
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the parallel listing with and without a connection pool.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testListItemsInParallel(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext());
+             SmbConnectionPool smbConnectionPool = new SmbConnectionPool(4)) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a tree with several levels
+            for (int i = 0; i < 3; i++) {
+                SmbDirectory subDirectory1 = transferDirectory.createDirectoryInCurrentDirectory("Dir" + i);
+                subDirectory1.createFileInCurrentDirectory("File" + i);
+                for (int j = 0; j < 3; j++) {
+                    SmbDirectory subDirectory2 = subDirectory1.createDirectoryInCurrentDirectory("SubDir" + j);
+                    subDirectory2.createFileInCurrentDirectory("SubFile" + j);
+                }
+            }
+
+            // Compare the parallel listings with the serial one
+            List<SmbItem> serialItems = transferDirectory.listItems(smbItem -> true, true);
+            assertEquals(24, serialItems.size());
+            assertEquals(serialItems, transferDirectory.listItemsInParallel(smbItem -> true, true, new SmbParallelOptions(4)));
+            assertEquals(serialItems, transferDirectory.listItemsInParallel(smbItem -> true, true, new SmbParallelOptions(4, smbConnectionPool)));
+            assertEquals(12, transferDirectory.listItemsInParallel(smbItem -> smbItem instanceof SmbFile, false, new SmbParallelOptions(2)).size());
+
+            // Check that the items are bound to the original connection
+            for (SmbItem smbItem : transferDirectory.listItemsInParallel(smbItem -> true, false, new SmbParallelOptions(4, smbConnectionPool))) {
+                assertSame(smbConnection, smbItem.getSmbConnection());
+            }
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the compact columnar listing.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testListItemsCompact(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a tree with several levels and a file with content
+            for (int i = 0; i < 3; i++) {
+                SmbDirectory subDirectory = transferDirectory.createDirectoryInCurrentDirectory("Dir" + i);
+                for (int j = 0; j < 3; j++) {
+                    subDirectory.createFileInCurrentDirectory("File" + j);
+                }
+            }
+            try (OutputStream outputStream = transferDirectory.createFileInCurrentDirectory("Data.bin").getOutputStream()) {
+                outputStream.write(new byte[1234]);
+            }
+
+            // Compare the compact listing with the regular one
+            SmbListing smbListing = transferDirectory.listItemsCompact(smbItem -> true, true);
+            List<SmbItem> smbItems = transferDirectory.listItems(smbItem -> true, true);
+            assertEquals(13, smbListing.size());
+            List<String> listingPaths = new ArrayList<>();
+            for (SmbItem smbItem : smbListing) {
+                listingPaths.add(smbItem.getPath());
+            }
+            Collections.sort(listingPaths);
+            assertEquals(smbItems.stream().map(SmbItem::getPath).collect(Collectors.toList()), listingPaths);
+
+            // Check the columns and the built items
+            for (int i = 0; i < smbListing.size(); i++) {
+                SmbItem smbItem = smbListing.getItem(i);
+                assertEquals(smbListing.getPath(i), smbItem.getPath());
+                assertEquals(smbListing.isDirectory(i), smbItem instanceof SmbDirectory);
+                assertSame(smbConnection, smbItem.getSmbConnection());
+                if (smbListing.getName(i).equals("Data.bin")) {
+                    assertEquals(1234, smbListing.getFileSize(i));
+                    assertEquals(1234, ((SmbFile) smbItem).getFileSize());
+                    assertEquals(transferDirectory.getPath() + "/Data.bin", smbListing.getPath(i));
+                }
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> smbListing.getName(13));
+
+            // Check a filtered listing
+            assertEquals(9, transferDirectory.listItemsCompact(smbItem -> smbItem.getName().startsWith("File"), true).size());
+            assertTrue(transferDirectory.listItemsCompact(smbItem -> false, false).isEmpty());
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the paged listing and resuming it via a cursor.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testOpenPager(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create more files than fit on two pages
+            for (int i = 0; i < 25; i++) {
+                transferDirectory.createFileInCurrentDirectory("File" + i);
+            }
+
+            // Fetch all pages at once
+            List<String> pagedNames = new ArrayList<>();
+            List<Integer> pageSizes = new ArrayList<>();
+            try (SmbItemPager smbItemPager = transferDirectory.openPager(10)) {
+                while (smbItemPager.hasNextPage()) {
+                    SmbItemPage smbItemPage = smbItemPager.nextPage();
+                    smbItemPage.getItems().forEach(smbItem -> pagedNames.add(smbItem.getName()));
+                    pageSizes.add(smbItemPage.getItems().size());
+                }
+            }
+            assertEquals(Arrays.asList(10, 10, 5), pageSizes);
+            assertEquals(25, pagedNames.stream().distinct().count());
+
+            // Fetch the first page and resume the listing via another connection
+            String cursor;
+            List<String> resumedNames = new ArrayList<>();
+            try (SmbItemPager smbItemPager = transferDirectory.openPager(10)) {
+                SmbItemPage smbItemPage = smbItemPager.nextPage();
+                assertFalse(smbItemPage.isLastPage());
+                smbItemPage.getItems().forEach(smbItem -> resumedNames.add(smbItem.getName()));
+                cursor = smbItemPage.getCursor();
+            }
+            try (SmbConnection otherSmbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+                SmbDirectory otherDirectory = new SmbDirectory(otherSmbConnection, transferDirectory.getPath());
+                try (SmbItemPager smbItemPager = otherDirectory.openPager(cursor, 100)) {
+                    SmbItemPage smbItemPage = smbItemPager.nextPage();
+                    assertTrue(smbItemPage.isLastPage());
+                    assertFalse(smbItemPager.hasNextPage());
+                    smbItemPage.getItems().forEach(smbItem -> resumedNames.add(smbItem.getName()));
+                }
+            }
+            assertEquals(pagedNames, resumedNames);
+
+            // Check that a cursor can't be used for another directory
+            SmbDirectory otherDirectory = transferDirectory.createDirectoryInCurrentDirectory("Other");
+            assertThrows(IllegalArgumentException.class, () -> otherDirectory.openPager(cursor, 10));
+            assertThrows(IllegalArgumentException.class, () -> transferDirectory.openPager(0));
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the usage aggregation.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testComputeUsage(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a tree with files of known sizes
+            try (OutputStream outputStream = transferDirectory.createFileInCurrentDirectory("File").getOutputStream()) {
+                outputStream.write(new byte[100]);
+            }
+            for (int i = 0; i < 2; i++) {
+                SmbDirectory subDirectory1 = transferDirectory.createDirectoryInCurrentDirectory("Dir" + i);
+                try (OutputStream outputStream = subDirectory1.createFileInCurrentDirectory("File" + i).getOutputStream()) {
+                    outputStream.write(new byte[10]);
+                }
+                SmbDirectory subDirectory2 = subDirectory1.createDirectoryInCurrentDirectory("SubDir");
+                try (OutputStream outputStream = subDirectory2.createFileInCurrentDirectory("SubFile").getOutputStream()) {
+                    outputStream.write(new byte[1]);
+                }
+            }
+
+            // Check the totals and the child usages up to the first level
+            SmbDirectoryUsage smbDirectoryUsage = transferDirectory.computeUsage(new SmbParallelOptions(4), 1);
+            assertEquals(transferDirectory.getPath(), smbDirectoryUsage.getPath());
+            assertEquals(5, smbDirectoryUsage.getFileCount());
+            assertEquals(4, smbDirectoryUsage.getDirectoryCount());
+            assertEquals(122, smbDirectoryUsage.getTotalSize());
+            assertNotNull(smbDirectoryUsage.getNewestLastWriteTime());
+            assertEquals(2, smbDirectoryUsage.getChildren().size());
+
+            SmbDirectoryUsage childUsage = smbDirectoryUsage.getChildren().get(0);
+            assertEquals(transferDirectory.getPath() + "/Dir0", childUsage.getPath());
+            assertEquals(2, childUsage.getFileCount());
+            assertEquals(1, childUsage.getDirectoryCount());
+            assertEquals(11, childUsage.getTotalSize());
+            assertTrue(childUsage.getChildren().isEmpty());
+
+            // Check that the depth only limits the children, but not the totals
+            SmbDirectoryUsage totalUsage = transferDirectory.computeUsage(new SmbParallelOptions(2), 0);
+            assertEquals(122, totalUsage.getTotalSize());
+            assertTrue(totalUsage.getChildren().isEmpty());
+            assertEquals(1, transferDirectory.computeUsage(new SmbParallelOptions(2)).getChildren().get(1).getChildren().size());
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the parallel recursive delete.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testDeleteDirectoryRecursivelyInParallel(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext());
+             SmbConnectionPool smbConnectionPool = new SmbConnectionPool(4)) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a tree with several levels and more files than a single delete batch
+            for (int i = 0; i < 40; i++) {
+                transferDirectory.createFileInCurrentDirectory("File" + i);
+            }
+            for (int i = 0; i < 3; i++) {
+                SmbDirectory subDirectory1 = transferDirectory.createDirectoryInCurrentDirectory("Dir" + i);
+                subDirectory1.createFileInCurrentDirectory("File" + i);
+                for (int j = 0; j < 3; j++) {
+                    SmbDirectory subDirectory2 = subDirectory1.createDirectoryInCurrentDirectory("SubDir" + j);
+                    subDirectory2.createFileInCurrentDirectory("SubFile" + j);
+                }
+            }
+            assertTrue(transferDirectory.isExisting());
+
+            // Delete the tree and check the summary
+            SmbDeleteResult smbDeleteResult = transferDirectory.deleteDirectoryRecursively(new SmbParallelOptions(4, smbConnectionPool));
+            assertTrue(smbDeleteResult.isSuccessful());
+            assertTrue(smbDeleteResult.getFailures().isEmpty());
+            assertEquals(52, smbDeleteResult.getDeletedFileCount());
+            assertEquals(13, smbDeleteResult.getDeletedDirectoryCount());
+            assertFalse(transferDirectory.isExisting());
+
+            // Check that a missing directory is reported as failure instead of thrown
+            smbDeleteResult = transferDirectory.deleteDirectoryRecursively(new SmbParallelOptions(2));
+            assertFalse(smbDeleteResult.isSuccessful());
+            assertTrue(smbDeleteResult.getFailures().containsKey(transferDirectory.getPath()));
+            assertEquals(0, smbDeleteResult.getDeletedFileCount());
+            assertEquals(0, smbDeleteResult.getDeletedDirectoryCount());
+        }
+    }
+
+    /**
+     * Test that the parallel recursive deletion leaves no stale entries in the metadata cache.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testDeleteDirectoryRecursivelyInParallelWithMetadataCache(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext());
+             SmbConnectionPool smbConnectionPool = new SmbConnectionPool(4)) {
+            smbConnection.setMetadataCache(new SmbMetadataCache(60_000, 1000));
+
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a tree and fill the metadata cache with positive entries by listing it
+            SmbDirectory subDirectory = transferDirectory.createDirectoryInCurrentDirectory("Dir");
+            SmbFile subFile = subDirectory.createFileInCurrentDirectory("File.txt");
+            assertEquals(2, transferDirectory.listItems(smbItem -> true, true).size());
+            assertTrue(subDirectory.isExisting());
+            assertTrue(subFile.isExisting());
+
+            // Delete the tree and check that the cache doesn't report the deleted items anymore
+            SmbDeleteResult smbDeleteResult = transferDirectory.deleteDirectoryRecursively(new SmbParallelOptions(4, smbConnectionPool));
+            assertTrue(smbDeleteResult.isSuccessful());
+            assertFalse(subFile.isExisting());
+            assertFalse(subDirectory.isExisting());
+            assertFalse(transferDirectory.isExisting());
+            assertFalse(new SmbFile(smbConnection, subFile.getPath()).isExisting());
+        }
+    }
+
+    /**
+     * Test the listing by wildcard pattern.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testListItemsByWildcard(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create some files and a subdirectory
+            transferDirectory.createFileInCurrentDirectory("Data1.csv");
+            transferDirectory.createFileInCurrentDirectory("Data2.csv");
+            transferDirectory.createFileInCurrentDirectory("Data3.txt");
+            SmbDirectory subDirectory = transferDirectory.createDirectoryInCurrentDirectory("Dir");
+            subDirectory.createFileInCurrentDirectory("Data4.csv");
+
+            // Check the server side flat listing
+            List<SmbItem> smbItems1 = transferDirectory.listItemsByWildcard("*.csv");
+            assertEquals(2, smbItems1.size());
+            assertEquals("Data1.csv", smbItems1.get(0).getName());
+            assertEquals("Data2.csv", smbItems1.get(1).getName());
+            assertTrue(transferDirectory.listItemsByWildcard("*.pdf").isEmpty());
+
+            // Check the refinement and the recursive listing
+            assertEquals(1, transferDirectory.listItemsByWildcard("*.csv", smbItem -> smbItem.getName().matches(".*2.*"), false).size());
+            assertEquals(3, transferDirectory.listItemsByWildcard("*.csv", smbItem -> true, true).size());
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the visitor based tree walk including pruning and termination.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testWalk(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a tree with a directory that is pruned
+            transferDirectory.createDirectoryInCurrentDirectory("Dir").createFileInCurrentDirectory("File1");
+            transferDirectory.createDirectoryInCurrentDirectory("Archive").createFileInCurrentDirectory("File2");
+            transferDirectory.createFileInCurrentDirectory("File3");
+
+            // Walk the tree without the pruned directory
+            List<String> visitedFiles = new ArrayList<>();
+            List<String> postVisitedDirectories = new ArrayList<>();
+            transferDirectory.walk(new SmbItemVisitor() {
+
+                @Override
+                public SmbVisitResult preVisitDirectory(SmbDirectory smbDirectory) {
+                    return smbDirectory.getName().equals("Archive") ? SmbVisitResult.SKIP_SUBTREE : SmbVisitResult.CONTINUE;
+                }
+
+                @Override
+                public SmbVisitResult visitFile(SmbFile smbFile) {
+                    visitedFiles.add(smbFile.getName());
+                    return SmbVisitResult.CONTINUE;
+                }
+
+                @Override
+                public SmbVisitResult postVisitDirectory(SmbDirectory smbDirectory) {
+                    postVisitedDirectories.add(smbDirectory.getName());
+                    return SmbVisitResult.CONTINUE;
+                }
+            });
+            visitedFiles.sort(String::compareTo);
+            assertEquals(Arrays.asList("File1", "File3"), visitedFiles);
+            assertEquals(2, postVisitedDirectories.size());
+
+            // Walk the tree until the first file is found
+            List<String> foundFiles = new ArrayList<>();
+            transferDirectory.walk(new SmbItemVisitor() {
+
+                @Override
+                public SmbVisitResult visitFile(SmbFile smbFile) {
+                    foundFiles.add(smbFile.getName());
+                    return SmbVisitResult.TERMINATE;
+                }
+            });
+            assertEquals(1, foundFiles.size());
+
+            // Walk only the first level
+            List<String> firstLevelFiles = new ArrayList<>();
+            transferDirectory.walk(new SmbItemVisitor() {
+
+                @Override
+                public SmbVisitResult visitFile(SmbFile smbFile) {
+                    firstLevelFiles.add(smbFile.getName());
+                    return SmbVisitResult.CONTINUE;
+                }
+            }, 1);
+            assertEquals(Collections.singletonList("File3"), firstLevelFiles);
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
 }
@@ -2,16 +2,35 @@ package ch.swaechter.smbjwrapper;
 
 import ch.swaechter.smbjwrapper.helpers.BaseTest;
 import ch.swaechter.smbjwrapper.helpers.TestConnection;
+import ch.swaechter.smbjwrapper.streams.SmbFileChannel;
+import ch.swaechter.smbjwrapper.streams.SmbInputStream;
+import ch.swaechter.smbjwrapper.streams.SmbOutputStream;
+import com.hierynomus.msdtyp.AccessMask;
+import com.hierynomus.mssmb2.SMB2CreateDisposition;
+import com.hierynomus.mssmb2.SMB2ShareAccess;
+import com.hierynomus.mssmb2.SMBApiException;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -89,6 +108,251 @@ public class SmbFileTest extends BaseTest {
         }
     }
 
+    /**
+     * Test the bulk reads and the read-ahead download.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testReadAheadDownload(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Upload a file
+            byte[] expectedData = Files.readAllBytes(new File("src/test/resources/Screenshot.png").toPath());
+            SmbFile smbFile = transferDirectory.createFileInCurrentDirectory("File.png");
+            try (OutputStream outputStream = smbFile.getOutputStream()) {
+                outputStream.write(expectedData);
+            }
+
+            // Download the file via bulk reads and with read-ahead
+            try (InputStream inputStream = smbFile.getInputStream()) {
+                byte[] readData = new byte[expectedData.length];
+                assertEquals(expectedData.length, IOUtils.read(inputStream, readData));
+                assertArrayEquals(expectedData, readData);
+                assertEquals(-1, inputStream.read(new byte[10], 0, 10));
+            }
+            try (InputStream inputStream = smbFile.getInputStream(4)) {
+                assertArrayEquals(expectedData, IOUtils.toByteArray(inputStream));
+                assertEquals(-1, inputStream.read());
+            }
+
+            // Download the file with small chunks, including a size that is a multiple of the chunk size
+            for (int chunkSize : new int[]{1000, 37888, 4096}) {
+                com.hierynomus.smbj.share.File file = smbConnection.getDiskShare().openFile(smbFile.getPath(), EnumSet.of(AccessMask.GENERIC_READ), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OPEN, null);
+                try (InputStream inputStream = new SmbInputStream(file, chunkSize, 3)) {
+                    assertEquals(expectedData[0] & 0xFF, inputStream.read());
+                    assertArrayEquals(Arrays.copyOfRange(expectedData, 1, expectedData.length), IOUtils.toByteArray(inputStream));
+                }
+            }
+
+            // Check that a stream can be closed before it was consumed
+            try (InputStream inputStream = smbFile.getInputStream(4)) {
+                assertEquals(expectedData[0] & 0xFF, inputStream.read());
+            }
+
+            // Check that an invalid read-ahead depth is rejected before the file is opened
+            assertThrows(IllegalArgumentException.class, () -> smbFile.getInputStream(0));
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the upload via write-behind, including appending and small chunks.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testWriteBehindUpload(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Upload a file with write-behind and check the content after a flush
+            byte[] expectedData = Files.readAllBytes(new File("src/test/resources/Screenshot.png").toPath());
+            SmbFile smbFile = transferDirectory.createFileInCurrentDirectory("File.png");
+            try (OutputStream outputStream = smbFile.getOutputStream(false, 4)) {
+                outputStream.write(expectedData);
+                outputStream.flush();
+                assertEquals(expectedData.length, smbFile.getFileSize());
+            }
+            try (InputStream inputStream = smbFile.getInputStream()) {
+                assertArrayEquals(expectedData, IOUtils.toByteArray(inputStream));
+            }
+
+            // Check that an invalid number of outstanding writes is rejected before the file is opened
+            assertThrows(IllegalArgumentException.class, () -> smbFile.getOutputStream(true, 0));
+
+            // Append the file again
+            try (OutputStream outputStream = smbFile.getOutputStream(true, 4)) {
+                outputStream.write(expectedData, 0, 1000);
+                outputStream.write(expectedData, 1000, expectedData.length - 1000);
+            }
+            try (InputStream inputStream = smbFile.getInputStream()) {
+                byte[] readData = IOUtils.toByteArray(inputStream);
+                assertEquals(expectedData.length * 2, readData.length);
+                assertArrayEquals(expectedData, Arrays.copyOfRange(readData, 0, expectedData.length));
+                assertArrayEquals(expectedData, Arrays.copyOfRange(readData, expectedData.length, readData.length));
+            }
+
+            // Upload the file with small chunks and single values, so there are more chunks than outstanding writes
+            for (int chunkSize : new int[]{1000, 4096}) {
+                com.hierynomus.smbj.share.File file = smbConnection.getDiskShare().openFile(smbFile.getPath(), EnumSet.of(AccessMask.GENERIC_ALL), null, SMB2ShareAccess.ALL, SMB2CreateDisposition.FILE_OVERWRITE_IF, null);
+                try (OutputStream outputStream = new SmbOutputStream(file, false, () -> {
+                }, chunkSize, 2)) {
+                    outputStream.write(expectedData[0]);
+                    outputStream.write(expectedData, 1, expectedData.length - 1);
+                }
+                try (InputStream inputStream = smbFile.getInputStream()) {
+                    assertArrayEquals(expectedData, IOUtils.toByteArray(inputStream));
+                }
+            }
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the random access via a seekable byte channel.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testOpenChannel(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a file via the channel and patch its header
+            SmbFile smbFile = new SmbFile(smbConnection, transferDirectory.getPath() + "/File.txt");
+            try (SmbFileChannel fileChannel = smbFile.openChannel(EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW))) {
+                assertEquals(0, fileChannel.size());
+                assertEquals(11, fileChannel.write(ByteBuffer.wrap("Hello world".getBytes(StandardCharsets.UTF_8))));
+                assertEquals(11, fileChannel.position());
+                assertEquals(5, fileChannel.write(ByteBuffer.wrap("HELLO".getBytes(StandardCharsets.UTF_8)), 0));
+                assertEquals(11, fileChannel.position());
+                assertEquals(11, fileChannel.size());
+                assertThrows(NonReadableChannelException.class, () -> fileChannel.read(ByteBuffer.allocate(1)));
+            }
+            assertEquals(11, smbFile.getFileSize());
+
+            // Read a range of the file into a heap and a direct buffer
+            try (SmbFileChannel fileChannel = smbFile.openChannel(EnumSet.noneOf(StandardOpenOption.class))) {
+                ByteBuffer heapBuffer = ByteBuffer.allocate(5);
+                assertEquals(5, fileChannel.read(heapBuffer, 6));
+                assertEquals("world", new String(heapBuffer.array(), StandardCharsets.UTF_8));
+                assertEquals(0, fileChannel.position());
+
+                ByteBuffer directBuffer = ByteBuffer.allocateDirect(5);
+                assertEquals(5, fileChannel.position(0).read(directBuffer));
+                directBuffer.flip();
+                byte[] directData = new byte[directBuffer.remaining()];
+                directBuffer.get(directData);
+                assertEquals("HELLO", new String(directData, StandardCharsets.UTF_8));
+                assertEquals(5, fileChannel.position());
+                assertEquals(-1, fileChannel.position(11).read(ByteBuffer.allocate(1)));
+                assertThrows(NonWritableChannelException.class, () -> fileChannel.write(ByteBuffer.allocate(1)));
+            }
+
+            // Append to the file and truncate it
+            try (SmbFileChannel fileChannel = smbFile.openChannel(EnumSet.of(StandardOpenOption.APPEND))) {
+                assertEquals(1, fileChannel.write(ByteBuffer.wrap(new byte[]{'!'})));
+                assertEquals(12, fileChannel.size());
+                assertEquals(12, fileChannel.position());
+                fileChannel.truncate(5);
+                assertEquals(5, fileChannel.size());
+                assertEquals(5, fileChannel.position());
+            }
+            try (InputStream inputStream = smbFile.getInputStream()) {
+                assertEquals("HELLO", IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+            }
+
+            // Check the closed channel and invalid options
+            SmbFileChannel closedChannel = smbFile.openChannel(EnumSet.of(StandardOpenOption.READ));
+            closedChannel.close();
+            assertFalse(closedChannel.isOpen());
+            assertThrows(ClosedChannelException.class, closedChannel::size);
+            assertThrows(IllegalArgumentException.class, () -> smbFile.openChannel(EnumSet.of(StandardOpenOption.READ, StandardOpenOption.APPEND)));
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the parallel download into a local file, including several ranges and the progress.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testDownloadTo(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext());
+             SmbConnectionPool smbConnectionPool = new SmbConnectionPool(4)) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Upload a small and a large file that is split into several ranges
+            byte[] smallData = Files.readAllBytes(new File("src/test/resources/Screenshot.png").toPath());
+            byte[] largeData = new byte[17 * 1024 * 1024 + 123];
+            new Random(42).nextBytes(largeData);
+            SmbFile smallFile = transferDirectory.createFileInCurrentDirectory("Small.png");
+            try (OutputStream outputStream = smallFile.getOutputStream()) {
+                outputStream.write(smallData);
+            }
+            SmbFile largeFile = transferDirectory.createFileInCurrentDirectory("Large.bin");
+            try (OutputStream outputStream = largeFile.getOutputStream(false, 4)) {
+                outputStream.write(largeData);
+            }
+
+            // Download the files via the connection and via pooled connections
+            Path localPath = Files.createTempFile("smbjwrapper", ".tmp");
+            SmbTransferProgress smallProgress = smallFile.downloadTo(localPath, new SmbParallelOptions(4));
+            assertTrue(smallProgress.isComplete());
+            assertEquals(smallData.length, smallProgress.getTotalBytes());
+            assertArrayEquals(smallData, Files.readAllBytes(localPath));
+
+            List<SmbTransferProgress> progresses = new ArrayList<>();
+            SmbTransferProgress largeProgress = largeFile.downloadTo(localPath, new SmbParallelOptions(4, smbConnectionPool), progresses::add);
+            assertTrue(largeProgress.isComplete());
+            assertEquals(largeData.length, largeProgress.getTransferredBytes());
+            assertTrue(largeProgress.getBytesPerSecond() > 0);
+            assertArrayEquals(largeData, Files.readAllBytes(localPath));
+            assertFalse(progresses.isEmpty());
+            assertEquals(largeData.length, progresses.get(progresses.size() - 1).getTransferredBytes());
+
+            // Check that an empty file is downloaded and a missing file fails
+            SmbFile emptyFile = transferDirectory.createFileInCurrentDirectory("Empty.txt");
+            assertTrue(emptyFile.downloadTo(localPath, new SmbParallelOptions(2)).isComplete());
+            assertEquals(0, Files.size(localPath));
+            SmbFile missingFile = new SmbFile(smbConnection, transferDirectory.getPath() + "/Missing.txt");
+            assertThrows(SMBApiException.class, () -> missingFile.downloadTo(localPath, new SmbParallelOptions(2)));
+            Files.delete(localPath);
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
     /**
      * Test the appended upload.
      *
@@ -141,6 +405,18 @@ public class SmbFileTest extends BaseTest {
             assertEquals(testData1 + testData2 + testData3, IOUtils.toString(inputStream3, StandardCharsets.UTF_8));
             inputStream3.close();
 
+            // Do a fourth appended upload with slices of a larger buffer, single values and a buffered wrapper
+            byte[] testBuffer = ("xx" + testData1 + testData2 + "yy").getBytes(StandardCharsets.UTF_8);
+            try (OutputStream outputStream4 = new BufferedOutputStream(testFile.getOutputStream(true), 16)) {
+                outputStream4.write(testBuffer, 2, testData1.length());
+                outputStream4.write('!');
+                outputStream4.write(testBuffer, 2 + testData1.length(), testData2.length());
+            }
+
+            InputStream inputStream4 = testFile.getInputStream();
+            assertEquals(testData1 + testData2 + testData3 + testData1 + "!" + testData2, IOUtils.toString(inputStream4, StandardCharsets.UTF_8));
+            inputStream4.close();
+
             // Clean up
             transferDirectory.deleteDirectoryRecursively();
             assertFalse(transferDirectory.isExisting());
@@ -2,6 +2,7 @@ package ch.swaechter.smbjwrapper;
 
 import ch.swaechter.smbjwrapper.helpers.BaseTest;
 import ch.swaechter.smbjwrapper.helpers.TestConnection;
+import com.hierynomus.mssmb2.SMBApiException;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -40,6 +41,138 @@ public class SmbItemTest extends BaseTest {
         }
     }
 
+    /**
+     * Test the type query and the resolution of SMB items.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testStatAndResolve(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Check a missing path
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            assertEquals(SmbItemType.NOT_FOUND, transferDirectory.stat());
+            assertFalse(SmbItem.resolve(smbConnection, transferDirectory.getPath()).isPresent());
+
+            // Check a directory
+            transferDirectory.ensureExists();
+            transferDirectory.ensureExists();
+            assertEquals(SmbItemType.DIRECTORY, transferDirectory.stat());
+            assertTrue(SmbItem.resolve(smbConnection, transferDirectory.getPath()).get() instanceof SmbDirectory);
+
+            // Check a file
+            SmbFile subFile = transferDirectory.createFileInCurrentDirectory("File.txt");
+            assertEquals(SmbItemType.FILE, subFile.stat());
+            assertEquals(SmbItemType.NOT_FOUND, new SmbFile(smbConnection, subFile.getPath() + "/Missing.txt").stat());
+            SmbItem resolvedItem = SmbItem.resolve(smbConnection, subFile.getPath()).get();
+            assertTrue(resolvedItem instanceof SmbFile);
+            assertEquals(subFile, resolvedItem);
+            assertThrows(IllegalStateException.class, () -> new SmbDirectory(smbConnection, subFile.getPath()).ensureExists());
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the attribute snapshot of files and directories.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testAttributeSnapshot(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a file with content
+            SmbFile subFile = transferDirectory.createFileInCurrentDirectory("File.txt");
+            try (OutputStream outputStream = subFile.getOutputStream()) {
+                outputStream.write("Hello".getBytes());
+            }
+
+            // Read the snapshot and check that the getters use it
+            SmbItemAttributes fileAttributes = subFile.readAttributes();
+            assertFalse(fileAttributes.isDirectory());
+            assertEquals(5, fileAttributes.getFileSize());
+            assertEquals(fileAttributes.getFileSize(), subFile.getFileSize());
+            assertEquals(fileAttributes.getLastWriteTime().toEpochMillis(), subFile.getLastWriteTime().toEpochMillis());
+            assertEquals(fileAttributes.isHidden(), subFile.isHidden());
+            assertSame(fileAttributes, subFile.getAttributes());
+
+            // Change the file and check that the snapshot was discarded
+            try (OutputStream outputStream = subFile.getOutputStream(true)) {
+                outputStream.write(" World".getBytes());
+            }
+            assertEquals(11, subFile.getFileSize());
+            assertEquals(11, subFile.getAttributes().getFileSize());
+
+            // Check the directory snapshot
+            SmbItemAttributes directoryAttributes = transferDirectory.readAttributes();
+            assertTrue(directoryAttributes.isDirectory());
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Test the metadata cache including the invalidation on changes.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testMetadataCache(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            SmbMetadataCache metadataCache = new SmbMetadataCache(60_000, 1000);
+            smbConnection.setMetadataCache(metadataCache);
+
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Check that a negative lookup is cached and invalidated by the creation
+            SmbFile subFile = new SmbFile(smbConnection, transferDirectory.getPath() + "/File.txt");
+            assertFalse(subFile.isExisting());
+            long hitCount = metadataCache.getHitCount();
+            assertFalse(subFile.isExisting());
+            assertEquals(hitCount + 1, metadataCache.getHitCount());
+            subFile.createFile();
+            assertTrue(subFile.isFile());
+
+            // Check that writing invalidates the cached file size
+            assertEquals(0, subFile.getFileSize());
+            try (OutputStream outputStream = subFile.getOutputStream()) {
+                outputStream.write("Hello".getBytes());
+            }
+            assertEquals(5, subFile.getFileSize());
+
+            // Check that a rename invalidates the old and the new path
+            SmbFile renamedFile = subFile.renameTo("Renamed.txt", false);
+            assertFalse(subFile.isExisting());
+            assertTrue(renamedFile.isFile());
+
+            // Check that a cached negative entry is reported without querying the server again
+            hitCount = metadataCache.getHitCount();
+            assertThrows(SMBApiException.class, subFile::getFileSize);
+            assertEquals(hitCount + 1, metadataCache.getHitCount());
+
+            // Check that the recursive deletion invalidates all paths below the directory
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(renamedFile.isExisting());
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
     /**
      * Test the file attributes.
      *
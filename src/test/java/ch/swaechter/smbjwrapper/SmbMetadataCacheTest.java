@@ -0,0 +1,77 @@
+package ch.swaechter.smbjwrapper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is responsible for testing the metadata cache.
+ *
+ * @author Simon Wächter
+ */
+public class SmbMetadataCacheTest {
+
+    /**
+     * Test the positive and negative entries including the hit and miss counters.
+     */
+    @Test
+    public void testEntries() {
+        SmbMetadataCache metadataCache = new SmbMetadataCache(60_000, 10);
+        SmbItemAttributes attributes = new SmbItemAttributes(null, null, null, null, 0, 5, 8, false, 1);
+
+        assertNull(metadataCache.get("Directory/File.txt"));
+        assertEquals(1, metadataCache.getMissCount());
+
+        metadataCache.put("Directory/File.txt", attributes);
+        metadataCache.put("Directory/Missing.txt", null);
+        assertSame(attributes, metadataCache.get("Directory/File.txt").getAttributes());
+        assertNull(metadataCache.get("Directory/Missing.txt").getAttributes());
+        assertEquals(2, metadataCache.getHitCount());
+    }
+
+    /**
+     * Test the expiration and the least recently used eviction.
+     *
+     * @throws Exception Exception in case of a problem
+     */
+    @Test
+    public void testExpirationAndEviction() throws Exception {
+        SmbMetadataCache expiringCache = new SmbMetadataCache(10, 10);
+        expiringCache.put("File.txt", null);
+        Thread.sleep(50);
+        assertNull(expiringCache.get("File.txt"));
+        assertEquals(0, expiringCache.getSize());
+
+        SmbMetadataCache boundedCache = new SmbMetadataCache(60_000, 2);
+        boundedCache.put("File1.txt", null);
+        boundedCache.put("File2.txt", null);
+        assertNotNull(boundedCache.get("File1.txt"));
+        boundedCache.put("File3.txt", null);
+        assertEquals(2, boundedCache.getSize());
+        assertEquals(1, boundedCache.getEvictionCount());
+        assertNotNull(boundedCache.get("File1.txt"));
+        assertNull(boundedCache.get("File2.txt"));
+    }
+
+    /**
+     * Test the invalidation of a path and all paths below it.
+     */
+    @Test
+    public void testInvalidateTree() {
+        SmbMetadataCache metadataCache = new SmbMetadataCache(60_000, 10);
+        metadataCache.put("Directory", null);
+        metadataCache.put("Directory/File.txt", null);
+        metadataCache.put("Directory/Sub/File.txt", null);
+        metadataCache.put("Directory2", null);
+
+        metadataCache.invalidateTree("Directory");
+        assertEquals(1, metadataCache.getSize());
+        assertNotNull(metadataCache.get("Directory2"));
+
+        metadataCache.invalidateTree("");
+        assertEquals(0, metadataCache.getSize());
+        assertThrows(IllegalArgumentException.class, () -> new SmbMetadataCache(60_000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SmbMetadataCache(-1, 10));
+        assertDoesNotThrow(() -> new SmbMetadataCache(0, 10));
+    }
+}
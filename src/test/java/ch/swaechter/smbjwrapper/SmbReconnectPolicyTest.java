@@ -0,0 +1,42 @@
+package ch.swaechter.smbjwrapper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is responsible for testing the reconnect policy.
+ *
+ * @author Simon Wächter
+ */
+public class SmbReconnectPolicyTest {
+
+    /**
+     * Test the exponential backoff including the jitter and the upper limit.
+     */
+    @Test
+    public void testBackoff() {
+        SmbReconnectPolicy reconnectPolicy = new SmbReconnectPolicy(5, 100, 1000, 2, 0.5, 3, 10_000);
+        for (int i = 0; i < 100; i++) {
+            long backoffMillis1 = reconnectPolicy.computeBackoffMillis(0);
+            assertTrue(backoffMillis1 >= 50 && backoffMillis1 <= 100);
+
+            long backoffMillis2 = reconnectPolicy.computeBackoffMillis(2);
+            assertTrue(backoffMillis2 >= 200 && backoffMillis2 <= 400);
+
+            long backoffMillis3 = reconnectPolicy.computeBackoffMillis(10);
+            assertTrue(backoffMillis3 >= 500 && backoffMillis3 <= 1000);
+        }
+    }
+
+    /**
+     * Test the validation of invalid policies.
+     */
+    @Test
+    public void testInvalidPolicies() {
+        assertThrows(IllegalArgumentException.class, () -> new SmbReconnectPolicy(-1, 100, 1000, 2, 0.5, 3, 10_000));
+        assertThrows(IllegalArgumentException.class, () -> new SmbReconnectPolicy(1, 1000, 100, 2, 0.5, 3, 10_000));
+        assertThrows(IllegalArgumentException.class, () -> new SmbReconnectPolicy(1, 100, 1000, 2, 1.5, 3, 10_000));
+        assertThrows(IllegalArgumentException.class, () -> new SmbReconnectPolicy(1, 100, 1000, 2, 0.5, 0, 10_000));
+    }
+}
@@ -0,0 +1,61 @@
+package ch.swaechter.smbjwrapper.async;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+import ch.swaechter.smbjwrapper.SmbDirectory;
+import ch.swaechter.smbjwrapper.SmbFile;
+import ch.swaechter.smbjwrapper.SmbItem;
+import ch.swaechter.smbjwrapper.helpers.BaseTest;
+import ch.swaechter.smbjwrapper.helpers.TestConnection;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmbAsyncDirectoryTest extends BaseTest {
+
+    /**
+     * Test the asynchronous directory and file operations.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testAsyncOperations(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbAsyncDirectory transferDirectory = new SmbAsyncDirectory(new SmbDirectory(smbConnection, buildUniquePath()));
+            transferDirectory.ensureExistsAsync().get();
+            assertTrue(transferDirectory.isDirectoryAsync().get());
+
+            // Write several files at once
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                SmbFile smbFile = new SmbFile(smbConnection, transferDirectory.getSmbItem().getPath() + "/File" + i + ".txt");
+                futures.add(new SmbAsyncFile(smbFile).writeAllAsync(("Content" + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+            // List and read all files
+            List<SmbItem> smbItems = transferDirectory.listItemsAsync().get();
+            assertEquals(20, smbItems.size());
+            SmbAsyncFile asyncFile = new SmbAsyncFile((SmbFile) smbItems.get(0));
+            assertEquals("Content0", new String(asyncFile.readAllAsync().get(), StandardCharsets.UTF_8));
+            assertEquals(8, (long) asyncFile.getFileSizeAsync().get());
+
+            // Rename a file
+            SmbAsyncFile renamedFile = asyncFile.renameToAsync("Renamed.txt", false).get();
+            assertEquals("Renamed.txt", renamedFile.getSmbItem().getName());
+            assertTrue(renamedFile.isFileAsync().get());
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursivelyAsync().get();
+            assertFalse(transferDirectory.isExistingAsync().get());
+        }
+    }
+}
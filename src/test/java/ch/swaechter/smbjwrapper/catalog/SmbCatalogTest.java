@@ -0,0 +1,169 @@
+package ch.swaechter.smbjwrapper.catalog;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+import ch.swaechter.smbjwrapper.SmbDirectory;
+import ch.swaechter.smbjwrapper.SmbFile;
+import ch.swaechter.smbjwrapper.SmbItem;
+import ch.swaechter.smbjwrapper.helpers.BaseTest;
+import ch.swaechter.smbjwrapper.helpers.TestConnection;
+import ch.swaechter.smbjwrapper.scan.SmbScanEntry;
+import ch.swaechter.smbjwrapper.scan.SmbScanSnapshot;
+import com.hierynomus.msdtyp.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmbCatalogTest extends BaseTest {
+
+    /**
+     * Test the queries against a catalog that is written from a snapshot.
+     *
+     * @throws Exception Exception in case of a problem
+     */
+    @Test
+    public void testQueries() throws Exception {
+        // Write a catalog with repeated names in different directories
+        SmbScanSnapshot snapshot = SmbScanSnapshot.fromEntries("Root", 1000, 99, Arrays.asList(
+            new SmbScanEntry("Root/Docs", true, 0, toWindowsTimeStamp(100), toWindowsTimeStamp(100), 1),
+            new SmbScanEntry("Root/Docs/Report-2020.pdf", false, 5000, toWindowsTimeStamp(200) + 1234, toWindowsTimeStamp(200), 2),
+            new SmbScanEntry("Root/Docs/Report-2021.PDF", false, 7000, toWindowsTimeStamp(300), toWindowsTimeStamp(300), 3),
+            new SmbScanEntry("Root/Docs/Notes.txt", false, 10, toWindowsTimeStamp(400) + 9999, toWindowsTimeStamp(400), 4),
+            new SmbScanEntry("Root/Archive", true, 0, toWindowsTimeStamp(500), toWindowsTimeStamp(500), 5),
+            new SmbScanEntry("Root/Archive/Notes.txt", false, 20, toWindowsTimeStamp(600), toWindowsTimeStamp(600), 6),
+            new SmbScanEntry("Root/Archive/Docs", true, 0, toWindowsTimeStamp(700), toWindowsTimeStamp(700), 7)
+        ));
+        Path catalogPath = Files.createTempFile("smbjwrapper", ".catalog");
+        SmbCatalog.write(catalogPath, snapshot);
+
+        try (SmbCatalog smbCatalog = SmbCatalog.open(catalogPath)) {
+            // Check the header
+            assertEquals("Root", smbCatalog.getRootPath());
+            assertEquals(1000, smbCatalog.getRootChangeTime());
+            assertEquals(99, smbCatalog.getRootFileId());
+            assertEquals(7, smbCatalog.getSize());
+
+            // Check the name queries with and without literal prefix
+            assertEquals(Arrays.asList("Root/Archive/Notes.txt", "Root/Docs/Notes.txt"), getPaths(smbCatalog.findEntries(SmbCatalogQuery.byName("notes.txt"))));
+            assertEquals(Arrays.asList("Root/Docs/Report-2020.pdf", "Root/Docs/Report-2021.PDF"), getPaths(smbCatalog.findEntries(SmbCatalogQuery.byName("Report-202?.*"))));
+            assertEquals(Arrays.asList("Root/Docs/Report-2020.pdf", "Root/Docs/Report-2021.PDF"), getPaths(smbCatalog.findEntries(SmbCatalogQuery.byName("*.pdf"))));
+            assertEquals(Arrays.asList("Root/Archive/Docs", "Root/Docs"), getPaths(smbCatalog.findEntries(SmbCatalogQuery.byName("Docs"))));
+            assertTrue(smbCatalog.findEntries(SmbCatalogQuery.byName("Missing*")).isEmpty());
+
+            // Check the size and time queries
+            assertEquals(Arrays.asList("Root/Archive/Notes.txt", "Root/Docs/Notes.txt"), getPaths(smbCatalog.findEntries(SmbCatalogQuery.byFileSize(0, 100))));
+            assertEquals(Arrays.asList("Root/Docs/Notes.txt", "Root/Docs/Report-2021.PDF"), getPaths(smbCatalog.findEntries(SmbCatalogQuery.byLastWriteTime(300, 400))));
+            assertEquals(Arrays.asList("Root/Docs/Report-2021.PDF"), getPaths(smbCatalog.findEntries(new SmbCatalogQuery("Report*", 6000, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE))));
+
+            // Check that the attributes and the snapshot are preserved
+            SmbScanEntry entry = smbCatalog.findEntries(SmbCatalogQuery.byName("Report-2020.pdf")).get(0);
+            assertFalse(entry.isDirectory());
+            assertEquals(5000, entry.getFileSize());
+            assertEquals(toWindowsTimeStamp(200) + 1234, entry.getLastWriteTime());
+            assertEquals(2, entry.getFileId());
+            SmbScanSnapshot catalogSnapshot = smbCatalog.toSnapshot();
+            assertEquals(7, catalogSnapshot.getSize());
+            assertTrue(catalogSnapshot.getEntry("Root/Archive/Docs").isDirectory());
+            assertEquals(3, catalogSnapshot.getChildEntries("Root/Docs").size());
+        }
+
+        // Check that a new version can be written while the previous one is still open
+        try (SmbCatalog previousCatalog = SmbCatalog.open(catalogPath)) {
+            SmbCatalog.write(catalogPath, SmbScanSnapshot.fromEntries("Root", 2000, 99, Collections.emptyList()));
+            assertEquals(7, previousCatalog.getSize());
+            try (SmbCatalog currentCatalog = SmbCatalog.open(catalogPath)) {
+                assertEquals(0, currentCatalog.getSize());
+                assertEquals(2000, currentCatalog.getRootChangeTime());
+            }
+        }
+
+        // Check that a closed catalog can't be queried
+        SmbCatalog smbCatalog = SmbCatalog.open(catalogPath);
+        smbCatalog.close();
+        assertThrows(IllegalStateException.class, () -> smbCatalog.findEntries(SmbCatalogQuery.byName("*")));
+
+        // Check that an invalid file is rejected
+        Files.write(catalogPath, new byte[]{1, 2, 3, 4});
+        assertThrows(java.io.IOException.class, () -> SmbCatalog.open(catalogPath));
+        SmbCatalog.delete(catalogPath);
+        assertFalse(Files.exists(catalogPath));
+    }
+
+    /**
+     * Test building and refreshing a catalog of a share.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testBuildAndRefresh(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a small tree
+            SmbDirectory subDirectory = transferDirectory.createDirectoryInCurrentDirectory("Docs");
+            try (OutputStream outputStream = subDirectory.createFileInCurrentDirectory("Report.pdf").getOutputStream()) {
+                outputStream.write(new byte[100]);
+            }
+            transferDirectory.createFileInCurrentDirectory("Notes.txt");
+
+            // Build the catalog and check that the results are bound to the connection
+            Path catalogPath = Files.createTempFile("smbjwrapper", ".catalog");
+            Files.delete(catalogPath);
+            SmbCatalogBuilder smbCatalogBuilder = new SmbCatalogBuilder(smbConnection, transferDirectory.getPath());
+            try (SmbCatalog smbCatalog = smbCatalogBuilder.refresh(catalogPath)) {
+                assertEquals(3, smbCatalog.getSize());
+                List<SmbItem> smbItems = smbCatalog.find(smbConnection, SmbCatalogQuery.byName("*.pdf"));
+                assertEquals(1, smbItems.size());
+                assertTrue(smbItems.get(0) instanceof SmbFile);
+                assertEquals(subDirectory.getPath() + "/Report.pdf", smbItems.get(0).getPath());
+                assertEquals(100, ((SmbFile) smbItems.get(0)).getFileSize());
+            }
+
+            // Refresh the catalog after a change
+            subDirectory.createFileInCurrentDirectory("Summary.pdf");
+            try (SmbCatalog smbCatalog = smbCatalogBuilder.refresh(catalogPath)) {
+                assertEquals(4, smbCatalog.getSize());
+                assertEquals(2, smbCatalog.find(smbConnection, SmbCatalogQuery.byName("*.pdf")).size());
+                assertTrue(smbCatalog.find(smbConnection, SmbCatalogQuery.byName("Docs")).get(0) instanceof SmbDirectory);
+            }
+            SmbCatalog.delete(catalogPath);
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+
+    /**
+     * Get the paths of the entries.
+     *
+     * @param entries Entries
+     * @return Paths of the entries
+     */
+    private List<String> getPaths(List<SmbScanEntry> entries) {
+        return entries.stream().map(SmbScanEntry::getPath).collect(Collectors.toList());
+    }
+
+    /**
+     * Convert a time in milliseconds since the epoch to a Windows timestamp like it's scanned.
+     *
+     * @param epochMillis Time in milliseconds since the epoch
+     * @return Windows timestamp in 100 nanosecond intervals since 1601
+     */
+    private long toWindowsTimeStamp(long epochMillis) {
+        return FileTime.ofEpochMillis(epochMillis).getWindowsTimeStamp();
+    }
+}
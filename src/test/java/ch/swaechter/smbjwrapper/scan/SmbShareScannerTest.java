@@ -0,0 +1,85 @@
+package ch.swaechter.smbjwrapper.scan;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+import ch.swaechter.smbjwrapper.SmbDirectory;
+import ch.swaechter.smbjwrapper.SmbFile;
+import ch.swaechter.smbjwrapper.helpers.BaseTest;
+import ch.swaechter.smbjwrapper.helpers.TestConnection;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmbShareScannerTest extends BaseTest {
+
+    /**
+     * Test the initial, incremental and full scans including the persisted snapshot.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testIncrementalScan(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            // Create a small tree
+            SmbDirectory subDirectory1 = transferDirectory.createDirectoryInCurrentDirectory("Dir1");
+            SmbDirectory subDirectory2 = subDirectory1.createDirectoryInCurrentDirectory("Sub");
+            SmbFile subFile1 = subDirectory1.createFileInCurrentDirectory("File1");
+            subDirectory2.createFileInCurrentDirectory("File2");
+            SmbFile subFile3 = transferDirectory.createFileInCurrentDirectory("File3");
+
+            // Check the initial scan
+            SmbShareScanner smbShareScanner = new SmbShareScanner(smbConnection, transferDirectory.getPath());
+            SmbScanResult scanResult1 = smbShareScanner.scan(null);
+            assertEquals(5, scanResult1.getAddedEntries().size());
+            assertEquals(5, scanResult1.getSnapshot().getSize());
+            assertEquals(3, scanResult1.getEnumeratedDirectoryCount());
+
+            // Check that an unchanged tree is not enumerated again
+            SmbScanResult scanResult2 = smbShareScanner.scan(scanResult1.getSnapshot());
+            assertFalse(scanResult2.hasChanges());
+            assertEquals(0, scanResult2.getEnumeratedDirectoryCount());
+            assertEquals(3, scanResult2.getSkippedDirectoryCount());
+
+            // Add and delete some files
+            subDirectory2.createFileInCurrentDirectory("File4");
+            subFile3.deleteFile();
+            SmbScanResult scanResult3 = smbShareScanner.scan(scanResult2.getSnapshot());
+            assertEquals(1, scanResult3.getAddedEntries().size());
+            assertEquals(subDirectory2.getPath() + "/File4", scanResult3.getAddedEntries().get(0).getPath());
+            assertEquals(1, scanResult3.getDeletedEntries().size());
+            assertEquals(subFile3.getPath(), scanResult3.getDeletedEntries().get(0).getPath());
+
+            // Persist and restore the snapshot
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            scanResult3.getSnapshot().writeTo(byteArrayOutputStream);
+            SmbScanSnapshot restoredSnapshot = SmbScanSnapshot.readFrom(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+            assertEquals(scanResult3.getSnapshot().getSize(), restoredSnapshot.getSize());
+            assertEquals(scanResult3.getSnapshot().getRootChangeTime(), restoredSnapshot.getRootChangeTime());
+            assertEquals(scanResult3.getSnapshot().getRootFileId(), restoredSnapshot.getRootFileId());
+            assertEquals(scanResult3.getSnapshot().getEntry(subFile1.getPath()).getLastWriteTime(), restoredSnapshot.getEntry(subFile1.getPath()).getLastWriteTime());
+
+            // Modify a file in place and check that the full scan detects it
+            try (OutputStream outputStream = subFile1.getOutputStream()) {
+                outputStream.write("Hello".getBytes());
+            }
+            SmbScanResult scanResult4 = smbShareScanner.scanFully(restoredSnapshot);
+            assertEquals(1, scanResult4.getModifiedEntries().size());
+            assertEquals(subFile1.getPath(), scanResult4.getModifiedEntries().get(0).getPath());
+            assertEquals(5, scanResult4.getModifiedEntries().get(0).getFileSize());
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+}
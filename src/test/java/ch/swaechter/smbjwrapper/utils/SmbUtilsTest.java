@@ -23,4 +23,20 @@ public class SmbUtilsTest {
         assertTrue(SmbUtils.isValidSmbItemName("Directory"));
         assertTrue(SmbUtils.isValidSmbItemName("File.txt"));
     }
+
+    /**
+     * Test the matching of wildcard patterns.
+     */
+    @Test
+    public void testMatchesWildcard() {
+        assertTrue(SmbUtils.matchesWildcard("File.csv", "*.csv"));
+        assertTrue(SmbUtils.matchesWildcard("FILE.CSV", "*.csv"));
+        assertTrue(SmbUtils.matchesWildcard("File1.txt", "File?.txt"));
+        assertTrue(SmbUtils.matchesWildcard("File.txt", "*"));
+        assertTrue(SmbUtils.matchesWildcard("Report-2020-01.csv", "Report*01*"));
+        assertTrue(SmbUtils.matchesWildcard("", "*"));
+        assertFalse(SmbUtils.matchesWildcard("File.csv.txt", "*.csv"));
+        assertFalse(SmbUtils.matchesWildcard("File10.txt", "File?.txt"));
+        assertFalse(SmbUtils.matchesWildcard("File.txt", ""));
+    }
 }
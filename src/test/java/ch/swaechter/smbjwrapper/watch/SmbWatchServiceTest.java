@@ -0,0 +1,101 @@
+package ch.swaechter.smbjwrapper.watch;
+
+import ch.swaechter.smbjwrapper.SmbConnection;
+import ch.swaechter.smbjwrapper.SmbDirectory;
+import ch.swaechter.smbjwrapper.helpers.BaseTest;
+import ch.swaechter.smbjwrapper.helpers.TestConnection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmbWatchServiceTest extends BaseTest {
+
+    /**
+     * Test the coalescing of events per path.
+     */
+    @Test
+    public void testCoalesce() {
+        List<SmbWatchEvent> watchEvents = SmbWatchService.coalesce(Arrays.asList(
+            new SmbWatchEvent(SmbWatchEventKind.CREATED, "Dir/File1", null),
+            new SmbWatchEvent(SmbWatchEventKind.MODIFIED, "Dir/File1", null),
+            new SmbWatchEvent(SmbWatchEventKind.CREATED, "Dir/File2", null),
+            new SmbWatchEvent(SmbWatchEventKind.DELETED, "Dir/File2", null),
+            new SmbWatchEvent(SmbWatchEventKind.DELETED, "Dir/File3", null),
+            new SmbWatchEvent(SmbWatchEventKind.CREATED, "Dir/File3", null),
+            new SmbWatchEvent(SmbWatchEventKind.RENAMED, "Dir/File5", "Dir/File4"),
+            new SmbWatchEvent(SmbWatchEventKind.RENAMED, "Dir/File6", "Dir/File5"),
+            new SmbWatchEvent(SmbWatchEventKind.MODIFIED, "Dir/File7", null),
+            new SmbWatchEvent(SmbWatchEventKind.MODIFIED, "Dir/File7", null)
+        ));
+        assertEquals(4, watchEvents.size());
+        assertEquals("CREATED Dir/File1", watchEvents.get(0).toString());
+        assertEquals("MODIFIED Dir/File3", watchEvents.get(1).toString());
+        assertEquals("RENAMED Dir/File4 -> Dir/File6", watchEvents.get(2).toString());
+        assertEquals("MODIFIED Dir/File7", watchEvents.get(3).toString());
+
+        // Check that a modification before and after a rename is carried over to the new path
+        List<SmbWatchEvent> renamedEvents = SmbWatchService.coalesce(Arrays.asList(
+            new SmbWatchEvent(SmbWatchEventKind.MODIFIED, "Dir/File1", null),
+            new SmbWatchEvent(SmbWatchEventKind.RENAMED, "Dir/File2", "Dir/File1"),
+            new SmbWatchEvent(SmbWatchEventKind.RENAMED, "Dir/File4", "Dir/File3"),
+            new SmbWatchEvent(SmbWatchEventKind.MODIFIED, "Dir/File4", null)
+        ));
+        assertEquals(4, renamedEvents.size());
+        assertEquals("RENAMED Dir/File1 -> Dir/File2", renamedEvents.get(0).toString());
+        assertEquals("MODIFIED Dir/File2", renamedEvents.get(1).toString());
+        assertEquals("RENAMED Dir/File3 -> Dir/File4", renamedEvents.get(2).toString());
+        assertEquals("MODIFIED Dir/File4", renamedEvents.get(3).toString());
+    }
+
+    /**
+     * Test the delivery of change notifications.
+     *
+     * @param testConnection Parameterized test connection data
+     * @throws Exception Exception in case of a problem
+     */
+    @ParameterizedTest
+    @MethodSource("ch.swaechter.smbjwrapper.helpers.BaseTest#getTestConnections")
+    public void testWatch(TestConnection testConnection) throws Exception {
+        try (SmbConnection smbConnection = new SmbConnection(testConnection.getHostName(), testConnection.getShareName(), testConnection.getAuthenticationContext())) {
+            // Create the entry point directory
+            SmbDirectory transferDirectory = new SmbDirectory(smbConnection, buildUniquePath());
+            transferDirectory.createDirectory();
+
+            BlockingQueue<SmbWatchEvent> receivedEvents = new LinkedBlockingQueue<>();
+            try (SmbWatchService smbWatchService = new SmbWatchService(receivedEvents::addAll)) {
+                SmbWatchRegistration smbWatchRegistration = smbWatchService.register(smbConnection, transferDirectory.getPath(), true);
+                assertEquals(1, smbWatchService.getRegistrationCount());
+
+                // Create a file and wait for its event
+                transferDirectory.createFileInCurrentDirectory("File1");
+                List<String> createdPaths = new ArrayList<>();
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (!createdPaths.contains(transferDirectory.getPath() + "/File1") && System.currentTimeMillis() < deadline) {
+                    SmbWatchEvent watchEvent = receivedEvents.poll(1, TimeUnit.SECONDS);
+                    if (watchEvent != null && watchEvent.getKind() == SmbWatchEventKind.CREATED) {
+                        createdPaths.add(watchEvent.getPath());
+                    }
+                }
+                assertTrue(createdPaths.contains(transferDirectory.getPath() + "/File1"));
+
+                // Cancel the registration
+                smbWatchRegistration.cancel();
+                assertTrue(smbWatchRegistration.isCancelled());
+                assertEquals(0, smbWatchService.getRegistrationCount());
+            }
+
+            // Clean up
+            transferDirectory.deleteDirectoryRecursively();
+            assertFalse(transferDirectory.isExisting());
+        }
+    }
+}